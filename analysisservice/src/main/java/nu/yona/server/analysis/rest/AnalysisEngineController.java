@@ -1,9 +1,12 @@
 /*******************************************************************************
- * Copyright (c) 2015, 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.analysis.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,23 +23,63 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import nu.yona.server.analysis.service.AnalysisEngineService;
 import nu.yona.server.analysis.service.AppActivityDto;
+import nu.yona.server.analysis.service.NetworkActivityCoalescingService;
 import nu.yona.server.analysis.service.NetworkActivityDto;
+import nu.yona.server.analysis.service.NetworkActivityIngestionService;
+import nu.yona.server.analysis.service.NetworkActivityLineResultDto;
+import nu.yona.server.properties.YonaProperties;
 
 @Controller
 @RequestMapping(value = "", produces = { MediaType.APPLICATION_JSON_VALUE })
 public class AnalysisEngineController
 {
+	private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
 	@Autowired
 	private AnalysisEngineService analysisEngineService;
 
+	@Autowired
+	private NetworkActivityCoalescingService networkActivityCoalescingService;
+
+	@Autowired
+	private NetworkActivityIngestionService networkActivityIngestionService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
 	@RequestMapping(value = "/userAnonymized/{userAnonymizedId}/networkActivity/", method = RequestMethod.POST)
 	@ResponseStatus(value = HttpStatus.OK)
 	public void analyzeNetworkActivity(@PathVariable UUID userAnonymizedId,
 			@RequestBody NetworkActivityDto potentialConflictPayload)
 	{
-		analysisEngineService.analyze(userAnonymizedId, potentialConflictPayload);
+		networkActivityCoalescingService.analyze(userAnonymizedId, potentialConflictPayload);
+	}
+
+	/**
+	 * Bulk variant of {@link #analyzeNetworkActivity(UUID, NetworkActivityDto)}, for the Smoothwall log forwarder. The body is
+	 * newline delimited JSON, with on every line the network activity of one user, along with its user anonymized ID. The
+	 * response lists the result of every line. See {@link NetworkActivityStreamReader} for the error handling.
+	 */
+	@RequestMapping(value = "/networkActivities/", method = RequestMethod.POST, consumes = NDJSON_MEDIA_TYPE)
+	@ResponseBody
+	public HttpEntity<NetworkActivityStreamResultResource> analyzeNetworkActivityStream(InputStream networkActivityStream)
+			throws IOException
+	{
+		NetworkActivityStreamReader reader = new NetworkActivityStreamReader(objectMapper,
+				yonaProperties.getAnalysisService().getBulkIngestionMaxEventCount());
+		reader.read(networkActivityStream);
+		List<NetworkActivityLineResultDto> analyzedLines = networkActivityIngestionService.analyze(reader.getLines());
+		NetworkActivityStreamResultDto result = NetworkActivityStreamResultDto.createInstance(reader.getRejectedLines(),
+				analyzedLines);
+		return new ResponseEntity<NetworkActivityStreamResultResource>(new NetworkActivityStreamResultResource(result),
+				HttpStatus.OK);
 	}
 
 	/**
@@ -65,4 +108,12 @@ public class AnalysisEngineController
 			super(categories);
 		}
 	}
+
+	public static class NetworkActivityStreamResultResource extends Resource<NetworkActivityStreamResultDto>
+	{
+		public NetworkActivityStreamResultResource(NetworkActivityStreamResultDto result)
+		{
+			super(result);
+		}
+	}
 }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import nu.yona.server.analysis.service.NetworkActivityDto;
+import nu.yona.server.analysis.service.NetworkActivityLineDto;
+import nu.yona.server.analysis.service.NetworkActivityLineResultDto;
+import nu.yona.server.exceptions.AnalysisException;
+
+/**
+ * Reads a network activity stream: newline delimited JSON, with on every line a network activity object with the additional
+ * property "userAnonymizedId". The stream is parsed incrementally, so only one line is held as tree at a time.<br/>
+ * Lines that are well-formed JSON but not valid network activity are rejected individually. Malformed JSON makes the remainder
+ * of the stream unreliable, so that causes the entire stream to be rejected, before anything is analyzed.
+ */
+public class NetworkActivityStreamReader
+{
+	private static final String USER_ANONYMIZED_ID_PROPERTY = "userAnonymizedId";
+
+	private final ObjectMapper objectMapper;
+	private final int maxEventCount;
+	private final List<NetworkActivityLineDto> lines = new ArrayList<>();
+	private final List<NetworkActivityLineResultDto> rejectedLines = new ArrayList<>();
+
+	public NetworkActivityStreamReader(ObjectMapper objectMapper, int maxEventCount)
+	{
+		this.objectMapper = objectMapper;
+		this.maxEventCount = maxEventCount;
+	}
+
+	public void read(InputStream inputStream) throws IOException
+	{
+		try (JsonParser parser = objectMapper.getFactory().createParser(inputStream))
+		{
+			while (parser.nextToken() != null)
+			{
+				if (lines.size() + rejectedLines.size() >= maxEventCount)
+				{
+					throw AnalysisException.networkActivityStreamTooLarge(maxEventCount);
+				}
+				int lineNumber = parser.getTokenLocation().getLineNr();
+				readLine(lineNumber, objectMapper.readTree(parser));
+			}
+		}
+		catch (JsonParseException e)
+		{
+			throw AnalysisException.invalidNetworkActivityStream(e.getLocation().getLineNr(), e.getOriginalMessage());
+		}
+	}
+
+	public List<NetworkActivityLineDto> getLines()
+	{
+		return Collections.unmodifiableList(lines);
+	}
+
+	public List<NetworkActivityLineResultDto> getRejectedLines()
+	{
+		return Collections.unmodifiableList(rejectedLines);
+	}
+
+	private void readLine(int lineNumber, JsonNode node)
+	{
+		try
+		{
+			if (!node.isObject())
+			{
+				throw new IllegalArgumentException("Line does not contain a JSON object");
+			}
+			ObjectNode objectNode = (ObjectNode) node;
+			UUID userAnonymizedId = getUserAnonymizedId(objectNode);
+			objectNode.remove(USER_ANONYMIZED_ID_PROPERTY);
+			lines.add(new NetworkActivityLineDto(lineNumber, userAnonymizedId,
+					objectMapper.treeToValue(objectNode, NetworkActivityDto.class)));
+		}
+		catch (JsonProcessingException e)
+		{
+			reject(lineNumber, e.getOriginalMessage());
+		}
+		catch (IllegalArgumentException e)
+		{
+			reject(lineNumber, e.getMessage());
+		}
+	}
+
+	private UUID getUserAnonymizedId(ObjectNode node)
+	{
+		JsonNode userAnonymizedId = node.get(USER_ANONYMIZED_ID_PROPERTY);
+		if (userAnonymizedId == null || !userAnonymizedId.isTextual())
+		{
+			throw new IllegalArgumentException("Property '" + USER_ANONYMIZED_ID_PROPERTY + "' is missing");
+		}
+		return UUID.fromString(userAnonymizedId.textValue());
+	}
+
+	private void reject(int lineNumber, String detail)
+	{
+		rejectedLines.add(NetworkActivityLineResultDto.createErrorInstance(lineNumber,
+				AnalysisException.invalidNetworkActivity(lineNumber, detail)));
+	}
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.rest;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import nu.yona.server.analysis.service.NetworkActivityLineResultDto;
+
+@JsonRootName("networkActivityStreamResult")
+public class NetworkActivityStreamResultDto
+{
+	private final List<NetworkActivityLineResultDto> lines;
+
+	private NetworkActivityStreamResultDto(List<NetworkActivityLineResultDto> lines)
+	{
+		this.lines = lines;
+	}
+
+	public int getLineCount()
+	{
+		return lines.size();
+	}
+
+	public long getErrorCount()
+	{
+		return lines.stream().filter(NetworkActivityLineResultDto::isError).count();
+	}
+
+	public List<NetworkActivityLineResultDto> getLines()
+	{
+		return Collections.unmodifiableList(lines);
+	}
+
+	public static NetworkActivityStreamResultDto createInstance(List<NetworkActivityLineResultDto> rejectedLines,
+			List<NetworkActivityLineResultDto> analyzedLines)
+	{
+		return new NetworkActivityStreamResultDto(Stream.concat(rejectedLines.stream(), analyzedLines.stream())
+				.sorted(Comparator.comparingInt(NetworkActivityLineResultDto::getLineNumber)).collect(Collectors.toList()));
+	}
+}
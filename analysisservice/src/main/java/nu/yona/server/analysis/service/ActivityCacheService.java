@@ -9,6 +9,7 @@ import java.util.UUID;
 
 import javax.transaction.Transactional;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -16,7 +17,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import nu.yona.server.analysis.entities.Activity;
-import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.ActivityRepository;
 
 @Service
 // Day activities are only used in the analysis engine service, so a local cache suffices for as long as we do not
@@ -24,19 +25,15 @@ import nu.yona.server.analysis.entities.DayActivity;
 @CacheConfig(cacheManager = "localCache", cacheNames = "lastActivity")
 public class ActivityCacheService
 {
+	@Autowired
+	private ActivityRepository activityRepository;
+
 	@Cacheable(key = "{#userAnonymizedId,#goalId}")
 	@Transactional
 	public ActivityDto fetchLastActivityForUser(UUID userAnonymizedId, UUID goalId)
 	{
-		List<DayActivity> lastDayActivityList = DayActivity.getRepository().findLast(userAnonymizedId, goalId, new PageRequest(0, 1))
-				.getContent();
-		if (lastDayActivityList.isEmpty())
-		{
-			return null;
-		}
-		Activity lastActivity = lastDayActivityList.get(0).getLastActivity();
-		// this can be the case when a DayActivity is created with inactivity
-		return lastActivity == null ? null : ActivityDto.createInstance(lastActivity);
+		List<Activity> lastActivityList = activityRepository.findLatest(userAnonymizedId, goalId, new PageRequest(0, 1));
+		return lastActivityList.isEmpty() ? null : ActivityDto.createInstance(lastActivityList.get(0));
 	}
 
 	@CachePut(key = "{#userAnonymizedId,#goalId}")
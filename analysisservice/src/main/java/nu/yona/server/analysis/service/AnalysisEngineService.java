@@ -6,6 +6,7 @@ package nu.yona.server.analysis.service;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Optional;
@@ -91,6 +92,20 @@ public class AnalysisEngineService
 		analyze(ActivityPayload.createInstance(userAnonymized, networkActivity), matchingActivityCategories);
 	}
 
+	/**
+	 * Analyzes a burst of network activity as one activity, from the first till the last event of the burst.
+	 */
+	// This is intentionally not marked with @Transactional, as the transaction is explicitly started within the lock inside
+	// analyze(ActivityPayload, Set<ActivityCategoryDto>)
+	public void analyze(NetworkActivityBurst burst)
+	{
+		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(burst.getUserAnonymizedId());
+		NetworkActivityDto networkActivity = burst.getNetworkActivity();
+		Set<ActivityCategoryDto> matchingActivityCategories = activityCategoryFilterService
+				.getMatchingCategoriesForSmoothwallCategories(networkActivity.getCategories());
+		analyze(ActivityPayload.createInstance(userAnonymized, networkActivity, burst.getEndTime()), matchingActivityCategories);
+	}
+
 	private Duration determineDeviceTimeOffset(AppActivityDto appActivities)
 	{
 		Duration offset = Duration.between(ZonedDateTime.now(), appActivities.getDeviceDateTime());
@@ -144,12 +159,25 @@ public class AnalysisEngineService
 				analyzeInsideLock(userAnonymizedHolder, payload, matchingActivityCategories);
 				if (userAnonymizedHolder.isEntityFetched())
 				{
-					userAnonymizedService.updateUserAnonymized(userAnonymizedHolder.getEntity());
+					updateUserAnonymized(payload.userAnonymized, userAnonymizedHolder.getEntity());
 				}
 			});
 		}
 	}
 
+	private void updateUserAnonymized(UserAnonymizedDto userAnonymized, UserAnonymized userAnonymizedEntity)
+	{
+		if (userAnonymized.getLastMonitoredActivityDate().equals(userAnonymizedEntity.getLastMonitoredActivityDate()))
+		{
+			// Only activities or messages were added, so the cached DTO is still valid
+			userAnonymizedService.updateUserAnonymizedKeepingCachedDto(userAnonymizedEntity);
+		}
+		else
+		{
+			userAnonymizedService.updateUserAnonymized(userAnonymized.getId(), userAnonymizedEntity);
+		}
+	}
+
 	private void analyzeInsideLock(UserAnonymizedEntityHolder userAnonymizedHolder, ActivityPayload payload,
 			Set<ActivityCategoryDto> matchingActivityCategories)
 	{
@@ -285,7 +313,7 @@ public class AnalysisEngineService
 		}
 
 		// Save first, so the activity is available when saving the message
-		userAnonymizedService.updateUserAnonymized(userAnonymizedHolder.getEntity());
+		userAnonymizedService.updateUserAnonymizedKeepingCachedDto(userAnonymizedHolder.getEntity());
 		if (matchingGoal.isNoGoGoal())
 		{
 			sendConflictMessageToAllDestinationsOfUser(userAnonymizedHolder.getEntity(), payload, addedActivity,
@@ -299,7 +327,7 @@ public class AnalysisEngineService
 		DayActivity dayActivity = findExistingDayActivity(payload, matchingGoal.getGoalId());
 		// because of the lock further up in this class, we are sure that getLastActivity() gives the same activity
 		Activity activity = dayActivity.getLastActivity();
-		activity.setEndTime(payload.endTime.toLocalDateTime());
+		dayActivity.updateActivityEndTime(activity, payload.endTime.toLocalDateTime());
 		// because of the lock further up in this class, we are sure that getLastActivity() gives the same activity
 		if (shouldUpdateCache(lastRegisteredActivity, activity))
 		{
@@ -386,7 +414,7 @@ public class AnalysisEngineService
 				matchingGoal, payload.url);
 		messageService.sendMessage(selfGoalConflictMessage, userAnonymized.getAnonymousDestination());
 		// Save the messages, so the other messages can reference it
-		userAnonymizedService.updateUserAnonymized(userAnonymized);
+		userAnonymizedService.updateUserAnonymizedKeepingCachedDto(userAnonymized);
 
 		messageService.broadcastMessageToBuddies(payload.userAnonymized,
 				() -> GoalConflictMessage.createInstanceForBuddy(payload.userAnonymized.getId(), selfGoalConflictMessage));
@@ -395,14 +423,11 @@ public class AnalysisEngineService
 	private Set<GoalDto> determineMatchingGoalsForUser(UserAnonymizedDto userAnonymized,
 			Set<ActivityCategoryDto> matchingActivityCategories, ZonedDateTime activityStartTime)
 	{
-		Set<UUID> matchingActivityCategoryIds = matchingActivityCategories.stream().map(ac -> ac.getId())
-				.collect(Collectors.toSet());
-		Set<GoalDto> goalsOfUser = userAnonymized.getGoals();
-		Set<GoalDto> matchingGoalsOfUser = goalsOfUser.stream().filter(g -> !g.isHistoryItem())
-				.filter(g -> matchingActivityCategoryIds.contains(g.getActivityCategoryId()))
-				.filter(g -> g.getCreationTime().get()
-						.isBefore(TimeUtil.toUtcLocalDateTime(activityStartTime.plus(DEVICE_TIME_INACCURACY_MARGIN))))
-				.collect(Collectors.toSet());
+		LocalDateTime goalCreationTimeLimit = TimeUtil
+				.toUtcLocalDateTime(activityStartTime.plus(DEVICE_TIME_INACCURACY_MARGIN));
+		Set<GoalDto> matchingGoalsOfUser = matchingActivityCategories.stream()
+				.flatMap(ac -> userAnonymized.getActiveGoalsForActivityCategoryId(ac.getId()).stream())
+				.filter(g -> g.getCreationTime().get().isBefore(goalCreationTimeLimit)).collect(Collectors.toSet());
 		return matchingGoalsOfUser;
 	}
 
@@ -442,6 +467,16 @@ public class AnalysisEngineService
 					Optional.empty());
 		}
 
+		static ActivityPayload createInstance(UserAnonymizedDto userAnonymized, NetworkActivityDto networkActivity,
+				ZonedDateTime endTime)
+		{
+			ZoneId userTimeZone = userAnonymized.getTimeZone();
+			ZonedDateTime startTime = networkActivity.getEventTime().orElse(ZonedDateTime.now())
+					.withZoneSameInstant(userTimeZone);
+			return new ActivityPayload(userAnonymized, Optional.of(networkActivity.getUrl()), startTime,
+					endTime.withZoneSameInstant(userTimeZone), Optional.empty());
+		}
+
 		static ActivityPayload createInstance(UserAnonymizedDto userAnonymized, ZonedDateTime startTime, ZonedDateTime endTime,
 				String application)
 		{
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health.Builder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.google.common.collect.Lists;
+
+import nu.yona.server.goals.service.ActivityCategoryService;
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.subscriptions.service.UserAnonymizedDto;
+import nu.yona.server.subscriptions.service.UserAnonymizedService;
+import nu.yona.server.util.TimeUtil;
+
+/**
+ * Preloads the caches used by the analysis engine: the activity category set and, for the users that were recently active, the
+ * anonymized user and the last activities. Without this, a freshly started analysis service goes to the database for nearly
+ * every activity it receives during the first minutes.<br/>
+ * The users are loaded in batches on a bounded thread pool. The warm-up stops when the time budget is used up. While it runs,
+ * the health indicator reports OUT_OF_SERVICE, so a load balancer only routes traffic to the service once the caches are warm.
+ */
+@Service
+public class CacheWarmUpService extends AbstractHealthIndicator
+{
+	private static final Logger logger = LoggerFactory.getLogger(CacheWarmUpService.class);
+
+	private static final int BATCH_SIZE = 50;
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private UserAnonymizedService userAnonymizedService;
+
+	@Autowired
+	private ActivityCategoryService activityCategoryService;
+
+	@Autowired
+	private ActivityCacheService activityCacheService;
+
+	private volatile boolean isWarmUpCompleted;
+	private final AtomicInteger numUsersWarmedUp = new AtomicInteger();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUpCaches()
+	{
+		AnalysisServiceProperties analysisServiceProperties = yonaProperties.getAnalysisService();
+		if (!analysisServiceProperties.isCacheWarmUpEnabled())
+		{
+			isWarmUpCompleted = true;
+			return;
+		}
+		try
+		{
+			activityCategoryService.getAllActivityCategories();
+			warmUpUserCaches(analysisServiceProperties);
+		}
+		finally
+		{
+			isWarmUpCompleted = true;
+		}
+	}
+
+	private void warmUpUserCaches(AnalysisServiceProperties analysisServiceProperties)
+	{
+		LocalDate activeSince = TimeUtil.utcNow().toLocalDate()
+				.minusDays(analysisServiceProperties.getCacheWarmUpActivityWindow().toDays());
+		List<UUID> userAnonymizedIds = userAnonymizedService.getIdsOfUsersAnonymizedWithActivitySince(activeSince);
+		logger.info("Warming up caches for {} users with activity since {}", userAnonymizedIds.size(), activeSince);
+
+		ExecutorService executor = Executors.newFixedThreadPool(analysisServiceProperties.getCacheWarmUpThreadCount());
+		Lists.partition(userAnonymizedIds, BATCH_SIZE).forEach(batch -> executor.execute(() -> warmUpCaches(batch)));
+		executor.shutdown();
+		try
+		{
+			if (executor.awaitTermination(analysisServiceProperties.getCacheWarmUpTimeBudget().toMillis(),
+					TimeUnit.MILLISECONDS))
+			{
+				logger.info("Cache warm-up completed for {} users", numUsersWarmedUp.get());
+			}
+			else
+			{
+				executor.shutdownNow();
+				logger.warn("Cache warm-up time budget exceeded, stopped after {} of {} users", numUsersWarmedUp.get(),
+						userAnonymizedIds.size());
+			}
+		}
+		catch (InterruptedException e)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void warmUpCaches(List<UUID> userAnonymizedIds)
+	{
+		for (UUID userAnonymizedId : userAnonymizedIds)
+		{
+			if (Thread.currentThread().isInterrupted())
+			{
+				return;
+			}
+			try
+			{
+				warmUpCaches(userAnonymizedId);
+				numUsersWarmedUp.incrementAndGet();
+			}
+			catch (RuntimeException e)
+			{
+				// The caches are filled on demand anyway, so just log and continue
+				logger.warn("Cache warm-up failed for user anonymized with ID " + userAnonymizedId, e);
+			}
+		}
+	}
+
+	private void warmUpCaches(UUID userAnonymizedId)
+	{
+		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
+		userAnonymized.getGoals().stream().filter(g -> !g.isHistoryItem())
+				.forEach(g -> activityCacheService.fetchLastActivityForUser(userAnonymizedId, g.getGoalId()));
+	}
+
+	@Override
+	protected void doHealthCheck(Builder builder)
+	{
+		if (isWarmUpCompleted)
+		{
+			builder.up();
+		}
+		else
+		{
+			builder.outOfService();
+		}
+		builder.withDetail("usersWarmedUp", numUsersWarmedUp.get());
+	}
+}
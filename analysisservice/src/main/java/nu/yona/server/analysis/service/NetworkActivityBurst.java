@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Network activity of one user with the same Smoothwall categories, that occurred within a short window, like a single page
+ * load produces. The analysis engine analyzes such a burst as one activity from the first till the last event. Analyzing the
+ * events one by one would hardly give a different result: the analysis engine only extends an activity with a new event if
+ * that is beyond the update skip window.<br/>
+ * Events without event time get the time they were received, as their analysis is delayed.
+ */
+public class NetworkActivityBurst
+{
+	private final UUID userAnonymizedId;
+	private final NetworkActivityDto firstNetworkActivity;
+	private final ZonedDateTime startTime;
+	private ZonedDateTime endTime;
+	private final List<Integer> eventIndexes = new ArrayList<>();
+
+	private NetworkActivityBurst(UUID userAnonymizedId, NetworkActivityDto firstNetworkActivity, ZonedDateTime startTime,
+			int eventIndex)
+	{
+		this.userAnonymizedId = userAnonymizedId;
+		this.firstNetworkActivity = firstNetworkActivity;
+		this.startTime = startTime;
+		this.endTime = startTime;
+		this.eventIndexes.add(eventIndex);
+	}
+
+	public UUID getUserAnonymizedId()
+	{
+		return userAnonymizedId;
+	}
+
+	/**
+	 * The first network activity of the burst, with its event time set.
+	 */
+	public NetworkActivityDto getNetworkActivity()
+	{
+		return firstNetworkActivity;
+	}
+
+	public ZonedDateTime getEndTime()
+	{
+		return endTime;
+	}
+
+	public int getEventCount()
+	{
+		return eventIndexes.size();
+	}
+
+	/**
+	 * The indexes of the events of this burst, in the list passed to {@link #coalesce(UUID, List, Duration)}.
+	 */
+	public List<Integer> getEventIndexes()
+	{
+		return Collections.unmodifiableList(eventIndexes);
+	}
+
+	/**
+	 * Adds the given network activity to this burst if it occurred within the given window after the start of the burst. The
+	 * caller is responsible for passing only network activity of the same user with the same categories.
+	 *
+	 * @return true if the network activity was added, false if a new burst needs to be started
+	 */
+	public boolean tryAdd(NetworkActivityDto networkActivity, ZonedDateTime receivedTime, Duration window)
+	{
+		return tryAdd(networkActivity, receivedTime, window, eventIndexes.size());
+	}
+
+	private boolean tryAdd(NetworkActivityDto networkActivity, ZonedDateTime receivedTime, Duration window, int eventIndex)
+	{
+		ZonedDateTime eventTime = networkActivity.getEventTime().orElse(receivedTime);
+		if (eventTime.isBefore(startTime) || Duration.between(startTime, eventTime).compareTo(window) > 0)
+		{
+			return false;
+		}
+		if (eventTime.isAfter(endTime))
+		{
+			endTime = eventTime;
+		}
+		eventIndexes.add(eventIndex);
+		return true;
+	}
+
+	public static NetworkActivityBurst createInstance(UUID userAnonymizedId, NetworkActivityDto networkActivity,
+			ZonedDateTime receivedTime)
+	{
+		return createInstance(userAnonymizedId, networkActivity, receivedTime, 0);
+	}
+
+	private static NetworkActivityBurst createInstance(UUID userAnonymizedId, NetworkActivityDto networkActivity,
+			ZonedDateTime receivedTime, int eventIndex)
+	{
+		ZonedDateTime eventTime = networkActivity.getEventTime().orElse(receivedTime);
+		NetworkActivityDto networkActivityWithEventTime = networkActivity.getEventTime().isPresent() ? networkActivity
+				: new NetworkActivityDto(networkActivity.getCategories(), networkActivity.getUrl(), Optional.of(eventTime));
+		return new NetworkActivityBurst(userAnonymizedId, networkActivityWithEventTime, eventTime, eventIndex);
+	}
+
+	/**
+	 * Coalesces the given network activity of a single user into bursts. The bursts are returned in the order of their first
+	 * event.
+	 */
+	public static List<NetworkActivityBurst> coalesce(UUID userAnonymizedId, List<NetworkActivityDto> networkActivities,
+			Duration window)
+	{
+		ZonedDateTime receivedTime = ZonedDateTime.now();
+		List<NetworkActivityBurst> bursts = new ArrayList<>();
+		Map<Set<String>, NetworkActivityBurst> openBurstsByCategories = new HashMap<>();
+		for (int i = 0; i < networkActivities.size(); i++)
+		{
+			NetworkActivityDto networkActivity = networkActivities.get(i);
+			NetworkActivityBurst openBurst = openBurstsByCategories.get(networkActivity.getCategories());
+			if (openBurst == null || !openBurst.tryAdd(networkActivity, receivedTime, window, i))
+			{
+				NetworkActivityBurst burst = createInstance(userAnonymizedId, networkActivity, receivedTime, i);
+				openBurstsByCategories.put(networkActivity.getCategories(), burst);
+				bursts.add(burst);
+			}
+		}
+		return bursts;
+	}
+}
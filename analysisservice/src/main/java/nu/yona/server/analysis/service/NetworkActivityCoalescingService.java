@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+
+/**
+ * Buffers the network activity posted by the Smoothwall log forwarder, so a burst of events for the same user and categories
+ * is analyzed once instead of once per event (see {@link NetworkActivityBurst}). A burst ends when an event falls outside the
+ * update skip window. It is analyzed at that moment or after the flush delay, whichever comes first. When the buffer is full,
+ * the oldest burst is analyzed right away.<br/>
+ * As the analysis is delayed, errors like an unknown user are logged rather than returned to the forwarder. When coalescing is
+ * disabled, the network activity is analyzed immediately.
+ */
+@Service
+public class NetworkActivityCoalescingService
+{
+	private static final Logger logger = LoggerFactory.getLogger(NetworkActivityCoalescingService.class);
+
+	private static final int SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private AnalysisEngineService analysisEngineService;
+
+	private final Map<BurstKey, NetworkActivityBurst> pendingBursts = new LinkedHashMap<>();
+	private ScheduledExecutorService flushExecutor;
+
+	@PostConstruct
+	private void initialize()
+	{
+		AnalysisServiceProperties analysisServiceProperties = yonaProperties.getAnalysisService();
+		if (analysisServiceProperties.isNetworkActivityCoalescingEnabled())
+		{
+			flushExecutor = Executors.newScheduledThreadPool(analysisServiceProperties.getNetworkActivityCoalescingThreadCount());
+		}
+	}
+
+	@PreDestroy
+	private void shutDown() throws InterruptedException
+	{
+		if (flushExecutor == null)
+		{
+			return;
+		}
+		flushExecutor.shutdown();
+		flushAll();
+		if (!flushExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		{
+			logger.warn("Not all buffered network activity was analyzed before shutdown");
+		}
+	}
+
+	public void analyze(UUID userAnonymizedId, NetworkActivityDto networkActivity)
+	{
+		if (flushExecutor == null)
+		{
+			analysisEngineService.analyze(userAnonymizedId, networkActivity);
+			return;
+		}
+
+		AnalysisServiceProperties analysisServiceProperties = yonaProperties.getAnalysisService();
+		ZonedDateTime receivedTime = ZonedDateTime.now();
+		BurstKey key = new BurstKey(userAnonymizedId, networkActivity.getCategories());
+		List<NetworkActivityBurst> completedBursts = new ArrayList<>();
+		synchronized (pendingBursts)
+		{
+			NetworkActivityBurst pendingBurst = pendingBursts.get(key);
+			if (pendingBurst != null
+					&& pendingBurst.tryAdd(networkActivity, receivedTime, analysisServiceProperties.getUpdateSkipWindow()))
+			{
+				return;
+			}
+			if (pendingBurst != null)
+			{
+				completedBursts.add(pendingBursts.remove(key));
+			}
+			else if (pendingBursts.size() >= analysisServiceProperties.getNetworkActivityCoalescingMaxBufferSize())
+			{
+				completedBursts.add(removeOldestBurst());
+			}
+			NetworkActivityBurst burst = NetworkActivityBurst.createInstance(userAnonymizedId, networkActivity, receivedTime);
+			pendingBursts.put(key, burst);
+			flushExecutor.schedule(() -> flushIfPending(key, burst),
+					analysisServiceProperties.getNetworkActivityCoalescingFlushDelay().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		completedBursts.forEach(this::analyze);
+	}
+
+	private NetworkActivityBurst removeOldestBurst()
+	{
+		Iterator<NetworkActivityBurst> iterator = pendingBursts.values().iterator();
+		NetworkActivityBurst oldestBurst = iterator.next();
+		iterator.remove();
+		return oldestBurst;
+	}
+
+	private void flushIfPending(BurstKey key, NetworkActivityBurst burst)
+	{
+		synchronized (pendingBursts)
+		{
+			if (pendingBursts.get(key) != burst)
+			{
+				// Already analyzed, because a later event fell outside the window or because the buffer was full
+				return;
+			}
+			pendingBursts.remove(key);
+		}
+		analyze(burst);
+	}
+
+	private void flushAll()
+	{
+		List<NetworkActivityBurst> bursts;
+		synchronized (pendingBursts)
+		{
+			bursts = new ArrayList<>(pendingBursts.values());
+			pendingBursts.clear();
+		}
+		bursts.forEach(this::analyze);
+	}
+
+	private void analyze(NetworkActivityBurst burst)
+	{
+		try
+		{
+			analysisEngineService.analyze(burst);
+		}
+		catch (RuntimeException e)
+		{
+			logger.error("Analysis of " + burst.getEventCount() + " network activity events of user anonymized with ID "
+					+ burst.getUserAnonymizedId() + " failed", e);
+		}
+	}
+
+	private static class BurstKey
+	{
+		private final UUID userAnonymizedId;
+		private final Set<String> categories;
+
+		BurstKey(UUID userAnonymizedId, Set<String> categories)
+		{
+			this.userAnonymizedId = userAnonymizedId;
+			this.categories = categories;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return userAnonymizedId.hashCode() * 31 + categories.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof BurstKey))
+			{
+				return false;
+			}
+			BurstKey other = (BurstKey) obj;
+			return userAnonymizedId.equals(other.userAnonymizedId) && categories.equals(other.categories);
+		}
+	}
+}
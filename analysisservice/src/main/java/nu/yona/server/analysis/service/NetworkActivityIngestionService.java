@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.LockPool;
+
+/**
+ * Analyzes the network activity of many users, as received in a single network activity stream. The lines are grouped per
+ * user. The users are analyzed in parallel on a bounded thread pool, while the activities of a single user are analyzed in the
+ * order of the stream. Every activity is analyzed in its own transaction, so an invalid line does not affect the others.<br/>
+ * If network activity coalescing is enabled, the lines of a user are first coalesced into bursts (see
+ * {@link NetworkActivityBurst}). A burst is analyzed in one transaction and its result applies to all its lines.
+ */
+@Service
+public class NetworkActivityIngestionService
+{
+	private static final Logger logger = LoggerFactory.getLogger(NetworkActivityIngestionService.class);
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private AnalysisEngineService analysisEngineService;
+
+	@Autowired
+	private LockPool<UUID> userAnonymizedSynchronizer;
+
+	private ExecutorService executor;
+
+	@PostConstruct
+	private void initialize()
+	{
+		executor = Executors.newFixedThreadPool(yonaProperties.getAnalysisService().getBulkIngestionThreadCount());
+	}
+
+	@PreDestroy
+	private void shutDown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Analyzes the given lines and returns the result of every line, grouped per user.
+	 */
+	public List<NetworkActivityLineResultDto> analyze(List<NetworkActivityLineDto> lines)
+	{
+		Map<UUID, List<NetworkActivityLineDto>> linesPerUser = lines.stream().collect(
+				Collectors.groupingBy(NetworkActivityLineDto::getUserAnonymizedId, LinkedHashMap::new, Collectors.toList()));
+		List<CompletableFuture<List<NetworkActivityLineResultDto>>> futures = linesPerUser.entrySet().stream()
+				.map(e -> CompletableFuture.supplyAsync(() -> analyzeForUser(e.getKey(), e.getValue()), executor))
+				.collect(Collectors.toList());
+		return futures.stream().flatMap(f -> f.join().stream()).collect(Collectors.toList());
+	}
+
+	private List<NetworkActivityLineResultDto> analyzeForUser(UUID userAnonymizedId, List<NetworkActivityLineDto> lines)
+	{
+		// Hold the lock for the entire sequence, so activity posted through the other endpoints cannot interleave with it.
+		// The lock pool is reentrant, so the analysis engine can lock again per activity.
+		try (LockPool<UUID>.Lock lock = userAnonymizedSynchronizer.lock(userAnonymizedId))
+		{
+			if (yonaProperties.getAnalysisService().isNetworkActivityCoalescingEnabled())
+			{
+				return analyzeCoalesced(userAnonymizedId, lines);
+			}
+			return lines.stream().map(this::analyze).collect(Collectors.toList());
+		}
+	}
+
+	private List<NetworkActivityLineResultDto> analyzeCoalesced(UUID userAnonymizedId, List<NetworkActivityLineDto> lines)
+	{
+		List<NetworkActivityDto> networkActivities = lines.stream().map(NetworkActivityLineDto::getNetworkActivity)
+				.collect(Collectors.toList());
+		List<NetworkActivityBurst> bursts = NetworkActivityBurst.coalesce(userAnonymizedId, networkActivities,
+				yonaProperties.getAnalysisService().getUpdateSkipWindow());
+		List<NetworkActivityLineResultDto> results = new ArrayList<>(lines.size());
+		for (NetworkActivityBurst burst : bursts)
+		{
+			int firstLineNumber = lines.get(burst.getEventIndexes().get(0)).getLineNumber();
+			NetworkActivityLineResultDto burstResult = analyze(firstLineNumber, () -> analysisEngineService.analyze(burst));
+			burst.getEventIndexes().stream().map(lines::get)
+					.forEach(l -> results.add(burstResult.withLineNumber(l.getLineNumber())));
+		}
+		return results;
+	}
+
+	private NetworkActivityLineResultDto analyze(NetworkActivityLineDto line)
+	{
+		return analyze(line.getLineNumber(),
+				() -> analysisEngineService.analyze(line.getUserAnonymizedId(), line.getNetworkActivity()));
+	}
+
+	private NetworkActivityLineResultDto analyze(int lineNumber, Runnable analysis)
+	{
+		try
+		{
+			analysis.run();
+			return NetworkActivityLineResultDto.createOkInstance(lineNumber);
+		}
+		catch (YonaException e)
+		{
+			return NetworkActivityLineResultDto.createErrorInstance(lineNumber, e);
+		}
+		catch (RuntimeException e)
+		{
+			logger.error("Unexpected exception while analyzing line " + lineNumber + " of network activity stream", e);
+			return NetworkActivityLineResultDto.createErrorInstance(lineNumber, e);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.util.UUID;
+
+/**
+ * One line of a network activity stream: the network activity of a single user, along with the line number it was read from.
+ *
+ * @see NetworkActivityIngestionService
+ */
+public class NetworkActivityLineDto
+{
+	private final int lineNumber;
+	private final UUID userAnonymizedId;
+	private final NetworkActivityDto networkActivity;
+
+	public NetworkActivityLineDto(int lineNumber, UUID userAnonymizedId, NetworkActivityDto networkActivity)
+	{
+		this.lineNumber = lineNumber;
+		this.userAnonymizedId = userAnonymizedId;
+		this.networkActivity = networkActivity;
+	}
+
+	public int getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	public UUID getUserAnonymizedId()
+	{
+		return userAnonymizedId;
+	}
+
+	public NetworkActivityDto getNetworkActivity()
+	{
+		return networkActivity;
+	}
+}
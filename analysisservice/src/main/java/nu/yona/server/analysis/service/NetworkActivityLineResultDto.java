@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import nu.yona.server.exceptions.YonaException;
+
+/**
+ * The outcome of analyzing one line of a network activity stream. For failed lines, the code and message are the same as the
+ * single event endpoint returns in its error response.
+ */
+public class NetworkActivityLineResultDto
+{
+	public enum Status
+	{
+		OK, ERROR
+	}
+
+	private final int lineNumber;
+	private final Status status;
+	private final String code;
+	private final String message;
+
+	private NetworkActivityLineResultDto(int lineNumber, Status status, String code, String message)
+	{
+		this.lineNumber = lineNumber;
+		this.status = status;
+		this.code = code;
+		this.message = message;
+	}
+
+	public int getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	public Status getStatus()
+	{
+		return status;
+	}
+
+	@JsonIgnore
+	public boolean isError()
+	{
+		return status == Status.ERROR;
+	}
+
+	@JsonInclude(Include.NON_NULL)
+	public String getCode()
+	{
+		return code;
+	}
+
+	@JsonInclude(Include.NON_NULL)
+	public String getMessage()
+	{
+		return message;
+	}
+
+	/**
+	 * Returns the same result for another line, for lines that were analyzed together.
+	 */
+	public NetworkActivityLineResultDto withLineNumber(int lineNumber)
+	{
+		return new NetworkActivityLineResultDto(lineNumber, status, code, message);
+	}
+
+	public static NetworkActivityLineResultDto createOkInstance(int lineNumber)
+	{
+		return new NetworkActivityLineResultDto(lineNumber, Status.OK, null, null);
+	}
+
+	public static NetworkActivityLineResultDto createErrorInstance(int lineNumber, YonaException exception)
+	{
+		return new NetworkActivityLineResultDto(lineNumber, Status.ERROR, exception.getMessageId(), exception.getMessage());
+	}
+
+	public static NetworkActivityLineResultDto createErrorInstance(int lineNumber, RuntimeException exception)
+	{
+		return new NetworkActivityLineResultDto(lineNumber, Status.ERROR, null, exception.getMessage());
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.rest;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import nu.yona.server.analysis.service.NetworkActivityLineDto;
+import nu.yona.server.analysis.service.NetworkActivityLineResultDto;
+import nu.yona.server.exceptions.AnalysisException;
+
+public class NetworkActivityStreamReaderTests
+{
+	private static final UUID USER_A = UUID.fromString("0f2c3a8e-6b3e-4f43-9d4c-1a2b3c4d5e6f");
+	private static final UUID USER_B = UUID.fromString("7d0c9a51-22f4-4a3e-8f7e-5b6c7d8e9f00");
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	@Test
+	public void testValidLines() throws IOException
+	{
+		NetworkActivityStreamReader reader = read(10, line(USER_A, "http://poker.com/"), line(USER_B, "http://facebook.com/"),
+				"", line(USER_A, "http://poker.com/page"));
+
+		assertThat(reader.getRejectedLines().isEmpty(), equalTo(true));
+		assertThat(reader.getLines().stream().map(NetworkActivityLineDto::getLineNumber).collect(Collectors.toList()),
+				contains(1, 2, 4));
+		assertThat(reader.getLines().stream().map(NetworkActivityLineDto::getUserAnonymizedId).collect(Collectors.toList()),
+				contains(USER_A, USER_B, USER_A));
+		assertThat(reader.getLines().get(2).getNetworkActivity().getUrl(), equalTo("http://poker.com/page"));
+		assertThat(reader.getLines().get(2).getNetworkActivity().getEventTime().isPresent(), equalTo(true));
+	}
+
+	@Test
+	public void testInvalidLinesRejected() throws IOException
+	{
+		NetworkActivityStreamReader reader = read(10, line(USER_A, "http://poker.com/"),
+				"{\"userAnonymizedId\":\"not-a-uuid\",\"categories\":[\"Gambling\"],\"url\":\"http://poker.com/\"}",
+				"{\"categories\":[\"Gambling\"],\"url\":\"http://poker.com/\"}", "[1, 2]", line(USER_B, "http://facebook.com/"));
+
+		assertThat(reader.getLines().stream().map(NetworkActivityLineDto::getLineNumber).collect(Collectors.toList()),
+				contains(1, 5));
+		assertThat(reader.getRejectedLines().stream().map(NetworkActivityLineResultDto::getLineNumber)
+				.collect(Collectors.toList()), contains(2, 3, 4));
+		assertThat(reader.getRejectedLines().get(0).getCode(), equalTo("error.analysis.invalid.network.activity"));
+	}
+
+	@Test
+	public void testMalformedJson() throws IOException
+	{
+		try
+		{
+			read(10, line(USER_A, "http://poker.com/"), "{\"userAnonymizedId\":");
+			fail("Expected an exception");
+		}
+		catch (AnalysisException e)
+		{
+			assertThat(e.getMessageId(), equalTo("error.analysis.invalid.network.activity.stream"));
+		}
+	}
+
+	@Test
+	public void testMoreLinesThanMaximum() throws IOException
+	{
+		try
+		{
+			read(2, line(USER_A, "http://poker.com/"), line(USER_A, "http://poker.com/"), line(USER_A, "http://poker.com/"));
+			fail("Expected an exception");
+		}
+		catch (AnalysisException e)
+		{
+			assertThat(e.getMessageId(), equalTo("error.analysis.network.activity.stream.too.large"));
+		}
+	}
+
+	private NetworkActivityStreamReader read(int maxEventCount, String... lines) throws IOException
+	{
+		NetworkActivityStreamReader reader = new NetworkActivityStreamReader(objectMapper, maxEventCount);
+		reader.read(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+		return reader;
+	}
+
+	private static String line(UUID userAnonymizedId, String url)
+	{
+		return "{\"userAnonymizedId\":\"" + userAnonymizedId + "\",\"categories\":[\"Gambling\"],\"url\":\"" + url
+				+ "\",\"eventTime\":\"2017-03-01T10:15:30.123+0100\"}";
+	}
+}
@@ -18,9 +18,11 @@ import java.util.UUID;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import nu.yona.server.analysis.entities.Activity;
 import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.WeekActivity;
 import nu.yona.server.crypto.pubkey.PublicKeyUtil;
 import nu.yona.server.goals.entities.ActivityCategory;
 import nu.yona.server.goals.entities.BudgetGoal;
@@ -151,4 +153,87 @@ public class DayActivityTests
 		assertThat(d.getSpread().get(81), equalTo(2));
 		assertThat(d.getSpread().get(82), equalTo(0));
 	}
+
+	@Test
+	public void testAggregatesUpdatedOnAddAndEndTimeUpdate()
+	{
+		WeekActivity w = WeekActivity.createInstance(userAnonEntity, goal, testZone,
+				TimeUtil.getStartOfWeek(testZone, getDate(0, 0)).toLocalDate());
+		DayActivity d = createDayActivity();
+		w.addDayActivity(d);
+		d.addActivity(Activity.createInstance(testZone, getDate(19, 55).toLocalDateTime(), getDate(20, 1).toLocalDateTime()));
+		Activity lastActivity = d.getLastActivity();
+		assertThat(d.areAggregatesComputed(), equalTo(true));
+		assertThat(d.getTotalActivityDurationMinutes(), equalTo(6));
+		assertThat(d.isGoalAccomplished(), equalTo(true));
+
+		d.updateActivityEndTime(lastActivity, getDate(21, 1).toLocalDateTime());
+
+		assertThat(d.getTotalActivityDurationMinutes(), equalTo(66));
+		assertThat(d.getSpread().get(80), equalTo(15));
+		assertThat(d.getSpread().get(84), equalTo(1));
+		assertThat(d.isGoalAccomplished(), equalTo(false));
+		assertThat(d.getTotalMinutesBeyondGoal(), equalTo(6));
+		assertThat(ReflectionTestUtils.getField(d, "goalAccomplished"), equalTo(false));
+		assertThat(ReflectionTestUtils.getField(d, "totalMinutesBeyondGoal"), equalTo(6));
+		assertThat(w.getTotalActivityDurationMinutes(), equalTo(66));
+		assertThat(w.getSpread(), equalTo(d.getSpread()));
+	}
+
+	@Test
+	public void testGoalEvaluationStoredOnCreation()
+	{
+		DayActivity d = createDayActivity();
+
+		assertThat(ReflectionTestUtils.getField(d, "goalAccomplished"), equalTo(true));
+		assertThat(ReflectionTestUtils.getField(d, "totalMinutesBeyondGoal"), equalTo(0));
+	}
+
+	@Test
+	public void testGoalEvaluationUpdatedOnGoalChange()
+	{
+		DayActivity d = createDayActivity();
+		d.addActivity(Activity.createInstance(testZone, getDate(19, 0).toLocalDateTime(), getDate(19, 50).toLocalDateTime()));
+		assertThat(d.isGoalAccomplished(), equalTo(true));
+
+		d.setGoal(BudgetGoal.createInstance(TimeUtil.utcNow(), goal.getActivityCategory(), 30));
+
+		assertThat(d.isGoalAccomplished(), equalTo(false));
+		assertThat(d.getTotalMinutesBeyondGoal(), equalTo(20));
+	}
+
+	@Test
+	public void testAggregatesStoredOnFirstUpdateOfLegacyDayActivity()
+	{
+		WeekActivity w = WeekActivity.createInstance(userAnonEntity, goal, testZone,
+				TimeUtil.getStartOfWeek(testZone, getDate(0, 0)).toLocalDate());
+		DayActivity d = createDayActivity();
+		w.addDayActivity(d);
+		makeLegacy(w);
+		makeLegacy(d);
+
+		d.addActivity(Activity.createInstance(testZone, getDate(19, 55).toLocalDateTime(), getDate(20, 1).toLocalDateTime()));
+
+		assertThat(d.areAggregatesComputed(), equalTo(true));
+		assertThat(d.getTotalActivityDurationMinutes(), equalTo(6));
+		assertThat(d.getSpread().get(79), equalTo(5));
+		assertThat(d.getSpread().get(80), equalTo(1));
+		assertThat(ReflectionTestUtils.getField(d, "goalAccomplished"), equalTo(true));
+		assertThat(w.getTotalActivityDurationMinutes(), equalTo(6));
+
+		w.removeAllDayActivities();
+
+		assertThat(w.areAggregatesComputed(), equalTo(true));
+		assertThat(w.getTotalActivityDurationMinutes(), equalTo(0));
+	}
+
+	/**
+	 * Makes the given activity look like one that was created before the introduction of the running aggregates: no spread and
+	 * the aggregates not computed.
+	 */
+	private static void makeLegacy(Object intervalActivity)
+	{
+		ReflectionTestUtils.setField(intervalActivity, "spread", null);
+		ReflectionTestUtils.setField(intervalActivity, "aggregatesComputed", false);
+	}
 }
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class NetworkActivityBurstTests
+{
+	private static final UUID USER_ANONYMIZED_ID = UUID.randomUUID();
+	private static final Duration WINDOW = Duration.ofSeconds(5);
+	private static final ZonedDateTime START = ZonedDateTime.of(2017, 3, 1, 10, 15, 30, 0, ZoneId.of("Europe/Amsterdam"));
+
+	@Test
+	public void testEventsWithinWindow()
+	{
+		List<NetworkActivityBurst> bursts = NetworkActivityBurst.coalesce(USER_ANONYMIZED_ID,
+				Arrays.asList(event("Gambling", 0), event("Gambling", 1200), event("Gambling", 4000), event("Gambling", 5000)),
+				WINDOW);
+
+		assertThat(bursts.size(), equalTo(1));
+		assertThat(bursts.get(0).getEventIndexes(), contains(0, 1, 2, 3));
+		assertThat(bursts.get(0).getNetworkActivity().getEventTime().get(), equalTo(START));
+		assertThat(bursts.get(0).getEndTime(), equalTo(START.plusSeconds(5)));
+	}
+
+	@Test
+	public void testEventBeyondWindow()
+	{
+		List<NetworkActivityBurst> bursts = NetworkActivityBurst.coalesce(USER_ANONYMIZED_ID,
+				Arrays.asList(event("Gambling", 0), event("Gambling", 3000), event("Gambling", 6000), event("Gambling", 7000)),
+				WINDOW);
+
+		assertThat(bursts.size(), equalTo(2));
+		assertThat(bursts.get(0).getEventIndexes(), contains(0, 1));
+		assertThat(bursts.get(1).getEventIndexes(), contains(2, 3));
+		assertThat(bursts.get(1).getEndTime(), equalTo(START.plusSeconds(7)));
+	}
+
+	@Test
+	public void testDifferentCategories()
+	{
+		List<NetworkActivityBurst> bursts = NetworkActivityBurst.coalesce(USER_ANONYMIZED_ID,
+				Arrays.asList(event("Gambling", 0), event("Social", 500), event("Gambling", 1000)), WINDOW);
+
+		assertThat(bursts.size(), equalTo(2));
+		assertThat(bursts.get(0).getEventIndexes(), contains(0, 2));
+		assertThat(bursts.get(1).getEventIndexes(), contains(1));
+	}
+
+	@Test
+	public void testEventBeforeStartOfBurst()
+	{
+		List<NetworkActivityBurst> bursts = NetworkActivityBurst.coalesce(USER_ANONYMIZED_ID,
+				Arrays.asList(event("Gambling", 2000), event("Gambling", 1000)), WINDOW);
+
+		assertThat(bursts.size(), equalTo(2));
+	}
+
+	@Test
+	public void testNoEventTime()
+	{
+		NetworkActivityBurst burst = NetworkActivityBurst.createInstance(USER_ANONYMIZED_ID,
+				new NetworkActivityDto(Collections.singleton("Gambling"), "http://poker.com/", Optional.empty()), START);
+
+		assertThat(burst.getNetworkActivity().getEventTime().get(), equalTo(START));
+		assertThat(burst.getEndTime(), equalTo(START));
+	}
+
+	private static NetworkActivityDto event(String category, long offsetMillis)
+	{
+		return new NetworkActivityDto(Collections.singleton(category), "http://" + category + ".com/",
+				Optional.of(START.plus(Duration.ofMillis(offsetMillis))));
+	}
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.embedded.Compression;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.stereotype.Component;
+
+import nu.yona.server.properties.AppServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+
+/**
+ * Enables gzip compression of the (HAL) JSON responses. Small responses are not compressed, as that costs more than it saves.
+ */
+@Component
+public class CompressionConfigurer implements EmbeddedServletContainerCustomizer
+{
+	private static final String[] COMPRESSED_MIME_TYPES = { "application/json", "application/hal+json", "text/html",
+			"text/plain" };
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Override
+	public void customize(ConfigurableEmbeddedServletContainer container)
+	{
+		AppServiceProperties appServiceProperties = yonaProperties.getAppService();
+		Compression compression = new Compression();
+		compression.setEnabled(appServiceProperties.isCompressionEnabled());
+		compression.setMimeTypes(COMPRESSED_MIME_TYPES);
+		compression.setMinResponseSize(appServiceProperties.getCompressionMinResponseSize());
+		container.setCompression(compression);
+	}
+}
@@ -4,12 +4,15 @@
  *******************************************************************************/
 package nu.yona.server.analysis.rest;
 
+import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -24,11 +27,15 @@ import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.hal.CurieProvider;
 import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import nu.yona.server.analysis.entities.IntervalActivity;
 import nu.yona.server.analysis.entities.WeekActivity;
@@ -36,12 +43,14 @@ import nu.yona.server.analysis.service.ActivityCommentMessageDto;
 import nu.yona.server.analysis.service.ActivityService;
 import nu.yona.server.analysis.service.DayActivityDto;
 import nu.yona.server.analysis.service.DayActivityOverviewDto;
+import nu.yona.server.analysis.service.IntervalActivityDto;
 import nu.yona.server.analysis.service.WeekActivityDto;
 import nu.yona.server.analysis.service.WeekActivityOverviewDto;
 import nu.yona.server.crypto.seckey.CryptoSession;
 import nu.yona.server.messaging.rest.MessageController;
 import nu.yona.server.messaging.rest.MessageController.MessageResourceAssembler;
 import nu.yona.server.messaging.service.MessageDto;
+import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.subscriptions.rest.BuddyController;
 import nu.yona.server.subscriptions.service.GoalIdMapping;
 import nu.yona.server.subscriptions.service.UserService;
@@ -68,6 +77,9 @@ abstract class ActivityControllerBase
 	@Autowired
 	private MessageController messageController;
 
+	@Autowired
+	private YonaProperties yonaProperties;
+
 	protected static final String WEEK_ACTIVITY_OVERVIEWS_URI_FRAGMENT = "/weeks/";
 	protected static final String DAY_OVERVIEWS_URI_FRAGMENT = "/days/";
 	protected static final String WEEK_ACTIVITY_DETAIL_URI_FRAGMENT = "/weeks/{date}/details/{goalId}";
@@ -81,52 +93,133 @@ abstract class ActivityControllerBase
 	protected static final int MESSAGES_DEFAULT_PAGE_SIZE = 4;
 	protected static final String PREV_REL = "prev"; // IANA reserved, so will not be prefixed
 	protected static final String NEXT_REL = "next"; // IANA reserved, so will not be prefixed
+	private static final String WEAK_ETAG_PREFIX = "W/";
 
 	protected HttpEntity<PagedResources<WeekActivityOverviewResource>> getWeekActivityOverviews(Optional<String> password,
-			UUID userId, Pageable pageable, PagedResourcesAssembler<WeekActivityOverviewDto> pagedResourcesAssembler,
+			Optional<String> ifNoneMatch, UUID userId, Pageable pageable,
+			PagedResourcesAssembler<WeekActivityOverviewDto> pagedResourcesAssembler,
 			Supplier<Page<WeekActivityOverviewDto>> activitySupplier, LinkProvider linkProvider)
 	{
 		try (CryptoSession cryptoSession = CryptoSession.start(password, () -> userService.canAccessPrivateData(userId)))
 		{
-			return new ResponseEntity<>(pagedResourcesAssembler.toResource(activitySupplier.get(),
-					new WeekActivityOverviewResourceAssembler(linkProvider)), HttpStatus.OK);
+			Page<WeekActivityOverviewDto> weekActivityOverviews = activitySupplier.get();
+			List<WeekActivityDto> weekActivities = weekActivityOverviews.getContent().stream()
+					.flatMap(o -> o.getWeekActivities().stream()).collect(Collectors.toList());
+			return createCacheableOkResponse(ifNoneMatch, weekActivityOverviews, weekActivities,
+					() -> pagedResourcesAssembler.toResource(weekActivityOverviews,
+							new WeekActivityOverviewResourceAssembler(linkProvider)));
 		}
 	}
 
 	protected HttpEntity<PagedResources<DayActivityOverviewResource>> getDayActivityOverviews(Optional<String> password,
-			UUID userId, Pageable pageable,
+			Optional<String> ifNoneMatch, UUID userId, Pageable pageable,
 			PagedResourcesAssembler<DayActivityOverviewDto<DayActivityDto>> pagedResourcesAssembler,
 			Supplier<Page<DayActivityOverviewDto<DayActivityDto>>> activitySupplier, LinkProvider linkProvider)
 	{
 		try (CryptoSession cryptoSession = CryptoSession.start(password, () -> userService.canAccessPrivateData(userId)))
 		{
-			return new ResponseEntity<>(pagedResourcesAssembler.toResource(activitySupplier.get(),
-					new DayActivityOverviewResourceAssembler(linkProvider)), HttpStatus.OK);
+			Page<DayActivityOverviewDto<DayActivityDto>> dayActivityOverviews = activitySupplier.get();
+			List<DayActivityDto> dayActivities = dayActivityOverviews.getContent().stream()
+					.flatMap(o -> o.getDayActivities().stream()).collect(Collectors.toList());
+			return createCacheableOkResponse(ifNoneMatch, dayActivityOverviews, dayActivities,
+					() -> pagedResourcesAssembler.toResource(dayActivityOverviews,
+							new DayActivityOverviewResourceAssembler(linkProvider)));
 		}
 	}
 
-	protected HttpEntity<WeekActivityResource> getWeekActivityDetail(Optional<String> password, UUID userId, String dateStr,
-			Function<LocalDate, WeekActivityDto> activitySupplier, LinkProvider linkProvider)
+	protected HttpEntity<WeekActivityResource> getWeekActivityDetail(Optional<String> password, Optional<String> ifNoneMatch,
+			UUID userId, String dateStr, Function<LocalDate, WeekActivityDto> activitySupplier, LinkProvider linkProvider)
 	{
 		try (CryptoSession cryptoSession = CryptoSession.start(password, () -> userService.canAccessPrivateData(userId)))
 		{
 			LocalDate date = WeekActivityDto.parseDate(dateStr);
-			return new ResponseEntity<>(
-					new WeekActivityResourceAssembler(linkProvider, true).toResource(activitySupplier.apply(date)),
-					HttpStatus.OK);
+			WeekActivityDto weekActivity = activitySupplier.apply(date);
+			return createCacheableOkResponse(ifNoneMatch, weekActivity.getContentFingerprint(), weekActivity.hasNext(),
+					() -> new WeekActivityResourceAssembler(linkProvider, true).toResource(weekActivity));
 		}
 	}
 
-	protected HttpEntity<DayActivityResource> getDayActivityDetail(Optional<String> password, UUID userId, String dateStr,
-			Function<LocalDate, DayActivityDto> activitySupplier, LinkProvider linkProvider)
+	protected HttpEntity<DayActivityResource> getDayActivityDetail(Optional<String> password, Optional<String> ifNoneMatch,
+			UUID userId, String dateStr, Function<LocalDate, DayActivityDto> activitySupplier, LinkProvider linkProvider)
 	{
 		try (CryptoSession cryptoSession = CryptoSession.start(password, () -> userService.canAccessPrivateData(userId)))
 		{
 			LocalDate date = DayActivityDto.parseDate(dateStr);
-			return new ResponseEntity<>(
-					new DayActivityResourceAssembler(linkProvider, true, true).toResource(activitySupplier.apply(date)),
-					HttpStatus.OK);
+			DayActivityDto dayActivity = activitySupplier.apply(date);
+			return createCacheableOkResponse(ifNoneMatch, dayActivity.getContentFingerprint(), dayActivity.hasNext(),
+					() -> new DayActivityResourceAssembler(linkProvider, true, true).toResource(dayActivity));
+		}
+	}
+
+	private <T> HttpEntity<T> createCacheableOkResponse(Optional<String> ifNoneMatch, Page<?> page,
+			List<? extends IntervalActivityDto> activities, Supplier<T> resourceSupplier)
+	{
+		boolean isPast = !activities.isEmpty() && activities.stream().allMatch(IntervalActivityDto::hasNext);
+		return createCacheableOkResponse(ifNoneMatch, createFingerprint(page, activities), isPast, resourceSupplier);
+	}
+
+	/**
+	 * Creates a response with a weak entity tag and the applicable cache control header. If the client already has the current
+	 * version (If-None-Match header), the resource is not assembled and a "Not Modified" response is returned. The DTOs are
+	 * assembled regardless, as the fingerprint is computed from them. The entity tag is weak because the fingerprint is of the
+	 * content, not of the bytes: compression changes the bytes of the response but not the content, so the entity tag stays
+	 * valid when the response is gzipped.
+	 * 
+	 * @param ifNoneMatch The If-None-Match request header
+	 * @param fingerprint The fingerprint of the content, used as entity tag
+	 * @param isPast Whether the content is about a day or week that is over. Such content hardly changes, so the client is
+	 *            allowed to cache it for a while.
+	 * @param resourceSupplier Supplier of the resource to return if the client doesn't have the current version
+	 * @return The response
+	 */
+	<T> HttpEntity<T> createCacheableOkResponse(Optional<String> ifNoneMatch, String fingerprint, boolean isPast,
+			Supplier<T> resourceSupplier)
+	{
+		HttpHeaders headers = new HttpHeaders();
+		String opaqueTag = "\"" + fingerprint + "\"";
+		headers.setETag(WEAK_ETAG_PREFIX + opaqueTag);
+		headers.setCacheControl(createCacheControl(isPast).getHeaderValue());
+		if (ifNoneMatch.map(inm -> matchesETag(inm, opaqueTag)).orElse(false))
+		{
+			return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
 		}
+		return new ResponseEntity<>(resourceSupplier.get(), headers, HttpStatus.OK);
+	}
+
+	private CacheControl createCacheControl(boolean isPast)
+	{
+		if (isPast)
+		{
+			return CacheControl.maxAge(yonaProperties.getAppService().getPastActivityCacheMaxAge().getSeconds(), TimeUnit.SECONDS)
+					.cachePrivate();
+		}
+		return CacheControl.noCache().cachePrivate();
+	}
+
+	/**
+	 * Compares the entity tags of the If-None-Match header with the weak comparison function of RFC 7232, as required for
+	 * If-None-Match: the weakness indicator is ignored.
+	 */
+	private static boolean matchesETag(String ifNoneMatch, String opaqueTag)
+	{
+		return Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+				.anyMatch(t -> t.equals("*") || stripWeakETagPrefix(t).equals(opaqueTag));
+	}
+
+	private static String stripWeakETagPrefix(String eTag)
+	{
+		return eTag.startsWith(WEAK_ETAG_PREFIX) ? eTag.substring(WEAK_ETAG_PREFIX.length()) : eTag;
+	}
+
+	private static String createFingerprint(Page<?> page, List<? extends IntervalActivityDto> activities)
+	{
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		hasher.putInt(page.getNumber());
+		hasher.putInt(page.getSize());
+		hasher.putLong(page.getTotalElements());
+		activities.stream().map(IntervalActivityDto::getContentFingerprint).sorted()
+				.forEach(f -> hasher.putString(f, StandardCharsets.UTF_8));
+		return hasher.hash().toString();
 	}
 
 	protected HttpEntity<PagedResources<MessageDto>> getActivityDetailMessages(Optional<String> password, UUID userId,
@@ -171,7 +264,7 @@ abstract class ActivityControllerBase
 
 	private UUID determineBuddyId(GoalIdMapping goalIdMapping, ActivityCommentMessageDto message)
 	{
-		return goalIdMapping.getUser().getPrivateData().getBuddies().stream()
+		return goalIdMapping.getBuddies().stream()
 				.filter(b -> b.getUser().getId().equals(message.getSenderUser().get().getId())).map(b -> b.getId()).findAny()
 				.orElseThrow(() -> new IllegalArgumentException(
 						"User with ID " + message.getSenderUser().get().getId() + "is not a buddy"));
@@ -18,6 +18,7 @@ import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -55,11 +56,12 @@ public class BuddyActivityController extends ActivityControllerBase
 	@RequestMapping(value = WEEK_ACTIVITY_OVERVIEWS_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<PagedResources<WeekActivityOverviewResource>> getBuddyWeekActivityOverviews(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PathVariable UUID buddyId, @PageableDefault(size = WEEKS_DEFAULT_PAGE_SIZE) Pageable pageable,
 			PagedResourcesAssembler<WeekActivityOverviewDto> pagedResourcesAssembler)
 	{
-		return getWeekActivityOverviews(password, userId, pageable, pagedResourcesAssembler,
+		return getWeekActivityOverviews(password, ifNoneMatch, userId, pageable, pagedResourcesAssembler,
 				() -> activityService.getBuddyWeekActivityOverviews(buddyId, pageable),
 				new BuddyActivityLinkProvider(userId, buddyId));
 	}
@@ -67,11 +69,12 @@ public class BuddyActivityController extends ActivityControllerBase
 	@RequestMapping(value = DAY_OVERVIEWS_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<PagedResources<DayActivityOverviewResource>> getBuddyDayActivityOverviews(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PathVariable UUID buddyId, @PageableDefault(size = DAYS_DEFAULT_PAGE_SIZE) Pageable pageable,
 			PagedResourcesAssembler<DayActivityOverviewDto<DayActivityDto>> pagedResourcesAssembler)
 	{
-		return getDayActivityOverviews(password, userId, pageable, pagedResourcesAssembler,
+		return getDayActivityOverviews(password, ifNoneMatch, userId, pageable, pagedResourcesAssembler,
 				() -> activityService.getBuddyDayActivityOverviews(buddyId, pageable),
 				new BuddyActivityLinkProvider(userId, buddyId));
 	}
@@ -79,11 +82,12 @@ public class BuddyActivityController extends ActivityControllerBase
 	@RequestMapping(value = WEEK_ACTIVITY_DETAIL_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<WeekActivityResource> getBuddyWeekActivityDetail(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PathVariable UUID buddyId, @PathVariable(value = DATE_PATH_VARIABLE) String dateStr,
 			@PathVariable(value = GOAL_PATH_VARIABLE) UUID goalId)
 	{
-		return getWeekActivityDetail(password, userId, dateStr,
+		return getWeekActivityDetail(password, ifNoneMatch, userId, dateStr,
 				date -> activityService.getBuddyWeekActivityDetail(buddyId, date, goalId),
 				new BuddyActivityLinkProvider(userId, buddyId));
 	}
@@ -122,11 +126,12 @@ public class BuddyActivityController extends ActivityControllerBase
 	@RequestMapping(value = DAY_ACTIVITY_DETAIL_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<DayActivityResource> getBuddyDayActivityDetail(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PathVariable UUID buddyId, @PathVariable(value = DATE_PATH_VARIABLE) String dateStr,
 			@PathVariable(value = GOAL_PATH_VARIABLE) UUID goalId)
 	{
-		return getDayActivityDetail(password, userId, dateStr,
+		return getDayActivityDetail(password, ifNoneMatch, userId, dateStr,
 				date -> activityService.getBuddyDayActivityDetail(buddyId, date, goalId),
 				new BuddyActivityLinkProvider(userId, buddyId));
 	}
@@ -173,20 +178,20 @@ public class BuddyActivityController extends ActivityControllerBase
 	public static ControllerLinkBuilder getBuddyDayActivityOverviewsLinkBuilder(UUID userId, UUID buddyId)
 	{
 		BuddyActivityController methodOn = methodOn(BuddyActivityController.class);
-		return linkTo(methodOn.getBuddyDayActivityOverviews(null, userId, buddyId, null, null));
+		return linkTo(methodOn.getBuddyDayActivityOverviews(null, null, userId, buddyId, null, null));
 	}
 
 	public static ControllerLinkBuilder getBuddyWeekActivityOverviewsLinkBuilder(UUID userId, UUID buddyId)
 	{
 		BuddyActivityController methodOn = methodOn(BuddyActivityController.class);
-		return linkTo(methodOn.getBuddyWeekActivityOverviews(null, userId, buddyId, null, null));
+		return linkTo(methodOn.getBuddyWeekActivityOverviews(null, null, userId, buddyId, null, null));
 	}
 
 	public static ControllerLinkBuilder getBuddyDayActivityDetailLinkBuilder(UUID userId, UUID buddyId, String dateStr,
 			UUID goalId)
 	{
 		BuddyActivityController methodOn = methodOn(BuddyActivityController.class);
-		return linkTo(methodOn.getBuddyDayActivityDetail(null, userId, buddyId, dateStr, goalId));
+		return linkTo(methodOn.getBuddyDayActivityDetail(null, null, userId, buddyId, dateStr, goalId));
 	}
 
 	private static final class BuddyActivityLinkProvider implements LinkProvider
@@ -210,7 +215,7 @@ public class BuddyActivityController extends ActivityControllerBase
 		public ControllerLinkBuilder getWeekActivityDetailLinkBuilder(String dateStr, UUID goalId)
 		{
 			BuddyActivityController methodOn = methodOn(BuddyActivityController.class);
-			return linkTo(methodOn.getBuddyWeekActivityDetail(null, userId, buddyId, dateStr, goalId));
+			return linkTo(methodOn.getBuddyWeekActivityDetail(null, null, userId, buddyId, dateStr, goalId));
 		}
 
 		@Override
@@ -22,6 +22,7 @@ import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -58,32 +59,35 @@ public class UserActivityController extends ActivityControllerBase
 	@RequestMapping(value = WEEK_ACTIVITY_OVERVIEWS_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<PagedResources<WeekActivityOverviewResource>> getUserWeekActivityOverviews(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PageableDefault(size = WEEKS_DEFAULT_PAGE_SIZE) Pageable pageable,
 			PagedResourcesAssembler<WeekActivityOverviewDto> pagedResourcesAssembler)
 	{
-		return getWeekActivityOverviews(password, userId, pageable, pagedResourcesAssembler,
+		return getWeekActivityOverviews(password, ifNoneMatch, userId, pageable, pagedResourcesAssembler,
 				() -> activityService.getUserWeekActivityOverviews(userId, pageable), new UserActivityLinkProvider(userId));
 	}
 
 	@RequestMapping(value = DAY_OVERVIEWS_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<PagedResources<DayActivityOverviewResource>> getUserDayActivityOverviews(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PageableDefault(size = DAYS_DEFAULT_PAGE_SIZE) Pageable pageable,
 			PagedResourcesAssembler<DayActivityOverviewDto<DayActivityDto>> pagedResourcesAssembler)
 	{
-		return getDayActivityOverviews(password, userId, pageable, pagedResourcesAssembler,
+		return getDayActivityOverviews(password, ifNoneMatch, userId, pageable, pagedResourcesAssembler,
 				() -> activityService.getUserDayActivityOverviews(userId, pageable), new UserActivityLinkProvider(userId));
 	}
 
 	@RequestMapping(value = WEEK_ACTIVITY_DETAIL_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<WeekActivityResource> getUserWeekActivityDetail(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PathVariable(value = DATE_PATH_VARIABLE) String dateStr, @PathVariable(value = GOAL_PATH_VARIABLE) UUID goalId)
 	{
-		return getWeekActivityDetail(password, userId, dateStr,
+		return getWeekActivityDetail(password, ifNoneMatch, userId, dateStr,
 				date -> activityService.getUserWeekActivityDetail(userId, date, goalId), new UserActivityLinkProvider(userId));
 	}
 
@@ -104,10 +108,11 @@ public class UserActivityController extends ActivityControllerBase
 	@RequestMapping(value = DAY_ACTIVITY_DETAIL_URI_FRAGMENT, method = RequestMethod.GET)
 	@ResponseBody
 	public HttpEntity<DayActivityResource> getUserDayActivityDetail(
-			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password, @PathVariable UUID userId,
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH) Optional<String> ifNoneMatch, @PathVariable UUID userId,
 			@PathVariable(value = DATE_PATH_VARIABLE) String dateStr, @PathVariable(value = GOAL_PATH_VARIABLE) UUID goalId)
 	{
-		return getDayActivityDetail(password, userId, dateStr,
+		return getDayActivityDetail(password, ifNoneMatch, userId, dateStr,
 				date -> activityService.getUserDayActivityDetail(userId, date, goalId), new UserActivityLinkProvider(userId));
 	}
 
@@ -167,7 +172,7 @@ public class UserActivityController extends ActivityControllerBase
 	public static ControllerLinkBuilder getUserDayActivityOverviewsLinkBuilder(UUID userId)
 	{
 		UserActivityController methodOn = methodOn(UserActivityController.class);
-		return linkTo(methodOn.getUserDayActivityOverviews(null, userId, null, null));
+		return linkTo(methodOn.getUserDayActivityOverviews(null, null, userId, null, null));
 	}
 
 	public static ControllerLinkBuilder getDayActivityOverviewsWithBuddiesLinkBuilder(UUID userId)
@@ -179,13 +184,13 @@ public class UserActivityController extends ActivityControllerBase
 	public static ControllerLinkBuilder getUserWeekActivityOverviewsLinkBuilder(UUID userId)
 	{
 		UserActivityController methodOn = methodOn(UserActivityController.class);
-		return linkTo(methodOn.getUserWeekActivityOverviews(null, userId, null, null));
+		return linkTo(methodOn.getUserWeekActivityOverviews(null, null, userId, null, null));
 	}
 
 	public static ControllerLinkBuilder getUserDayActivityDetailLinkBuilder(UUID userId, String dateStr, UUID goalId)
 	{
 		UserActivityController methodOn = methodOn(UserActivityController.class);
-		return linkTo(methodOn.getUserDayActivityDetail(null, userId, dateStr, goalId));
+		return linkTo(methodOn.getUserDayActivityDetail(null, null, userId, dateStr, goalId));
 	}
 
 	static final class UserActivityLinkProvider implements LinkProvider
@@ -207,7 +212,7 @@ public class UserActivityController extends ActivityControllerBase
 		public ControllerLinkBuilder getWeekActivityDetailLinkBuilder(String dateStr, UUID goalId)
 		{
 			UserActivityController methodOn = methodOn(UserActivityController.class);
-			return linkTo(methodOn.getUserWeekActivityDetail(null, userId, dateStr, goalId));
+			return linkTo(methodOn.getUserWeekActivityDetail(null, null, userId, dateStr, goalId));
 		}
 
 		@Override
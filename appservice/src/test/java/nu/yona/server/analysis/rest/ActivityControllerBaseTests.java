@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.rest;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import nu.yona.server.properties.YonaProperties;
+
+public class ActivityControllerBaseTests
+{
+	private static final String FINGERPRINT = "0123456789abcdef";
+	private static final String RESOURCE = "resource";
+
+	private final YonaProperties yonaProperties = new YonaProperties();
+	private final ActivityControllerBase controller = new UserActivityController();
+	private final AtomicInteger resourceAssemblyCount = new AtomicInteger();
+
+	@Before
+	public void setUp()
+	{
+		yonaProperties.getAppService().setPastActivityCacheMaxAge("PT1H");
+		ReflectionTestUtils.setField(controller, "yonaProperties", yonaProperties);
+	}
+
+	@Test
+	public void testETagIsWeakFingerprint()
+	{
+		ResponseEntity<String> response = createResponse(Optional.empty(), false);
+
+		assertThat(response.getHeaders().getETag(), equalTo("W/\"" + FINGERPRINT + "\""));
+	}
+
+	@Test
+	public void testNoIfNoneMatchReturnsOk()
+	{
+		ResponseEntity<String> response = createResponse(Optional.empty(), false);
+
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody(), equalTo(RESOURCE));
+		assertThat(resourceAssemblyCount.get(), equalTo(1));
+	}
+
+	@Test
+	public void testMatchingIfNoneMatchReturnsNotModified()
+	{
+		ResponseEntity<String> response = createResponse(Optional.of("W/\"" + FINGERPRINT + "\""), false);
+
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+		assertThat(response.getBody(), nullValue());
+		assertThat(response.getHeaders().getETag(), equalTo("W/\"" + FINGERPRINT + "\""));
+		assertThat(resourceAssemblyCount.get(), equalTo(0));
+	}
+
+	@Test
+	public void testMatchingStrongIfNoneMatchReturnsNotModified()
+	{
+		ResponseEntity<String> response = createResponse(Optional.of("\"" + FINGERPRINT + "\""), false);
+
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+	}
+
+	@Test
+	public void testOneOfMultipleIfNoneMatchReturnsNotModified()
+	{
+		ResponseEntity<String> response = createResponse(Optional.of("W/\"stale\", W/\"" + FINGERPRINT + "\""), false);
+
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+	}
+
+	@Test
+	public void testWildcardIfNoneMatchReturnsNotModified()
+	{
+		ResponseEntity<String> response = createResponse(Optional.of("*"), false);
+
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+	}
+
+	@Test
+	public void testStaleIfNoneMatchReturnsOk()
+	{
+		ResponseEntity<String> response = createResponse(Optional.of("W/\"fedcba9876543210\""), false);
+
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody(), equalTo(RESOURCE));
+		assertThat(response.getHeaders().getETag(), equalTo("W/\"" + FINGERPRINT + "\""));
+	}
+
+	@Test
+	public void testCurrentActivityNotCachedWithoutRevalidation()
+	{
+		ResponseEntity<String> response = createResponse(Optional.empty(), false);
+
+		assertThat(response.getHeaders().getCacheControl(), equalTo("no-cache, private"));
+	}
+
+	@Test
+	public void testPastActivityCachedForConfiguredMaxAge()
+	{
+		ResponseEntity<String> response = createResponse(Optional.empty(), true);
+
+		assertThat(response.getHeaders().getCacheControl(), equalTo("max-age=3600, private"));
+	}
+
+	@Test
+	public void testNotModifiedResponseHasCacheControl()
+	{
+		ResponseEntity<String> response = createResponse(Optional.of("W/\"" + FINGERPRINT + "\""), true);
+
+		assertThat(response.getHeaders().getCacheControl(), equalTo("max-age=3600, private"));
+	}
+
+	private ResponseEntity<String> createResponse(Optional<String> ifNoneMatch, boolean isPast)
+	{
+		HttpEntity<String> response = controller.createCacheableOkResponse(ifNoneMatch, FINGERPRINT, isPast, () -> {
+			resourceAssemblyCount.incrementAndGet();
+			return RESOURCE;
+		});
+		return (ResponseEntity<String>) response;
+	}
+}
@@ -1,19 +1,25 @@
 /*******************************************************************************
- * Copyright (c) 2015, 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import nu.yona.server.properties.BatchServiceProperties;
 import nu.yona.server.properties.PropertyInitializer;
+import nu.yona.server.properties.YonaProperties;
 
 @EnableCaching
 @EnableBatchProcessing
@@ -21,6 +27,9 @@ import nu.yona.server.properties.PropertyInitializer;
 @SpringBootApplication(scanBasePackages = { "nu.yona.server" })
 public class BatchServiceApplication
 {
+	@Autowired
+	private YonaProperties yonaProperties;
+
 	public static void main(String[] args)
 	{
 		PropertyInitializer.initializePropertiesFromEnvironment();
@@ -30,6 +39,26 @@ public class BatchServiceApplication
 	@Bean
 	public TaskScheduler taskScheduler()
 	{
-		return new ConcurrentTaskScheduler(); // single threaded by default
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(yonaProperties.getBatchService().getSchedulerPoolSize());
+		scheduler.setThreadNamePrefix("batch-scheduler-");
+		return scheduler;
+	}
+
+	/**
+	 * Executor for the jobs that are triggered on request. The jobs run on a bounded pool. When the queue is full, the job is run
+	 * on the thread that launches it, so requests are delayed rather than lost.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor batchJobTaskExecutor()
+	{
+		BatchServiceProperties batchServiceProperties = yonaProperties.getBatchService();
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(batchServiceProperties.getJobLauncherPoolSize());
+		executor.setMaxPoolSize(batchServiceProperties.getJobLauncherPoolSize());
+		executor.setQueueCapacity(batchServiceProperties.getJobLauncherQueueCapacity());
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.setThreadNamePrefix("batch-job-");
+		return executor;
 	}
 }
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Type;
+
+import nu.yona.server.entities.EntityWithUuid;
+
+/**
+ * A task that is to be executed by the batch service at or after the due time. The tasks are stored in the database, so they
+ * survive a restart and can be executed by any of the batch service instances. An instance claims a task by setting the claim
+ * token and claim expiry time. If the instance does not complete the task before the claim expires, another instance claims it
+ * again. So the tasks are executed at least once. Every claim increments the number of attempts, so a task that keeps failing can
+ * be given up on.
+ */
+@Entity
+@Table(name = "SCHEDULED_TASKS")
+public class ScheduledTask extends EntityWithUuid
+{
+	public enum TaskType
+	{
+		PIN_RESET_CONFIRMATION_CODE, ACTIVITY_PURGE
+	}
+
+	@Enumerated(EnumType.STRING)
+	private TaskType taskType;
+
+	private String payload;
+
+	private LocalDateTime dueTime;
+
+	@Type(type = "uuid-char")
+	private UUID claimToken;
+
+	private LocalDateTime claimExpiryTime;
+
+	private int attempts;
+
+	// Default constructor is required for JPA
+	public ScheduledTask()
+	{
+		super(null);
+	}
+
+	private ScheduledTask(UUID id, TaskType taskType, String payload, LocalDateTime dueTime)
+	{
+		super(id);
+		this.taskType = taskType;
+		this.payload = payload;
+		this.dueTime = dueTime;
+	}
+
+	public TaskType getTaskType()
+	{
+		return taskType;
+	}
+
+	public String getPayload()
+	{
+		return payload;
+	}
+
+	public LocalDateTime getDueTime()
+	{
+		return dueTime;
+	}
+
+	public UUID getClaimToken()
+	{
+		return claimToken;
+	}
+
+	public LocalDateTime getClaimExpiryTime()
+	{
+		return claimExpiryTime;
+	}
+
+	public int getAttempts()
+	{
+		return attempts;
+	}
+
+	public static ScheduledTask createInstance(TaskType taskType, String payload, LocalDateTime dueTime)
+	{
+		return createInstance(UUID.randomUUID(), taskType, payload, dueTime);
+	}
+
+	public static ScheduledTask createInstance(UUID id, TaskType taskType, String payload, LocalDateTime dueTime)
+	{
+		return new ScheduledTask(id, taskType, payload, dueTime);
+	}
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.entities;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ScheduledTaskRepository extends CrudRepository<ScheduledTask, UUID>
+{
+	/*
+	 * MariaDB 10.1 does not support SELECT ... FOR UPDATE SKIP LOCKED, so the due tasks are claimed through a single update
+	 * statement instead. That statement is atomic, so concurrent instances never claim the same task. JPQL does not support order
+	 * by and limit on an update, hence the native query.
+	 */
+	@Modifying
+	@Query(value = "update scheduled_tasks set claim_token = :claimToken, claim_expiry_time = :claimExpiryTime,"
+			+ " attempts = attempts + 1 where due_time <= :now and (claim_token is null or claim_expiry_time < :now)"
+			+ " order by due_time limit :maxCount", nativeQuery = true)
+	int claimDueTasks(@Param("claimToken") String claimToken, @Param("claimExpiryTime") LocalDateTime claimExpiryTime,
+			@Param("now") LocalDateTime now, @Param("maxCount") int maxCount);
+
+	@Query("select t from ScheduledTask t where t.claimToken = :claimToken")
+	List<ScheduledTask> findByClaimToken(@Param("claimToken") UUID claimToken);
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.jobs;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import nu.yona.server.analysis.entities.Activity;
+import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.WeekActivity;
+import nu.yona.server.analysis.entities.WeekActivityRepository;
+import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.messaging.service.MessageService;
+import nu.yona.server.properties.BatchServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.TimeUtil;
+
+/**
+ * Deletes the activities that are older than the activity memory (yona.analysisservice.activityMemory). The activities are
+ * deleted per week, so the week aggregates never cover a partially deleted week. Every execution of the tasklet deletes one
+ * chunk of week activities in its own transaction, including their day activities, the activities and the messages that refer
+ * to these. Between the chunks, the job pauses to limit the load on the database. In dry run mode, the job only logs what
+ * would be purged.
+ */
+@Component
+public class ActivityPurgeBatchJob
+{
+	private static final Logger logger = LoggerFactory.getLogger(ActivityPurgeBatchJob.class);
+
+	private static final String PURGED_WEEK_ACTIVITIES_COUNTER = "counter.batch.activityPurge.weekActivities";
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private WeekActivityRepository weekActivityRepository;
+
+	@Autowired
+	private DayActivityRepository dayActivityRepository;
+
+	@Autowired
+	private MessageService messageService;
+
+	// The counter service can only count by one, while a chunk purges many week activities at once
+	@Autowired
+	private CounterBuffers counterBuffers;
+
+	@Autowired
+	private JobBuilderFactory jobBuilderFactory;
+
+	@Autowired
+	private StepBuilderFactory stepBuilderFactory;
+
+	@Bean
+	public Step purgeExpiredActivitiesStep()
+	{
+		return stepBuilderFactory.get("purgeExpiredActivitiesStep").tasklet(new ActivityPurgeTasklet()).build();
+	}
+
+	@Bean("activityPurgeJob")
+	public Job activityPurgeJob()
+	{
+		return jobBuilderFactory.get("activityPurgeJob").incrementer(new RunIdIncrementer()).flow(purgeExpiredActivitiesStep())
+				.end().build();
+	}
+
+	class ActivityPurgeTasklet implements Tasklet
+	{
+		@Override
+		public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext)
+		{
+			BatchServiceProperties batchServiceProperties = yonaProperties.getBatchService();
+			StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+			if (stepExecution.getWriteCount() > 0)
+			{
+				// Pause before starting the next chunk, so no locks are held while pausing
+				pause(batchServiceProperties);
+			}
+			LocalDate weekStartDateBefore = determineWeekStartDateBefore();
+			if (batchServiceProperties.isActivityPurgeDryRun())
+			{
+				logger.info("Dry run: {} week activities with {} day activities started before {} would be purged",
+						weekActivityRepository.countStartedBefore(weekStartDateBefore),
+						dayActivityRepository.countInWeeksStartedBefore(weekStartDateBefore), weekStartDateBefore);
+				return RepeatStatus.FINISHED;
+			}
+
+			List<WeekActivity> weekActivities = weekActivityRepository.findAllStartedBefore(weekStartDateBefore,
+					new PageRequest(0, batchServiceProperties.getActivityPurgeChunkSize()));
+			if (weekActivities.isEmpty())
+			{
+				logger.info("Activity purge completed, {} week activities purged", stepExecution.getWriteCount());
+				return RepeatStatus.FINISHED;
+			}
+
+			purge(weekActivities);
+			contribution.incrementWriteCount(weekActivities.size());
+			counterBuffers.increment(PURGED_WEEK_ACTIVITIES_COUNTER, weekActivities.size());
+			logger.info("Purged {} week activities, {} in total in this run", weekActivities.size(),
+					stepExecution.getWriteCount() + weekActivities.size());
+			return RepeatStatus.CONTINUABLE;
+		}
+
+		private LocalDate determineWeekStartDateBefore()
+		{
+			LocalDate oldestRetainedDate = TimeUtil.utcNow().toLocalDate()
+					.minusDays(yonaProperties.getAnalysisService().getActivityMemory().toDays());
+			// A week is purged when all its days are beyond the activity memory
+			return oldestRetainedDate.minusDays(6);
+		}
+
+		private void purge(List<WeekActivity> weekActivities)
+		{
+			List<DayActivity> dayActivities = weekActivities.stream().flatMap(wa -> wa.getDayActivities().stream())
+					.collect(Collectors.toList());
+			List<Activity> activities = dayActivities.stream().flatMap(da -> da.getActivities().stream())
+					.collect(Collectors.toList());
+
+			// Delete in dependency order: the messages refer to the activities, the activities to the day activities, which in
+			// turn refer to the week activities. Deleting the week activities cascades to the day activities and activities.
+			messageService.deleteGoalConflictMessagesForActivities(activities);
+			List<IntervalActivity> intervalActivities = new ArrayList<>(dayActivities);
+			intervalActivities.addAll(weekActivities);
+			messageService.deleteMessagesForIntervalActivities(intervalActivities);
+			weekActivityRepository.delete(weekActivities);
+		}
+
+		private void pause(BatchServiceProperties batchServiceProperties)
+		{
+			try
+			{
+				Thread.sleep(batchServiceProperties.getActivityPurgeChunkPause().toMillis());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw YonaException.unexpected(e);
+			}
+		}
+	}
+}
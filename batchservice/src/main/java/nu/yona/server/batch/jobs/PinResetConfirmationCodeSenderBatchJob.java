@@ -1,12 +1,15 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.batch.jobs;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -37,7 +40,19 @@ import nu.yona.server.subscriptions.service.UserService;
 @Component
 public class PinResetConfirmationCodeSenderBatchJob
 {
-	private static final int CHUNK_SIZE = 10; // This is actually nonsense, as the ID is unique
+	private static final int CHUNK_SIZE = 10;
+
+	/**
+	 * Separator of the user IDs in the job parameter. A job processes either a single user or a micro-batch of users that
+	 * requested a PIN reset around the same time, with the same locale.
+	 */
+	public static final String USER_ID_SEPARATOR = ",";
+
+	/**
+	 * The string values of job parameters are limited to 250 characters (see BATCH_JOB_EXECUTION_PARAMS), which fits six user
+	 * IDs including the separators.
+	 */
+	public static final int MAX_USERS_PER_JOB = 6;
 
 	private static final Logger logger = LoggerFactory.getLogger(PinResetConfirmationCodeSenderBatchJob.class);
 
@@ -64,15 +79,15 @@ public class PinResetConfirmationCodeSenderBatchJob
 
 	@Bean(destroyMethod = "")
 	@StepScope
-	public JpaPagingItemReader<User> reader(@Value("#{jobParameters[userId]}") String userId)
+	public JpaPagingItemReader<User> reader(@Value("#{jobParameters[userIds]}") String userIds)
 	{
 		try
 		{
-			String jpqlQuery = "SELECT u FROM User u WHERE u.id = :userId";
+			String jpqlQuery = "SELECT u FROM User u WHERE u.id IN :userIds ORDER BY u.id";
 
 			JpaPagingItemReader<User> reader = new JpaPagingItemReader<>();
 			reader.setQueryString(jpqlQuery);
-			reader.setParameterValues(Collections.singletonMap("userId", UUID.fromString(userId)));
+			reader.setParameterValues(Collections.singletonMap("userIds", parseUserIds(userIds)));
 			reader.setEntityManagerFactory(entityManager.getEntityManagerFactory());
 			reader.setPageSize(CHUNK_SIZE);
 			reader.afterPropertiesSet();
@@ -86,6 +101,11 @@ public class PinResetConfirmationCodeSenderBatchJob
 		}
 	}
 
+	private static List<UUID> parseUserIds(String userIds)
+	{
+		return Arrays.stream(userIds.split(USER_ID_SEPARATOR)).map(UUID::fromString).collect(Collectors.toList());
+	}
+
 	@Bean
 	@StepScope
 	public ItemProcessor<User, User> processor(@Value("#{jobParameters[locale]}") String localeString)
@@ -1,27 +1,45 @@
 package nu.yona.server.batch.service;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.JobParametersInvalidException;
-import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
 import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
-import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.repository.JobRestartException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
 import nu.yona.server.batch.client.PinResetConfirmationCodeSendRequestDto;
+import nu.yona.server.batch.entities.ScheduledTask;
+import nu.yona.server.batch.entities.ScheduledTask.TaskType;
+import nu.yona.server.batch.jobs.PinResetConfirmationCodeSenderBatchJob;
 import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.properties.BatchServiceProperties;
+import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.util.TimeUtil;
 
 @Service
@@ -30,35 +48,110 @@ public class BatchTaskService
 	private static final Logger logger = LoggerFactory.getLogger(BatchTaskService.class);
 
 	@Autowired
-	private TaskScheduler scheduler;
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	@Qualifier("batchJobTaskExecutor")
+	private ThreadPoolTaskExecutor batchJobTaskExecutor;
+
+	@Autowired
+	private YonaProperties yonaProperties;
 
 	@Autowired
-	private JobRepository jobRepository;
+	private ScheduledTaskService scheduledTaskService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
 
 	@Autowired
 	@Qualifier("pinResetConfirmationCodeSenderJob")
 	private Job pinResetConfirmationCodeSenderJob;
 
+	@Autowired
+	@Qualifier("activityPurgeJob")
+	private Job activityPurgeJob;
+
 	public void requestPinResetConfirmationCode(PinResetConfirmationCodeSendRequestDto request)
 	{
 		logger.info("Received request to generate PIN reset confirmation code for user with ID {} at {}", request.getUserId(),
 				request.getExecutionTime());
-		scheduler.schedule(() -> generateAndSendPinResetConfirmationCode(request.getUserId(), request.getLocaleString()),
-				TimeUtil.toDate(request.getExecutionTime()));
+		scheduledTaskService.scheduleTask(TaskType.PIN_RESET_CONFIRMATION_CODE, toJson(request), request.getExecutionTime());
 	}
 
-	private void generateAndSendPinResetConfirmationCode(UUID userId, String localeString)
+	/**
+	 * Claims the due tasks and runs the jobs for them on the batch job executor. A task is deleted when its job completed. If the
+	 * job fails or the instance stops, the task is claimed again after the claim timeout, until the maximum number of attempts is
+	 * reached. The poll interval is an ISO-8601 duration, so it is converted to milliseconds for the scheduler.
+	 */
+	@Scheduled(fixedDelayString = "#{T(java.time.Duration).parse('${yona.batchservice.scheduledTaskPollInterval}').toMillis()}")
+	public void dispatchDueTasks()
 	{
 		try
 		{
-			logger.info("Triggering generation of PIN reset confirmation code for user with ID {}", userId);
-			SimpleJobLauncher launcher = new SimpleJobLauncher();
-			launcher.setJobRepository(jobRepository);
-			launcher.setTaskExecutor(new SimpleAsyncTaskExecutor());
-
-			JobParameters jobParameters = new JobParametersBuilder().addString("userId", userId.toString())
-					.addString("locale", localeString).addDate("uniqueInstanceId", new Date()).toJobParameters();
-			launcher.run(pinResetConfirmationCodeSenderJob, jobParameters);
+			BatchServiceProperties batchServiceProperties = yonaProperties.getBatchService();
+			List<ScheduledTask> tasks = scheduledTaskService.claimDueTasks(batchServiceProperties.getScheduledTaskBatchSize(),
+					batchServiceProperties.getScheduledTaskClaimTimeout(), batchServiceProperties.getScheduledTaskMaxAttempts());
+			if (tasks.isEmpty())
+			{
+				return;
+			}
+			Map<TaskType, List<ScheduledTask>> tasksByType = tasks.stream()
+					.collect(Collectors.groupingBy(ScheduledTask::getTaskType));
+			List<ScheduledTask> pinResetTasks = tasksByType.getOrDefault(TaskType.PIN_RESET_CONFIRMATION_CODE,
+					Collections.emptyList());
+			if (batchServiceProperties.isPinResetMicroBatchingEnabled())
+			{
+				dispatchPinResetTasksInMicroBatches(pinResetTasks);
+			}
+			else
+			{
+				pinResetTasks.forEach(t -> dispatchPinResetTasks(Collections.singletonList(t)));
+			}
+			tasksByType.getOrDefault(TaskType.ACTIVITY_PURGE, Collections.emptyList()).forEach(this::dispatchActivityPurgeTask);
+		}
+		catch (RuntimeException e)
+		{
+			// Don't let the exception cancel the periodic execution
+			logger.error("Unexpected exception while dispatching scheduled tasks", e);
+		}
+	}
+
+	/**
+	 * Runs one job per locale (and per {@link PinResetConfirmationCodeSenderBatchJob#MAX_USERS_PER_JOB} users) for the claimed
+	 * tasks, so a burst of PIN reset requests does not result in one job execution per user.
+	 */
+	private void dispatchPinResetTasksInMicroBatches(List<ScheduledTask> tasks)
+	{
+		Map<String, List<ScheduledTask>> tasksByLocale = tasks.stream()
+				.collect(Collectors.groupingBy(t -> toPinResetRequest(t).getLocaleString()));
+		tasksByLocale.values().forEach(
+				t -> Lists.partition(t, PinResetConfirmationCodeSenderBatchJob.MAX_USERS_PER_JOB).forEach(this::dispatchPinResetTasks));
+	}
+
+	private void dispatchPinResetTasks(List<ScheduledTask> tasks)
+	{
+		batchJobTaskExecutor.execute(() -> {
+			if (generateAndSendPinResetConfirmationCodes(tasks.stream().map(this::toPinResetRequest).collect(Collectors.toList())))
+			{
+				scheduledTaskService.completeTasks(tasks);
+			}
+		});
+	}
+
+	private boolean generateAndSendPinResetConfirmationCodes(List<PinResetConfirmationCodeSendRequestDto> requests)
+	{
+		try
+		{
+			List<UUID> userIds = requests.stream().map(PinResetConfirmationCodeSendRequestDto::getUserId)
+					.collect(Collectors.toList());
+			logger.info("Triggering generation of PIN reset confirmation code for users with IDs {}", userIds);
+			String userIdsString = userIds.stream().map(UUID::toString)
+					.collect(Collectors.joining(PinResetConfirmationCodeSenderBatchJob.USER_ID_SEPARATOR));
+			JobParameters jobParameters = new JobParametersBuilder().addString("userIds", userIdsString)
+					.addString("locale", requests.get(0).getLocaleString()).addDate("uniqueInstanceId", new Date())
+					.toJobParameters();
+			JobExecution jobExecution = jobLauncher.run(pinResetConfirmationCodeSenderJob, jobParameters);
+			return jobExecution.getStatus() == BatchStatus.COMPLETED;
 		}
 		catch (JobExecutionAlreadyRunningException | JobRestartException | JobInstanceAlreadyCompleteException
 				| JobParametersInvalidException e)
@@ -67,4 +160,92 @@ public class BatchTaskService
 			throw YonaException.unexpected(e);
 		}
 	}
+
+	private String toJson(PinResetConfirmationCodeSendRequestDto request)
+	{
+		try
+		{
+			return objectMapper.writeValueAsString(request);
+		}
+		catch (JsonProcessingException e)
+		{
+			throw YonaException.unexpected(e);
+		}
+	}
+
+	private PinResetConfirmationCodeSendRequestDto toPinResetRequest(ScheduledTask task)
+	{
+		try
+		{
+			return objectMapper.readValue(task.getPayload(), PinResetConfirmationCodeSendRequestDto.class);
+		}
+		catch (IOException e)
+		{
+			throw YonaException.unexpected(e);
+		}
+	}
+
+	/**
+	 * The cron schedule fires on every batch service instance, so rather than running the purge, this schedules a task for it.
+	 * The task is keyed on the scheduled time, so only the first instance schedules it and only one instance claims and runs
+	 * it.
+	 */
+	@Scheduled(cron = "${yona.batchservice.activityPurgeCron}")
+	public void scheduleActivityPurge()
+	{
+		LocalDateTime scheduledTime = TimeUtil.utcNow().truncatedTo(ChronoUnit.MINUTES);
+		try
+		{
+			if (scheduledTaskService.scheduleUniqueTask(TaskType.ACTIVITY_PURGE, scheduledTime.toString(), scheduledTime))
+			{
+				logger.info("Scheduled purge of expired activities at {}", scheduledTime);
+				return;
+			}
+		}
+		catch (DataIntegrityViolationException e)
+		{
+			// Another instance scheduled it at the same time
+		}
+		logger.info("Purge of expired activities at {} was already scheduled by another instance", scheduledTime);
+	}
+
+	private void dispatchActivityPurgeTask(ScheduledTask task)
+	{
+		batchJobTaskExecutor.execute(() -> {
+			if (purgeExpiredActivities(task.getPayload()))
+			{
+				scheduledTaskService.completeTasks(Collections.singletonList(task));
+			}
+		});
+	}
+
+	/**
+	 * Runs the purge job. The scheduled time identifies the job instance, so if the purge takes longer than the claim timeout and
+	 * another instance claims the task again, the job repository refuses to run it a second time.
+	 */
+	private boolean purgeExpiredActivities(String scheduledTime)
+	{
+		try
+		{
+			logger.info("Triggering purge of expired activities scheduled at {}", scheduledTime);
+			JobParameters jobParameters = new JobParametersBuilder().addString("scheduledTime", scheduledTime).toJobParameters();
+			JobExecution jobExecution = jobLauncher.run(activityPurgeJob, jobParameters);
+			return jobExecution.getStatus() == BatchStatus.COMPLETED;
+		}
+		catch (JobExecutionAlreadyRunningException e)
+		{
+			logger.info("Purge of expired activities scheduled at {} is still running on another instance", scheduledTime);
+			return false;
+		}
+		catch (JobInstanceAlreadyCompleteException e)
+		{
+			logger.info("Purge of expired activities scheduled at {} was already completed by another instance", scheduledTime);
+			return true;
+		}
+		catch (JobRestartException | JobParametersInvalidException e)
+		{
+			logger.error("Unexpected exception", e);
+			throw YonaException.unexpected(e);
+		}
+	}
 }
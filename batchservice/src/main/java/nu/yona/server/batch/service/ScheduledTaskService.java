@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import nu.yona.server.batch.entities.ScheduledTask;
+import nu.yona.server.batch.entities.ScheduledTask.TaskType;
+import nu.yona.server.batch.entities.ScheduledTaskRepository;
+import nu.yona.server.util.TimeUtil;
+
+@Service
+public class ScheduledTaskService
+{
+	private static final Logger logger = LoggerFactory.getLogger(ScheduledTaskService.class);
+
+	private static final String CLAIMED_TASKS_COUNTER = "counter.batch.scheduledTasks.claimed";
+	private static final String COMPLETED_TASKS_COUNTER = "counter.batch.scheduledTasks.completed";
+	private static final String ABANDONED_TASKS_COUNTER = "counter.batch.scheduledTasks.abandoned";
+	private static final String LAG_GAUGE = "gauge.batch.scheduledTasks.lagMillis";
+
+	@Autowired
+	private ScheduledTaskRepository scheduledTaskRepository;
+
+	@Autowired
+	private CounterService counterService;
+
+	@Autowired
+	private GaugeService gaugeService;
+
+	@Transactional
+	public void scheduleTask(TaskType taskType, String payload, LocalDateTime dueTime)
+	{
+		scheduledTaskRepository.save(ScheduledTask.createInstance(taskType, payload, dueTime));
+	}
+
+	/**
+	 * Schedules a task that is to be executed only once for the given key, even if multiple instances schedule it. The ID of
+	 * the task is derived from the task type and the key, so an instance that schedules it after another instance did, finds it
+	 * and does not schedule it again. If two instances schedule it at the same time, the primary key ensures that the commit of
+	 * one of them fails with a {@link org.springframework.dao.DataIntegrityViolationException}. A task that was already
+	 * completed (and thus deleted) is scheduled again, so the key should only be reused within a short period of time.
+	 * 
+	 * @param taskType The type of the task
+	 * @param key The key that is unique for the task, for instance the scheduled time. It is stored as payload.
+	 * @param dueTime The time at which the task is due
+	 * @return true if the task was scheduled, false if it was already scheduled
+	 */
+	@Transactional
+	public boolean scheduleUniqueTask(TaskType taskType, String key, LocalDateTime dueTime)
+	{
+		UUID id = UUID.nameUUIDFromBytes((taskType + ":" + key).getBytes(StandardCharsets.UTF_8));
+		if (scheduledTaskRepository.exists(id))
+		{
+			return false;
+		}
+		scheduledTaskRepository.save(ScheduledTask.createInstance(id, taskType, key, dueTime));
+		return true;
+	}
+
+	/**
+	 * Claims at most the given number of due tasks, oldest first. Tasks of which the claim of another instance expired are
+	 * claimed again. The lag between the due time and the claim time of the oldest claimed task is reported as gauge. Tasks that
+	 * were already claimed the maximum number of times without being completed are logged and deleted rather than returned.
+	 * 
+	 * @param maxCount The maximum number of tasks to claim
+	 * @param claimTimeout The time within which the claimed tasks need to be completed
+	 * @param maxAttempts The maximum number of times a task is claimed
+	 * @return The claimed tasks
+	 */
+	@Transactional
+	public List<ScheduledTask> claimDueTasks(int maxCount, Duration claimTimeout, int maxAttempts)
+	{
+		LocalDateTime now = TimeUtil.utcNow();
+		UUID claimToken = UUID.randomUUID();
+		int claimedCount = scheduledTaskRepository.claimDueTasks(claimToken.toString(), now.plus(claimTimeout), now, maxCount);
+		if (claimedCount == 0)
+		{
+			gaugeService.submit(LAG_GAUGE, 0);
+			return Collections.emptyList();
+		}
+		List<ScheduledTask> tasks = scheduledTaskRepository.findByClaimToken(claimToken);
+		tasks.forEach(t -> counterService.increment(CLAIMED_TASKS_COUNTER));
+		tasks.stream().map(ScheduledTask::getDueTime).min(LocalDateTime::compareTo)
+				.ifPresent(t -> gaugeService.submit(LAG_GAUGE, Duration.between(t, now).toMillis()));
+		Map<Boolean, List<ScheduledTask>> tasksByIsAbandoned = tasks.stream()
+				.collect(Collectors.partitioningBy(t -> t.getAttempts() > maxAttempts));
+		abandonTasks(tasksByIsAbandoned.get(true), maxAttempts);
+		return tasksByIsAbandoned.get(false);
+	}
+
+	private void abandonTasks(List<ScheduledTask> tasks, int maxAttempts)
+	{
+		if (tasks.isEmpty())
+		{
+			return;
+		}
+		tasks.forEach(t -> logger.error("Abandoning scheduled task {} of type {} due at {} after {} failed attempts. Payload: {}",
+				t.getId(), t.getTaskType(), t.getDueTime(), maxAttempts, t.getPayload()));
+		scheduledTaskRepository.delete(tasks);
+		tasks.forEach(t -> counterService.increment(ABANDONED_TASKS_COUNTER));
+	}
+
+	@Transactional
+	public void completeTasks(Collection<ScheduledTask> tasks)
+	{
+		scheduledTaskRepository.delete(tasks);
+		tasks.forEach(t -> counterService.increment(COMPLETED_TASKS_COUNTER));
+	}
+}
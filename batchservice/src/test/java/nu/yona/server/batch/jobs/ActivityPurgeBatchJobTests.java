@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.jobs;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.springframework.data.domain.Pageable;
+
+import nu.yona.server.analysis.entities.Activity;
+import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.WeekActivity;
+import nu.yona.server.analysis.entities.WeekActivityRepository;
+import nu.yona.server.goals.entities.ActivityCategory;
+import nu.yona.server.goals.entities.BudgetGoal;
+import nu.yona.server.goals.entities.Goal;
+import nu.yona.server.messaging.service.MessageService;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+import nu.yona.server.util.TimeUtil;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ActivityPurgeBatchJobTests
+{
+	private static final ZoneId AMSTERDAM = ZoneId.of("Europe/Amsterdam");
+
+	@Spy
+	private YonaProperties yonaProperties = new YonaProperties();
+
+	@Mock
+	private WeekActivityRepository mockWeekActivityRepository;
+
+	@Mock
+	private DayActivityRepository mockDayActivityRepository;
+
+	@Mock
+	private MessageService mockMessageService;
+
+	@Mock
+	private CounterBuffers mockCounterBuffers;
+
+	@Mock
+	private UserAnonymized mockUserAnonymized;
+
+	@InjectMocks
+	private final ActivityPurgeBatchJob job = new ActivityPurgeBatchJob();
+
+	private final List<WeekActivity> weekActivities = new ArrayList<>();
+	private Goal goal;
+	private LocalDate oldestRetainedWeekStart;
+
+	@Before
+	public void setUp()
+	{
+		ActivityCategory activityCategory = ActivityCategory.createInstance(UUID.randomUUID(),
+				Collections.singletonMap(Locale.US, "gambling"), false, new HashSet<>(), new HashSet<>(), new HashMap<>());
+		goal = BudgetGoal.createInstance(TimeUtil.utcNow(), activityCategory, 60);
+		// Let the oldest retained day be a Saturday, so the last retained week ends on it
+		LocalDate today = TimeUtil.utcNow().toLocalDate();
+		LocalDate oldestRetainedDate = TimeUtil.getStartOfWeek(today.minusDays(490)).minusDays(1);
+		yonaProperties.getAnalysisService()
+				.setActivityMemory(Duration.ofDays(ChronoUnit.DAYS.between(oldestRetainedDate, today)));
+		oldestRetainedWeekStart = oldestRetainedDate.minusDays(6);
+
+		// Mimic the query: the week activities started before the given date, oldest first, limited to the page size
+		when(mockWeekActivityRepository.findAllStartedBefore(any(LocalDate.class), any(Pageable.class)))
+				.thenAnswer(invocation -> {
+					LocalDate startDateBefore = (LocalDate) invocation.getArguments()[0];
+					Pageable pageable = (Pageable) invocation.getArguments()[1];
+					return weekActivities.stream().filter(wa -> wa.getStartDate().isBefore(startDateBefore))
+							.sorted((wa1, wa2) -> wa1.getStartDate().compareTo(wa2.getStartDate()))
+							.limit(pageable.getPageSize()).collect(Collectors.toList());
+				});
+	}
+
+	@Test
+	public void testNoExpiredWeeksNothingPurged()
+	{
+		createWeekActivity(oldestRetainedWeekStart);
+		createWeekActivity(oldestRetainedWeekStart.plusDays(7));
+
+		assertThat(execute(), equalTo(RepeatStatus.FINISHED));
+
+		verify(mockWeekActivityRepository, never()).delete(any(Iterable.class));
+		verify(mockCounterBuffers, never()).increment(anyString(), anyLong());
+	}
+
+	@Test
+	public void testOnlyWeeksBeyondActivityMemoryPurged()
+	{
+		WeekActivity expiredWeekActivity = createWeekActivity(oldestRetainedWeekStart.minusDays(7));
+		WeekActivity otherExpiredWeekActivity = createWeekActivity(oldestRetainedWeekStart.minusDays(14));
+		createWeekActivity(oldestRetainedWeekStart);
+		createWeekActivity(oldestRetainedWeekStart.plusDays(7));
+
+		assertThat(execute(), equalTo(RepeatStatus.CONTINUABLE));
+
+		verify(mockWeekActivityRepository).delete(Arrays.asList(otherExpiredWeekActivity, expiredWeekActivity));
+	}
+
+	@Test
+	public void testMessagesDeletedBeforeWeekActivities()
+	{
+		WeekActivity weekActivity = createWeekActivity(oldestRetainedWeekStart.minusDays(7));
+		List<DayActivity> dayActivities = weekActivity.getDayActivities();
+		List<Activity> activities = dayActivities.stream().flatMap(da -> da.getActivities().stream())
+				.collect(Collectors.toList());
+		List<IntervalActivity> intervalActivities = new ArrayList<>(dayActivities);
+		intervalActivities.add(weekActivity);
+
+		execute();
+
+		InOrder inOrder = inOrder(mockMessageService, mockWeekActivityRepository);
+		inOrder.verify(mockMessageService).deleteGoalConflictMessagesForActivities(activities);
+		inOrder.verify(mockMessageService).deleteMessagesForIntervalActivities(intervalActivities);
+		inOrder.verify(mockWeekActivityRepository).delete(Collections.singletonList(weekActivity));
+	}
+
+	@Test
+	public void testChunkSizeLimitsPurgedWeeks()
+	{
+		yonaProperties.getBatchService().setActivityPurgeChunkSize(2);
+		WeekActivity oldestWeekActivity = createWeekActivity(oldestRetainedWeekStart.minusDays(28));
+		WeekActivity secondOldestWeekActivity = createWeekActivity(oldestRetainedWeekStart.minusDays(21));
+		createWeekActivity(oldestRetainedWeekStart.minusDays(14));
+
+		execute();
+
+		verify(mockWeekActivityRepository).delete(Arrays.asList(oldestWeekActivity, secondOldestWeekActivity));
+	}
+
+	@Test
+	public void testCounterIncrementedOncePerChunk()
+	{
+		createWeekActivity(oldestRetainedWeekStart.minusDays(7));
+		createWeekActivity(oldestRetainedWeekStart.minusDays(14));
+		createWeekActivity(oldestRetainedWeekStart.minusDays(21));
+
+		execute();
+
+		verify(mockCounterBuffers).increment("counter.batch.activityPurge.weekActivities", 3);
+	}
+
+	@Test
+	public void testDryRunNothingPurged()
+	{
+		yonaProperties.getBatchService().setActivityPurgeDryRun(true);
+		createWeekActivity(oldestRetainedWeekStart.minusDays(7));
+
+		assertThat(execute(), equalTo(RepeatStatus.FINISHED));
+
+		verify(mockWeekActivityRepository, never()).delete(any(Iterable.class));
+		verify(mockMessageService, never()).deleteMessagesForIntervalActivities(any());
+		verify(mockCounterBuffers, never()).increment(anyString(), anyLong());
+	}
+
+	private RepeatStatus execute()
+	{
+		StepExecution stepExecution = new StepExecution("purgeExpiredActivitiesStep", new JobExecution(1L));
+		return job.new ActivityPurgeTasklet().execute(new StepContribution(stepExecution),
+				new ChunkContext(new StepContext(stepExecution)));
+	}
+
+	private WeekActivity createWeekActivity(LocalDate startOfWeek)
+	{
+		WeekActivity weekActivity = WeekActivity.createInstance(mockUserAnonymized, goal, AMSTERDAM, startOfWeek);
+		for (int i = 0; i < 7; i++)
+		{
+			LocalDate date = startOfWeek.plusDays(i);
+			DayActivity dayActivity = DayActivity.createInstance(mockUserAnonymized, goal, AMSTERDAM, date);
+			LocalDateTime startTime = date.atTime(20, 0);
+			dayActivity.addActivity(Activity.createInstance(AMSTERDAM, startTime, startTime.plusMinutes(15)));
+			weekActivity.addDayActivity(dayActivity);
+		}
+		weekActivities.add(weekActivity);
+		return weekActivity;
+	}
+}
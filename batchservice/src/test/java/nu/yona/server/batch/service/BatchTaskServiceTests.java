@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import nu.yona.server.batch.client.PinResetConfirmationCodeSendRequestDto;
+import nu.yona.server.batch.entities.ScheduledTask;
+import nu.yona.server.batch.entities.ScheduledTask.TaskType;
+import nu.yona.server.properties.BatchServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.TimeUtil;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchTaskServiceTests
+{
+	private final BatchServiceProperties batchServiceProperties = new BatchServiceProperties();
+
+	@Mock
+	private JobLauncher mockJobLauncher;
+
+	@Mock
+	private ThreadPoolTaskExecutor mockBatchJobTaskExecutor;
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+
+	@Mock
+	private ScheduledTaskService mockScheduledTaskService;
+
+	@Spy
+	private ObjectMapper objectMapper = new ObjectMapper();
+
+	// The jobs are injected by name, as they are of the same type
+	@Mock
+	private Job pinResetConfirmationCodeSenderJob;
+
+	@Mock
+	private Job activityPurgeJob;
+
+	@InjectMocks
+	private final BatchTaskService service = new BatchTaskService();
+
+	private List<ScheduledTask> tasks;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		when(mockYonaProperties.getBatchService()).thenReturn(batchServiceProperties);
+		// Run the jobs on the calling thread, so the outcome can be verified
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArguments()[0]).run();
+			return null;
+		}).when(mockBatchJobTaskExecutor).execute(any(Runnable.class));
+
+		LocalDateTime dueTime = TimeUtil.utcNow().minusMinutes(1);
+		String payload = objectMapper
+				.writeValueAsString(new PinResetConfirmationCodeSendRequestDto(UUID.randomUUID(), dueTime));
+		tasks = Collections
+				.singletonList(ScheduledTask.createInstance(TaskType.PIN_RESET_CONFIRMATION_CODE, payload, dueTime));
+		when(mockScheduledTaskService.claimDueTasks(anyInt(), any(), anyInt())).thenReturn(tasks);
+	}
+
+	@Test
+	public void testDispatchDueTasksCompletesTaskOfCompletedJob() throws Exception
+	{
+		givenJobStatus(BatchStatus.COMPLETED);
+
+		service.dispatchDueTasks();
+
+		verify(mockScheduledTaskService).claimDueTasks(batchServiceProperties.getScheduledTaskBatchSize(),
+				batchServiceProperties.getScheduledTaskClaimTimeout(), batchServiceProperties.getScheduledTaskMaxAttempts());
+		verify(mockScheduledTaskService).completeTasks(tasks);
+	}
+
+	@Test
+	public void testDispatchDueTasksKeepsTaskOfFailedJobForRetry() throws Exception
+	{
+		givenJobStatus(BatchStatus.FAILED);
+
+		service.dispatchDueTasks();
+
+		verify(mockJobLauncher).run(eq(pinResetConfirmationCodeSenderJob), any(JobParameters.class));
+		verify(mockScheduledTaskService, never()).completeTasks(any());
+	}
+
+	@Test
+	public void testDispatchDueTasksKeepsTaskOfThrowingJobForRetry() throws Exception
+	{
+		when(mockJobLauncher.run(any(), any())).thenThrow(new IllegalStateException("Simulated failure"));
+
+		service.dispatchDueTasks();
+
+		verify(mockScheduledTaskService, never()).completeTasks(any());
+	}
+
+	@Test
+	public void testScheduleActivityPurgeSchedulesUniqueTask()
+	{
+		service.scheduleActivityPurge();
+
+		verify(mockScheduledTaskService).scheduleUniqueTask(eq(TaskType.ACTIVITY_PURGE), anyString(), any(LocalDateTime.class));
+		verify(mockScheduledTaskService, never()).scheduleTask(any(), any(), any());
+	}
+
+	@Test
+	public void testScheduleActivityPurgeIgnoresTaskScheduledConcurrently()
+	{
+		when(mockScheduledTaskService.scheduleUniqueTask(any(), any(), any()))
+				.thenThrow(new DataIntegrityViolationException("Simulated duplicate key"));
+
+		service.scheduleActivityPurge();
+	}
+
+	@Test
+	public void testDispatchDueTasksCompletesActivityPurgeTaskOfCompletedJob() throws Exception
+	{
+		List<ScheduledTask> purgeTasks = givenActivityPurgeTask();
+		givenJobStatus(BatchStatus.COMPLETED);
+
+		service.dispatchDueTasks();
+
+		verify(mockJobLauncher).run(eq(activityPurgeJob), any(JobParameters.class));
+		verify(mockScheduledTaskService).completeTasks(purgeTasks);
+	}
+
+	@Test
+	public void testDispatchDueTasksIdentifiesActivityPurgeJobByScheduledTime() throws Exception
+	{
+		givenActivityPurgeTask();
+		givenJobStatus(BatchStatus.COMPLETED);
+
+		service.dispatchDueTasks();
+
+		ArgumentCaptor<JobParameters> jobParametersCaptor = ArgumentCaptor.forClass(JobParameters.class);
+		verify(mockJobLauncher).run(eq(activityPurgeJob), jobParametersCaptor.capture());
+		assertThat(jobParametersCaptor.getValue().getString("scheduledTime"), equalTo("2017-06-01T03:30"));
+	}
+
+	@Test
+	public void testDispatchDueTasksKeepsActivityPurgeTaskRunningOnOtherInstance() throws Exception
+	{
+		givenActivityPurgeTask();
+		when(mockJobLauncher.run(any(), any())).thenThrow(new JobExecutionAlreadyRunningException("Simulated"));
+
+		service.dispatchDueTasks();
+
+		verify(mockScheduledTaskService, never()).completeTasks(any());
+	}
+
+	@Test
+	public void testDispatchDueTasksCompletesActivityPurgeTaskCompletedByOtherInstance() throws Exception
+	{
+		List<ScheduledTask> purgeTasks = givenActivityPurgeTask();
+		when(mockJobLauncher.run(any(), any())).thenThrow(new JobInstanceAlreadyCompleteException("Simulated"));
+
+		service.dispatchDueTasks();
+
+		verify(mockScheduledTaskService).completeTasks(purgeTasks);
+	}
+
+	private List<ScheduledTask> givenActivityPurgeTask()
+	{
+		List<ScheduledTask> purgeTasks = Collections.singletonList(
+				ScheduledTask.createInstance(TaskType.ACTIVITY_PURGE, "2017-06-01T03:30", TimeUtil.utcNow().minusMinutes(1)));
+		when(mockScheduledTaskService.claimDueTasks(anyInt(), any(), anyInt())).thenReturn(purgeTasks);
+		return purgeTasks;
+	}
+
+	private void givenJobStatus(BatchStatus status) throws Exception
+	{
+		JobExecution jobExecution = new JobExecution(1L);
+		jobExecution.setStatus(status);
+		when(mockJobLauncher.run(any(), any())).thenReturn(jobExecution);
+	}
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.batch.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import nu.yona.server.batch.entities.ScheduledTask;
+import nu.yona.server.batch.entities.ScheduledTask.TaskType;
+import nu.yona.server.batch.entities.ScheduledTaskRepository;
+import nu.yona.server.util.TimeUtil;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduledTaskServiceTests
+{
+	private static final int MAX_COUNT = 10;
+	private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(5);
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Mock
+	private ScheduledTaskRepository mockScheduledTaskRepository;
+
+	@Mock
+	private CounterService mockCounterService;
+
+	@Mock
+	private GaugeService mockGaugeService;
+
+	@InjectMocks
+	private final ScheduledTaskService service = new ScheduledTaskService();
+
+	@Test
+	public void testClaimDueTasksNoneDue()
+	{
+		when(mockScheduledTaskRepository.claimDueTasks(anyString(), any(), any(), anyInt())).thenReturn(0);
+
+		List<ScheduledTask> tasks = service.claimDueTasks(MAX_COUNT, CLAIM_TIMEOUT, MAX_ATTEMPTS);
+
+		assertThat(tasks, empty());
+		verify(mockScheduledTaskRepository, never()).findByClaimToken(any());
+		verify(mockGaugeService).submit("gauge.batch.scheduledTasks.lagMillis", 0);
+	}
+
+	@Test
+	public void testClaimDueTasksReturnsTasksOfClaimToken()
+	{
+		ScheduledTask task1 = createTask(1);
+		ScheduledTask task2 = createTask(1);
+		ArgumentCaptor<String> claimToken = ArgumentCaptor.forClass(String.class);
+		when(mockScheduledTaskRepository.claimDueTasks(claimToken.capture(), any(), any(), eq(MAX_COUNT))).thenReturn(2);
+		when(mockScheduledTaskRepository.findByClaimToken(any())).thenReturn(Arrays.asList(task1, task2));
+
+		List<ScheduledTask> tasks = service.claimDueTasks(MAX_COUNT, CLAIM_TIMEOUT, MAX_ATTEMPTS);
+
+		assertThat(tasks, contains(task1, task2));
+		verify(mockScheduledTaskRepository).findByClaimToken(UUID.fromString(claimToken.getValue()));
+		verify(mockCounterService, times(2)).increment("counter.batch.scheduledTasks.claimed");
+		verify(mockScheduledTaskRepository, never()).delete(any(Iterable.class));
+	}
+
+	@Test
+	public void testClaimDueTasksClaimExpiresAfterClaimTimeout()
+	{
+		ArgumentCaptor<LocalDateTime> claimExpiryTime = ArgumentCaptor.forClass(LocalDateTime.class);
+		ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+		when(mockScheduledTaskRepository.claimDueTasks(anyString(), claimExpiryTime.capture(), now.capture(), anyInt()))
+				.thenReturn(0);
+
+		service.claimDueTasks(MAX_COUNT, CLAIM_TIMEOUT, MAX_ATTEMPTS);
+
+		assertThat(claimExpiryTime.getValue(), equalTo(now.getValue().plus(CLAIM_TIMEOUT)));
+	}
+
+	@Test
+	public void testClaimDueTasksRetriesTaskUpToMaxAttempts()
+	{
+		ScheduledTask retriedTask = createTask(MAX_ATTEMPTS);
+		when(mockScheduledTaskRepository.claimDueTasks(anyString(), any(), any(), anyInt())).thenReturn(1);
+		when(mockScheduledTaskRepository.findByClaimToken(any())).thenReturn(Collections.singletonList(retriedTask));
+
+		List<ScheduledTask> tasks = service.claimDueTasks(MAX_COUNT, CLAIM_TIMEOUT, MAX_ATTEMPTS);
+
+		assertThat(tasks, contains(retriedTask));
+		verify(mockScheduledTaskRepository, never()).delete(any(Iterable.class));
+	}
+
+	@Test
+	public void testClaimDueTasksAbandonsTaskBeyondMaxAttempts()
+	{
+		ScheduledTask retriedTask = createTask(2);
+		ScheduledTask exhaustedTask = createTask(MAX_ATTEMPTS + 1);
+		when(mockScheduledTaskRepository.claimDueTasks(anyString(), any(), any(), anyInt())).thenReturn(2);
+		when(mockScheduledTaskRepository.findByClaimToken(any())).thenReturn(Arrays.asList(retriedTask, exhaustedTask));
+
+		List<ScheduledTask> tasks = service.claimDueTasks(MAX_COUNT, CLAIM_TIMEOUT, MAX_ATTEMPTS);
+
+		assertThat(tasks, contains(retriedTask));
+		verify(mockScheduledTaskRepository).delete(Collections.singletonList(exhaustedTask));
+		verify(mockCounterService).increment("counter.batch.scheduledTasks.abandoned");
+	}
+
+	@Test
+	public void testCompleteTasksDeletesTasks()
+	{
+		List<ScheduledTask> tasks = Arrays.asList(createTask(1), createTask(1));
+
+		service.completeTasks(tasks);
+
+		verify(mockScheduledTaskRepository).delete(tasks);
+		verify(mockCounterService, times(2)).increment("counter.batch.scheduledTasks.completed");
+	}
+
+	@Test
+	public void testScheduleUniqueTaskSavesTaskNotYetScheduled()
+	{
+		LocalDateTime dueTime = TimeUtil.utcNow();
+
+		boolean isScheduled = service.scheduleUniqueTask(TaskType.ACTIVITY_PURGE, "2017-06-01T03:30", dueTime);
+
+		assertThat(isScheduled, equalTo(true));
+		ArgumentCaptor<ScheduledTask> taskCaptor = ArgumentCaptor.forClass(ScheduledTask.class);
+		verify(mockScheduledTaskRepository).save(taskCaptor.capture());
+		assertThat(taskCaptor.getValue().getTaskType(), equalTo(TaskType.ACTIVITY_PURGE));
+		assertThat(taskCaptor.getValue().getPayload(), equalTo("2017-06-01T03:30"));
+		assertThat(taskCaptor.getValue().getDueTime(), equalTo(dueTime));
+	}
+
+	@Test
+	public void testScheduleUniqueTaskSkipsTaskAlreadyScheduled()
+	{
+		when(mockScheduledTaskRepository.exists(any(UUID.class))).thenReturn(true);
+
+		boolean isScheduled = service.scheduleUniqueTask(TaskType.ACTIVITY_PURGE, "2017-06-01T03:30", TimeUtil.utcNow());
+
+		assertThat(isScheduled, equalTo(false));
+		verify(mockScheduledTaskRepository, never()).save(any(ScheduledTask.class));
+	}
+
+	@Test
+	public void testScheduleUniqueTaskDerivesIdFromKey()
+	{
+		service.scheduleUniqueTask(TaskType.ACTIVITY_PURGE, "2017-06-01T03:30", TimeUtil.utcNow());
+		service.scheduleUniqueTask(TaskType.ACTIVITY_PURGE, "2017-06-01T03:30", TimeUtil.utcNow());
+		service.scheduleUniqueTask(TaskType.ACTIVITY_PURGE, "2017-06-02T03:30", TimeUtil.utcNow());
+
+		ArgumentCaptor<ScheduledTask> taskCaptor = ArgumentCaptor.forClass(ScheduledTask.class);
+		verify(mockScheduledTaskRepository, times(3)).save(taskCaptor.capture());
+		List<ScheduledTask> tasks = taskCaptor.getAllValues();
+		assertThat(tasks.get(1).getId(), equalTo(tasks.get(0).getId()));
+		assertThat(tasks.get(2).getId(), not(equalTo(tasks.get(0).getId())));
+	}
+
+	private static ScheduledTask createTask(int attempts)
+	{
+		ScheduledTask task = ScheduledTask.createInstance(TaskType.PIN_RESET_CONFIRMATION_CODE, "{}",
+				TimeUtil.utcNow().minusMinutes(1));
+		// The attempts are incremented by the claim update statement, which is mocked here
+		ReflectionTestUtils.setField(task, "attempts", attempts);
+		return task;
+	}
+}
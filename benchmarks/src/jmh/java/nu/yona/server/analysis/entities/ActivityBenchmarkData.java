@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.entities;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.UUID;
+
+import nu.yona.server.crypto.pubkey.PublicKeyUtil;
+import nu.yona.server.goals.entities.ActivityCategory;
+import nu.yona.server.goals.entities.BudgetGoal;
+import nu.yona.server.goals.entities.Goal;
+import nu.yona.server.goals.entities.TimeZoneGoal;
+import nu.yona.server.messaging.entities.MessageDestination;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+
+/**
+ * Builds activity entities in memory, without database, for the benchmarks. The week is filled the way a heavy user fills it:
+ * a short activity every half hour during the waking hours of each day.
+ */
+public final class ActivityBenchmarkData
+{
+	public static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+	public static final LocalDate START_OF_WEEK = LocalDate.of(2017, 1, 1); // A Sunday
+	private static final LocalDateTime GOAL_CREATION_TIME = START_OF_WEEK.minusWeeks(4).atStartOfDay();
+	private static final int FIRST_HOUR = 7;
+	private static final int LAST_HOUR = 23;
+	private static final int ACTIVITY_INTERVAL_MINUTES = 30;
+	private static final int ACTIVITY_DURATION_MINUTES = 12;
+
+	private final ActivityCategory activityCategory;
+	private final BudgetGoal budgetGoal;
+	private final TimeZoneGoal timeZoneGoal;
+	private final UserAnonymized userAnonymized;
+
+	private ActivityBenchmarkData()
+	{
+		activityCategory = ActivityCategory.createInstance(UUID.randomUUID(), Collections.singletonMap(Locale.US, "social"),
+				false, new HashSet<>(Arrays.asList("social")), Collections.emptySet(),
+				Collections.singletonMap(Locale.US, "Descr"));
+		budgetGoal = BudgetGoal.createInstance(GOAL_CREATION_TIME, activityCategory, 60);
+		timeZoneGoal = TimeZoneGoal.createInstance(GOAL_CREATION_TIME, activityCategory,
+				Arrays.asList("08:00-12:00", "13:00-17:00", "20:00-22:00"));
+		userAnonymized = UserAnonymized.createInstance(
+				MessageDestination.createInstance(PublicKeyUtil.generateKeyPair().getPublic()),
+				new HashSet<Goal>(Arrays.asList(budgetGoal, timeZoneGoal)));
+	}
+
+	public static ActivityBenchmarkData createInstance()
+	{
+		return new ActivityBenchmarkData();
+	}
+
+	public BudgetGoal getBudgetGoal()
+	{
+		return budgetGoal;
+	}
+
+	public TimeZoneGoal getTimeZoneGoal()
+	{
+		return timeZoneGoal;
+	}
+
+	public DayActivity createDayActivity(Goal goal, LocalDate date)
+	{
+		DayActivity dayActivity = DayActivity.createInstance(userAnonymized, goal, ZONE, date);
+		for (LocalTime startTime = LocalTime.of(FIRST_HOUR, 0); startTime.getHour() < LAST_HOUR; startTime = startTime
+				.plusMinutes(ACTIVITY_INTERVAL_MINUTES))
+		{
+			LocalDateTime start = date.atTime(startTime);
+			dayActivity.addActivity(Activity.createInstance(ZONE, start, start.plusMinutes(ACTIVITY_DURATION_MINUTES)));
+		}
+		return dayActivity;
+	}
+
+	public WeekActivity createWeekActivity(Goal goal)
+	{
+		WeekActivity weekActivity = WeekActivity.createInstance(userAnonymized, goal, ZONE, START_OF_WEEK);
+		for (int i = 0; i < 7; i++)
+		{
+			weekActivity.addDayActivity(createDayActivity(goal, START_OF_WEEK.plusDays(i)));
+		}
+		return weekActivity;
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.entities;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The spread of a day is recomputed from all its activities whenever an activity is added or extended, and the spread of the week
+ * is the sum of the spreads of its days. Both happen for every app or network activity that the analysis engine registers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SpreadBenchmark
+{
+	private DayActivity dayActivity;
+	private WeekActivity weekActivity;
+
+	@Setup
+	public void setUp()
+	{
+		ActivityBenchmarkData data = ActivityBenchmarkData.createInstance();
+		dayActivity = data.createDayActivity(data.getBudgetGoal(), ActivityBenchmarkData.START_OF_WEEK);
+		weekActivity = data.createWeekActivity(data.getBudgetGoal());
+	}
+
+	@Benchmark
+	public List<Integer> dayActivityComputeSpread()
+	{
+		return dayActivity.computeSpread();
+	}
+
+	@Benchmark
+	public List<Integer> weekActivityComputeSpread()
+	{
+		return weekActivity.computeSpread();
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import nu.yona.server.analysis.entities.ActivityBenchmarkData;
+import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.WeekActivity;
+import nu.yona.server.analysis.service.IntervalActivityDto.LevelOfDetail;
+
+/**
+ * Serializes a page of day respectively week activity overviews, like the activity controllers return them. The overview DTOs
+ * do not serialize the activities themselves (the controllers embed them), so every overview is serialized together with its
+ * activities and every week activity together with its day activities. The object mapper is configured like the one of the
+ * services.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ActivityOverviewSerializationBenchmark
+{
+	private static final int WEEKS_PER_PAGE = 2;
+
+	private ObjectMapper objectMapper;
+	private List<Map<String, Object>> dayActivityOverviewPage;
+	private List<Map<String, Object>> weekActivityOverviewPage;
+
+	@Setup
+	public void setUp()
+	{
+		objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.enable(MapperFeature.DEFAULT_VIEW_INCLUSION);
+
+		ActivityBenchmarkData data = ActivityBenchmarkData.createInstance();
+		List<WeekActivity> weekActivities = Arrays.asList(data.createWeekActivity(data.getBudgetGoal()),
+				data.createWeekActivity(data.getTimeZoneGoal()));
+		dayActivityOverviewPage = createDayActivityOverviewPage(weekActivities);
+		weekActivityOverviewPage = createWeekActivityOverviewPage(weekActivities);
+	}
+
+	@Benchmark
+	public byte[] serializeDayActivityOverviews() throws JsonProcessingException
+	{
+		return objectMapper.writeValueAsBytes(dayActivityOverviewPage);
+	}
+
+	@Benchmark
+	public byte[] serializeWeekActivityOverviews() throws JsonProcessingException
+	{
+		return objectMapper.writeValueAsBytes(weekActivityOverviewPage);
+	}
+
+	private static List<Map<String, Object>> createDayActivityOverviewPage(List<WeekActivity> weekActivities)
+	{
+		List<Map<String, Object>> page = new ArrayList<>();
+		for (int i = 0; i < 7; i++)
+		{
+			int dayIndex = i;
+			Set<DayActivityDto> dayActivities = weekActivities.stream().map(wa -> wa.getDayActivities().get(dayIndex))
+					.map(da -> DayActivityDto.createInstance(da, LevelOfDetail.DayOverview)).collect(Collectors.toSet());
+			DayActivity firstDayActivity = weekActivities.get(0).getDayActivities().get(dayIndex);
+			DayActivityOverviewDto<DayActivityDto> overview = DayActivityOverviewDto
+					.createInstanceForUser(firstDayActivity.getStartTime(), dayActivities);
+			page.add(createEmbeddingMap(overview, overview.getDayActivities()));
+		}
+		return page;
+	}
+
+	private static List<Map<String, Object>> createWeekActivityOverviewPage(List<WeekActivity> weekActivities)
+	{
+		List<Map<String, Object>> page = new ArrayList<>();
+		ZonedDateTime startOfWeek = weekActivities.get(0).getStartTime();
+		for (int i = 0; i < WEEKS_PER_PAGE; i++)
+		{
+			Set<WeekActivityDto> weekActivityDtos = weekActivities.stream()
+					.map(wa -> WeekActivityDto.createInstance(wa, LevelOfDetail.WeekOverview)).collect(Collectors.toSet());
+			WeekActivityOverviewDto overview = WeekActivityOverviewDto.createInstance(startOfWeek.minusWeeks(i),
+					weekActivityDtos);
+			List<Map<String, Object>> embeddedWeekActivities = overview.getWeekActivities().stream()
+					.map(wa -> createEmbeddingMap(wa, wa.getDayActivities().values())).collect(Collectors.toList());
+			page.add(createEmbeddingMap(overview, embeddedWeekActivities));
+		}
+		return page;
+	}
+
+	private static Map<String, Object> createEmbeddingMap(Object container, Collection<?> embedded)
+	{
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("container", container);
+		map.put("embedded", embedded);
+		return map;
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Replays scripts/smoothwall/sample_access.log as a series of page loads: every record that HandleDansGuardianLog.pl would
+ * forward is repeated as a burst of events within one second, like the requests for the resources of a page. The events of
+ * every user are coalesced the way the bulk ingestion endpoint does when coalescing is enabled.<br/>
+ * Every burst costs a lock, a transaction and cache lookups in the analysis engine, so the ratio between the "events" and
+ * "analyses" counters is the reduction of analysis engine calls. The score itself is the cost of the coalescing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class NetworkActivityCoalescingBenchmark
+{
+	private static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+	private static final Duration UPDATE_SKIP_WINDOW = Duration.ofSeconds(5);
+	private static final Duration PAGE_LOAD_DURATION = Duration.ofSeconds(1);
+	private static final int LOG_REPETITIONS = 100;
+
+	/**
+	 * Relative to the benchmarks project, which is the working directory of "gradlew :benchmarks:jmh"
+	 */
+	@Param({ "../scripts/smoothwall/sample_access.log" })
+	private String sampleLogFile;
+
+	@Param({ "1", "10", "40" })
+	private int eventsPerPageLoad;
+
+	private Map<UUID, List<NetworkActivityDto>> networkActivitiesPerUser;
+
+	@State(Scope.Thread)
+	@AuxCounters
+	public static class Counters
+	{
+		public long events;
+		public long analyses;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			events = 0;
+			analyses = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		List<Map<String, Object>> records = readSampleLog();
+		networkActivitiesPerUser = new LinkedHashMap<>();
+		Duration repetitionOffset = Duration.ZERO;
+		for (int i = 0; i < LOG_REPETITIONS; i++)
+		{
+			for (Map<String, Object> record : records)
+			{
+				addPageLoad(record, repetitionOffset);
+			}
+			// The sample log spans about a month, so the repetitions do not overlap
+			repetitionOffset = repetitionOffset.plusDays(60);
+		}
+	}
+
+	@Benchmark
+	public List<NetworkActivityBurst> coalesce(Counters counters)
+	{
+		List<NetworkActivityBurst> allBursts = new ArrayList<>();
+		for (Map.Entry<UUID, List<NetworkActivityDto>> entry : networkActivitiesPerUser.entrySet())
+		{
+			List<NetworkActivityBurst> bursts = NetworkActivityBurst.coalesce(entry.getKey(), entry.getValue(),
+					UPDATE_SKIP_WINDOW);
+			counters.events += entry.getValue().size();
+			counters.analyses += bursts.size();
+			allBursts.addAll(bursts);
+		}
+		return allBursts;
+	}
+
+	private List<Map<String, Object>> readSampleLog() throws IOException
+	{
+		ObjectMapper objectMapper = new ObjectMapper();
+		List<Map<String, Object>> records = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(sampleLogFile), StandardCharsets.UTF_8))
+		{
+			if (!line.trim().isEmpty())
+			{
+				records.add(objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {
+				}));
+			}
+		}
+		return records;
+	}
+
+	private void addPageLoad(Map<String, Object> record, Duration repetitionOffset)
+	{
+		// Like HandleDansGuardianLog.pl, skip records without user name or URL categories. All categories are taken as relevant.
+		Map<String, Object> userNames = getMap(getMap(record, "tagset"), "username");
+		Map<String, Object> urlCategories = getMap(getMap(record, "requesttags"), "urlcategory");
+		if (userNames.isEmpty() || urlCategories.isEmpty())
+		{
+			return;
+		}
+		UUID userAnonymizedId = UUID
+				.nameUUIDFromBytes(userNames.keySet().iterator().next().getBytes(StandardCharsets.UTF_8));
+		ZonedDateTime startTime = getTime(record).plus(repetitionOffset);
+		List<NetworkActivityDto> networkActivities = networkActivitiesPerUser.computeIfAbsent(userAnonymizedId,
+				id -> new ArrayList<>());
+		for (int i = 0; i < eventsPerPageLoad; i++)
+		{
+			ZonedDateTime eventTime = startTime.plus(PAGE_LOAD_DURATION.multipliedBy(i).dividedBy(eventsPerPageLoad));
+			networkActivities.add(new NetworkActivityDto(new TreeSet<>(urlCategories.keySet()), (String) record.get("url"),
+					Optional.of(eventTime)));
+		}
+	}
+
+	private static ZonedDateTime getTime(Map<String, Object> record)
+	{
+		// The time is formatted as seconds since the epoch, with microseconds as fraction
+		BigDecimal time = new BigDecimal((String) record.get("time"));
+		long seconds = time.longValue();
+		long nanos = time.subtract(BigDecimal.valueOf(seconds)).movePointRight(9).longValue();
+		return Instant.ofEpochSecond(seconds, nanos).atZone(ZONE);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getMap(Map<String, Object> map, String key)
+	{
+		Object value = map.get(key);
+		return (value instanceof Map) ? (Map<String, Object>) value : Collections.emptyMap();
+	}
+}
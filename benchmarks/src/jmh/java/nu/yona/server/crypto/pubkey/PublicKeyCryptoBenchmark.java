@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.crypto.pubkey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Messages to buddies and anonymized users are encrypted with a fresh secret key, which is itself encrypted with the public key
+ * of the message destination. Reading a message implies decrypting that secret key with the private key, which is the expensive
+ * part when rendering a page of messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PublicKeyCryptoBenchmark
+{
+	private static final byte[] PLAINTEXT = "Small plaintext, like decryption info".getBytes(StandardCharsets.UTF_8);
+	private static final Runnable NO_OP = () -> {
+	};
+
+	private PublicKeyEncryptor encryptor;
+	private PublicKeyDecryptor decryptor;
+	private byte[] ciphertext;
+	private byte[] decryptionInfo;
+
+	@Setup
+	public void setUp()
+	{
+		KeyPair keyPair = PublicKeyUtil.generateKeyPair();
+		encryptor = PublicKeyEncryptor.createInstance(keyPair.getPublic());
+		decryptor = PublicKeyDecryptor.createInstance(keyPair.getPrivate());
+		ciphertext = encryptor.encrypt(PLAINTEXT);
+		decryptionInfo = encryptor.executeInCryptoSession(NO_OP);
+	}
+
+	@Benchmark
+	public byte[] encrypt()
+	{
+		return encryptor.encrypt(PLAINTEXT);
+	}
+
+	@Benchmark
+	public byte[] decrypt()
+	{
+		return decryptor.decrypt(ciphertext);
+	}
+
+	@Benchmark
+	public byte[] executeInEncryptionSession()
+	{
+		return encryptor.executeInCryptoSession(NO_OP);
+	}
+
+	@Benchmark
+	public void executeInDecryptionSession()
+	{
+		decryptor.executeInCryptoSession(decryptionInfo, NO_OP);
+	}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.crypto.seckey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Every request of a user starts a crypto session from the password in the Yona-Password header, which implies deriving the
+ * secret key. Within the session, all private user data is encrypted and decrypted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CryptoSessionBenchmark
+{
+	private static final String PASSWORD = "3KqTtMh4X8cWkDVbUajhKdvP";
+	private static final byte[] PLAINTEXT = "This is the nickname of a typical buddy".getBytes(StandardCharsets.UTF_8);
+
+	private CryptoSession cryptoSession;
+	private byte[] ciphertext;
+
+	@Setup
+	public void setUp()
+	{
+		cryptoSession = CryptoSession.start(SecretKeyUtil.generateRandomSecretKey());
+		cryptoSession.generateInitializationVector();
+		ciphertext = cryptoSession.encrypt(PLAINTEXT);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		cryptoSession.close();
+	}
+
+	@Benchmark
+	public CryptoSession start()
+	{
+		try (CryptoSession session = CryptoSession.start(PASSWORD))
+		{
+			return session;
+		}
+	}
+
+	@Benchmark
+	public byte[] encrypt()
+	{
+		return cryptoSession.encrypt(PLAINTEXT);
+	}
+
+	@Benchmark
+	public byte[] decrypt()
+	{
+		return cryptoSession.decrypt(ciphertext);
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.goals.entities;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import nu.yona.server.analysis.entities.ActivityBenchmarkData;
+import nu.yona.server.analysis.entities.DayActivity;
+
+/**
+ * Whether a time zone goal is accomplished is determined from the spread of the day, whenever a day activity is converted to a
+ * DTO and whenever the analysis engine checks for goal conflicts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TimeZoneGoalBenchmark
+{
+	private TimeZoneGoal goal;
+	private DayActivity dayActivity;
+
+	@Setup
+	public void setUp()
+	{
+		ActivityBenchmarkData data = ActivityBenchmarkData.createInstance();
+		goal = data.getTimeZoneGoal();
+		dayActivity = data.createDayActivity(goal, ActivityBenchmarkData.START_OF_WEEK);
+	}
+
+	@Benchmark
+	public boolean isGoalAccomplished()
+	{
+		return goal.isGoalAccomplished(dayActivity);
+	}
+
+	@Benchmark
+	public int computeTotalMinutesBeyondGoal()
+	{
+		return goal.computeTotalMinutesBeyondGoal(dayActivity);
+	}
+}
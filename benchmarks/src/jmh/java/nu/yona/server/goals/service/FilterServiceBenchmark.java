@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.goals.service;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.ReflectionUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import nu.yona.server.goals.service.ActivityCategoryService.FilterService;
+
+/**
+ * The filter service is called for every activity that the analysis engine receives. The activity category service is replaced
+ * by one that returns the production activity categories from dbinit/data/productionActivityCategories.json, like the near
+ * cache does as long as the set is not updated. The matched names are taken from that file as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FilterServiceBenchmark
+{
+	private final Set<String> singleSmoothwallCategory = Collections.singleton("Chat");
+	private final Set<String> multipleSmoothwallCategories = new HashSet<>(
+			Arrays.asList("KS-Adult", "Online Games", "Social Networking Sites", "unknown"));
+	private final String application = "com.whatsapp";
+
+	/**
+	 * Relative to the benchmarks project, which is the working directory of "gradlew :benchmarks:jmh"
+	 */
+	@Param({ "../dbinit/data/productionActivityCategories.json" })
+	private String activityCategoriesFile;
+
+	private Set<ActivityCategoryDto> activityCategories;
+	private FilterService filterService;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		activityCategories = readActivityCategories();
+		filterService = new FilterService();
+		Field field = ReflectionUtils.findField(FilterService.class, "activityCategoryService");
+		ReflectionUtils.makeAccessible(field);
+		ReflectionUtils.setField(field, filterService, new FixedActivityCategoryService(activityCategories));
+	}
+
+	@Benchmark
+	public Set<ActivityCategoryDto> matchSingleSmoothwallCategory()
+	{
+		return filterService.getMatchingCategoriesForSmoothwallCategories(singleSmoothwallCategory);
+	}
+
+	@Benchmark
+	public Set<ActivityCategoryDto> matchMultipleSmoothwallCategories()
+	{
+		return filterService.getMatchingCategoriesForSmoothwallCategories(multipleSmoothwallCategories);
+	}
+
+	@Benchmark
+	public Set<ActivityCategoryDto> matchApplication()
+	{
+		return filterService.getMatchingCategoriesForApp(application);
+	}
+
+	/**
+	 * The cost paid once after every update of the activity categories.
+	 */
+	@Benchmark
+	public ActivityCategoryIndex rebuildIndex()
+	{
+		return ActivityCategoryIndex.createInstance(activityCategories);
+	}
+
+	private Set<ActivityCategoryDto> readActivityCategories() throws IOException
+	{
+		List<ActivityCategoryDto> activityCategoryList = new ObjectMapper().readValue(
+				Files.readAllBytes(Paths.get(activityCategoriesFile)), new TypeReference<List<ActivityCategoryDto>>() {
+				});
+		return new HashSet<>(activityCategoryList);
+	}
+
+	private static class FixedActivityCategoryService extends ActivityCategoryService
+	{
+		private final Set<ActivityCategoryDto> activityCategories;
+
+		FixedActivityCategoryService(Set<ActivityCategoryDto> activityCategories)
+		{
+			this.activityCategories = activityCategories;
+		}
+
+		@Override
+		public Set<ActivityCategoryDto> getAllActivityCategories()
+		{
+			return activityCategories;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The analysis engine locks on the anonymized user ID while it registers an activity. All locks share a single monitor, so
+ * threads working on different users contend as well. The number of distinct IDs determines how often threads need the same
+ * lock: with one ID, all threads contend for it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LockPoolBenchmark
+{
+	private static final int WORK_TOKENS = 100;
+
+	@Param({ "1", "8", "1000" })
+	private int idCount;
+
+	private final LockPool<UUID> lockPool = new LockPool<>();
+	private UUID[] ids;
+
+	@Setup
+	public void setUp()
+	{
+		ids = new UUID[idCount];
+		for (int i = 0; i < idCount; i++)
+		{
+			ids[i] = UUID.randomUUID();
+		}
+	}
+
+	@Benchmark
+	public void lockAndUnlock()
+	{
+		UUID id = ids[ThreadLocalRandom.current().nextInt(idCount)];
+		try (LockPool<UUID>.Lock lock = lockPool.lock(id))
+		{
+			// Simulate a bit of work while holding the lock
+			Blackhole.consumeCPU(WORK_TOKENS);
+		}
+	}
+}
@@ -34,15 +34,30 @@ import org.springframework.web.client.RestTemplate;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.config.MaxSizeConfig.MaxSizePolicy;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.config.NetworkConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.spring.cache.HazelcastCacheManager;
 
+import nu.yona.server.cache.CacheSerializers;
 import nu.yona.server.entities.RepositoryProvider;
+import nu.yona.server.goals.service.ActivityCategoryService;
+import nu.yona.server.properties.HazelcastProperties;
+import nu.yona.server.properties.HazelcastProperties.MapProperties;
 import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.rest.JsonRootRelProvider;
+import nu.yona.server.rest.RequestDependentPrettyPrinter;
 import nu.yona.server.rest.RestClientErrorHandler;
+import nu.yona.server.subscriptions.service.UserAnonymizedService;
 
 @EnableHypermediaSupport(type = HypermediaType.HAL)
 @EnableSpringDataWebSupport
@@ -142,6 +157,10 @@ public class CoreConfiguration extends CachingConfigurerSupport
 		// This way, the JsonView annotations on the controlers work properly
 		springHateoasObjectMapper.enable(MapperFeature.DEFAULT_VIEW_INCLUSION);
 
+		// Only indent the output when explicitly requested, as indenting large responses is costly
+		springHateoasObjectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+		springHateoasObjectMapper.setDefaultPrettyPrinter(new RequestDependentPrettyPrinter(yonaProperties.isPrettyPrintJson()));
+
 		return springHateoasObjectMapper;
 	}
 
@@ -169,7 +188,55 @@ public class CoreConfiguration extends CachingConfigurerSupport
 	@Bean // By making this a bean, Spring takes care of shutting down Hazelcast
 	public HazelcastInstance hazelcastInstance()
 	{
-		return Hazelcast.newHazelcastInstance(new Config());
+		HazelcastProperties hazelcastProperties = yonaProperties.getHazelcast();
+		Config config = new Config();
+		config.getGroupConfig().setName(hazelcastProperties.getGroupName());
+		configureNetwork(config.getNetworkConfig(), hazelcastProperties);
+		hazelcastProperties.getMaps().forEach((name, mapProperties) -> configureMap(config.getMapConfig(name), mapProperties));
+		addNearCache(config, UserAnonymizedService.CACHE_NAME);
+		addNearCache(config, ActivityCategoryService.CACHE_NAME);
+		CacheSerializers.register(config.getSerializationConfig());
+		return Hazelcast.newHazelcastInstance(config);
+	}
+
+	/**
+	 * Without explicitly configured members, Hazelcast uses multicast to discover the other members. That is convenient for
+	 * development, but multicast is usually not available in a production network, so there the members are listed explicitly.
+	 */
+	private void configureNetwork(NetworkConfig networkConfig, HazelcastProperties hazelcastProperties)
+	{
+		networkConfig.setPort(hazelcastProperties.getPort());
+		if (hazelcastProperties.getMembers().isEmpty())
+		{
+			return;
+		}
+		JoinConfig joinConfig = networkConfig.getJoin();
+		joinConfig.getMulticastConfig().setEnabled(false);
+		joinConfig.getTcpIpConfig().setEnabled(true).setMembers(hazelcastProperties.getMembers());
+	}
+
+	private void configureMap(MapConfig mapConfig, MapProperties mapProperties)
+	{
+		mapConfig.setBackupCount(mapProperties.getBackupCount());
+		mapConfig.setTimeToLiveSeconds((int) mapProperties.getTimeToLive().getSeconds());
+		mapConfig.setEvictionPolicy(EvictionPolicy.valueOf(mapProperties.getEvictionPolicy()));
+		if (mapProperties.getMaxSize() > 0)
+		{
+			mapConfig.setMaxSizeConfig(new MaxSizeConfig(mapProperties.getMaxSize(), MaxSizePolicy.PER_NODE));
+		}
+	}
+
+	/**
+	 * The anonymized user and the activity category set are retrieved for every activity that the analysis engine receives.
+	 * Without near cache, every retrieval implies deserializing the DTO including all its goals respectively all activity
+	 * categories. The near cache keeps the deserialized object (in-memory format OBJECT). Hazelcast invalidates the near cache
+	 * entries of all members when an entry is updated or evicted.
+	 */
+	private void addNearCache(Config config, String mapName)
+	{
+		NearCacheConfig nearCacheConfig = new NearCacheConfig().setInMemoryFormat(InMemoryFormat.OBJECT)
+				.setInvalidateOnChange(true).setCacheLocalEntries(true);
+		config.getMapConfig(mapName).setNearCacheConfig(nearCacheConfig);
 	}
 
 	@Bean
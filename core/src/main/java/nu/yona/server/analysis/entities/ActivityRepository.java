@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.entities;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ActivityRepository extends CrudRepository<Activity, Long>
+{
+	/**
+	 * Returns the latest activities of the given user for the given goal, latest first. As the result is a list rather than a
+	 * page, no count query is executed, so requesting a page of size 1 fetches the last activity in a single query.
+	 */
+	@Query("select a from Activity a join a.dayActivity d where d.userAnonymized.id = :userAnonymizedId and d.goal.id = :goalId"
+			+ " order by d.startDate desc, a.id desc")
+	List<Activity> findLatest(@Param("userAnonymizedId") UUID userAnonymizedId, @Param("goalId") UUID goalId,
+			Pageable pageable);
+}
@@ -1,10 +1,11 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.analysis.entities;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
@@ -52,6 +53,7 @@ public class DayActivity extends IntervalActivity
 		super(userAnonymized, goal, timeZone, startOfDay);
 
 		activities = new ArrayList<>();
+		updateGoalEvaluation();
 	}
 
 	@Override
@@ -83,9 +85,63 @@ public class DayActivity extends IntervalActivity
 
 	public void addActivity(Activity activity)
 	{
+		List<Integer> originalSpread = getSpread();
+		int originalTotalActivityDurationMinutes = getTotalActivityDurationMinutes();
 		activity.setDayActivity(this);
 		activity.setActivityCategory(getGoal().getActivityCategory());
 		this.activities.add(activity);
+		updateAggregates(originalSpread, originalTotalActivityDurationMinutes, activity.getDurationMinutes());
+	}
+
+	public void updateActivityEndTime(Activity activity, LocalDateTime endTime)
+	{
+		assert activities.contains(activity);
+
+		List<Integer> originalSpread = getSpread();
+		int originalTotalActivityDurationMinutes = getTotalActivityDurationMinutes();
+		int originalDurationMinutes = activity.getDurationMinutes();
+		activity.setEndTime(endTime);
+		updateAggregates(originalSpread, originalTotalActivityDurationMinutes,
+				activity.getDurationMinutes() - originalDurationMinutes);
+	}
+
+	/**
+	 * Updates the stored aggregates of this day and of the week it belongs to. The total duration is updated incrementally. The
+	 * spread is recomputed from the activities of this day, as overlapping activities are merged into one block, so the spread
+	 * of an individual activity cannot simply be added.
+	 */
+	private void updateAggregates(List<Integer> originalSpread, int originalTotalActivityDurationMinutes, int durationDelta)
+	{
+		List<Integer> newSpread = computeSpread();
+		int newTotalActivityDurationMinutes = areAggregatesComputed() ? originalTotalActivityDurationMinutes + durationDelta
+				: computeTotalActivityDurationMinutes();
+		setAggregates(newSpread, newTotalActivityDurationMinutes);
+		updateGoalEvaluation();
+		if (weekActivity != null)
+		{
+			weekActivity.updateAggregates(originalSpread, newSpread,
+					newTotalActivityDurationMinutes - originalTotalActivityDurationMinutes);
+		}
+	}
+
+	/**
+	 * Stores the evaluation of the goal along with the aggregates it is based on, so reading it does not require the goal
+	 * evaluation.
+	 */
+	private void updateGoalEvaluation()
+	{
+		goalAccomplished = computeGoalAccomplished();
+		totalMinutesBeyondGoal = computeTotalMinutesBeyondGoal();
+	}
+
+	@Override
+	public void setGoal(Goal goal)
+	{
+		super.setGoal(goal);
+		if (areAggregatesComputed())
+		{
+			updateGoalEvaluation();
+		}
 	}
 
 	public WeekActivity getWeekActivity()
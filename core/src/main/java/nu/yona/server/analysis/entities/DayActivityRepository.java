@@ -9,8 +9,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -22,10 +20,6 @@ import nu.yona.server.goals.entities.Goal;
 @Repository
 public interface DayActivityRepository extends CrudRepository<DayActivity, UUID>
 {
-	@Query("select a from DayActivity a"
-			+ " where a.userAnonymized.id = :userAnonymizedId and a.goal.id = :goalId order by a.startDate desc")
-	Page<DayActivity> findLast(@Param("userAnonymizedId") UUID userAnonymizedId, @Param("goalId") UUID goalId, Pageable pageable);
-
 	@Query("select a from DayActivity a"
 			+ " where a.userAnonymized.id = :userAnonymizedId and a.startDate = :startDate and a.goal.id = :goalId")
 	DayActivity findOne(@Param("userAnonymizedId") UUID userAnonymizedId, @Param("startDate") LocalDate startDate,
@@ -35,10 +29,17 @@ public interface DayActivityRepository extends CrudRepository<DayActivity, UUID>
 	List<DayActivity> findAllActivitiesForUserInIntervalEndIncluded(@Param("userAnonymizedId") UUID userAnonymizedId,
 			@Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
 
+	@Query("select a from DayActivity a join fetch a.goal join fetch a.userAnonymized where a.userAnonymized.id in :userAnonymizedIds and a.startDate >= :dateFrom and a.startDate <= :dateUntil order by a.startDate desc")
+	List<DayActivity> findAllActivitiesForUsersInIntervalEndIncluded(@Param("userAnonymizedIds") Set<UUID> userAnonymizedIds,
+			@Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
+
 	@Query("select a from DayActivity a where a.userAnonymized.id = :userAnonymizedId and a.goal.id in :goalIds and a.startDate >= :dateFrom and a.startDate < :dateUntil order by a.startDate desc")
 	List<DayActivity> findActivitiesForUserAndGoalsInIntervalEndExcluded(@Param("userAnonymizedId") UUID userAnonymizedId,
 			@Param("goalIds") Set<UUID> goalIds, @Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
 
+	@Query("select count(a) from DayActivity a where a.weekActivity.startDate < :weekStartDateBefore")
+	long countInWeeksStartedBefore(@Param("weekStartDateBefore") LocalDate weekStartDateBefore);
+
 	@Modifying
 	@Query("delete from DayActivity a where a.userAnonymized.id = :userAnonymizedId")
 	void deleteAllForUser(@Param("userAnonymizedId") UUID userAnonymizedId);
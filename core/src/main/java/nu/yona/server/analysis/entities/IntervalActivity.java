@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.analysis.entities;
 
@@ -62,6 +62,11 @@ public abstract class IntervalActivity extends EntityWithId
 
 	private int totalActivityDurationMinutes;
 
+	/*
+	 * Indicates whether the spread and total activity duration are stored in this entity. This is the case for all interval
+	 * activities created after the introduction of the running aggregates. For older ones, the aggregates are computed on every
+	 * read until the first update.
+	 */
 	private boolean aggregatesComputed;
 
 	// Default constructor for JPA
@@ -79,6 +84,8 @@ public abstract class IntervalActivity extends EntityWithId
 		this.goal = goal;
 		this.timeZone = timeZone;
 		this.startDate = startDate;
+		this.spread = new byte[SPREAD_COUNT];
+		this.aggregatesComputed = true;
 	}
 
 	protected abstract TemporalUnit getTimeUnit();
@@ -164,6 +171,44 @@ public abstract class IntervalActivity extends EntityWithId
 		return computeTotalActivityDurationMinutes();
 	}
 
+	/**
+	 * Stores the given aggregates in this entity. From then on, they are updated incrementally through
+	 * {@link #updateAggregates(List, List, int)}.
+	 */
+	protected void setAggregates(List<Integer> spread, int totalActivityDurationMinutes)
+	{
+		assert spread.size() == SPREAD_COUNT;
+
+		if (this.spread == null)
+		{
+			// Interval activities created before the introduction of the running aggregates do not have a spread yet
+			this.spread = new byte[SPREAD_COUNT];
+		}
+		for (int i = 0; (i < SPREAD_COUNT); i++)
+		{
+			this.spread[i] = spread.get(i).byteValue();
+		}
+		this.totalActivityDurationMinutes = totalActivityDurationMinutes;
+		this.aggregatesComputed = true;
+	}
+
+	/**
+	 * Applies the change of the spread and total activity duration of a part of this interval to the stored aggregates. If the
+	 * aggregates are not stored, this is a no-op, as they are computed when read.
+	 */
+	protected void updateAggregates(List<Integer> originalSpread, List<Integer> newSpread, int durationDelta)
+	{
+		if (!areAggregatesComputed())
+		{
+			return;
+		}
+		for (int i = 0; (i < SPREAD_COUNT); i++)
+		{
+			spread[i] += newSpread.get(i) - originalSpread.get(i);
+		}
+		totalActivityDurationMinutes += durationDelta;
+	}
+
 	private List<Integer> spreadBytesAsIntegerList()
 	{
 		assert spread.length == SPREAD_COUNT;
@@ -171,13 +216,13 @@ public abstract class IntervalActivity extends EntityWithId
 		List<Integer> integers = new ArrayList<>(spread.length);
 		for (int i = 0; (i < spread.length); i++)
 		{
-			integers.set(i, (int) spread[i]);
+			integers.add((int) spread[i]);
 		}
 		return integers;
 	}
 
 	protected static List<Integer> getEmptySpread()
 	{
-		return new ArrayList<Integer>(Collections.nCopies(96, 0));
+		return new ArrayList<Integer>(Collections.nCopies(SPREAD_COUNT, 0));
 	}
 }
@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.analysis.entities;
 
@@ -86,12 +86,14 @@ public class WeekActivity extends IntervalActivity
 
 		dayActivity.setWeekActivity(this);
 		dayActivities.add(dayActivity);
+		updateAggregates(getEmptySpread(), dayActivity.getSpread(), dayActivity.getTotalActivityDurationMinutes());
 	}
 
 	public void removeAllDayActivities()
 	{
 		dayActivities.forEach(da -> da.setWeekActivity(null));
 		dayActivities.clear();
+		setAggregates(getEmptySpread(), 0);
 	}
 
 	@Override
@@ -5,9 +5,11 @@
 package nu.yona.server.analysis.entities;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -33,6 +35,12 @@ public interface WeekActivityRepository extends CrudRepository<WeekActivity, UUI
 	Set<WeekActivity> findAll(@Param("userAnonymizedId") UUID userAnonymizedId, @Param("dateFrom") LocalDate dateFrom,
 			@Param("dateUntil") LocalDate dateUntil);
 
+	@Query("select a from WeekActivity a where a.startDate < :startDateBefore order by a.startDate")
+	List<WeekActivity> findAllStartedBefore(@Param("startDateBefore") LocalDate startDateBefore, Pageable pageable);
+
+	@Query("select count(a) from WeekActivity a where a.startDate < :startDateBefore")
+	long countStartedBefore(@Param("startDateBefore") LocalDate startDateBefore);
+
 	@Modifying
 	@Query("delete from WeekActivity a where a.userAnonymized.id = :userAnonymizedId")
 	void deleteAllForUser(@Param("userAnonymizedId") UUID userAnonymizedId);
@@ -229,10 +229,19 @@ public class ActivityService
 				getTotalPageableItems(userAnonymized, ChronoUnit.DAYS));
 	}
 
+	/**
+	 * Fetches the day activities of the user and all buddies with a single query, rather than one query per user, so the response
+	 * time does not grow with the number of buddies.
+	 */
 	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivitiesForUserAnonymizedIdsInInterval(Set<UUID> userAnonymizedIds,
 			Interval interval, Set<IntervalInactivityDto> mia)
 	{
-		return userAnonymizedIds.stream().map(id -> getDayActivities(userAnonymizedService.getUserAnonymized(id), interval, mia))
+		Map<UUID, List<DayActivity>> dayActivityEntitiesByUserAnonymizedId = dayActivityRepository
+				.findAllActivitiesForUsersInIntervalEndIncluded(userAnonymizedIds, interval.startDate, interval.endDate).stream()
+				.collect(Collectors.groupingBy(a -> a.getUserAnonymized().getId()));
+		return userAnonymizedIds.stream()
+				.map(id -> getDayActivities(userAnonymizedService.getUserAnonymized(id), interval,
+						dayActivityEntitiesByUserAnonymizedId.getOrDefault(id, Collections.emptyList()), mia))
 				.map(Map::entrySet).flatMap(Collection::stream)
 				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> {
 					Set<DayActivityDto> allActivities = new HashSet<>(a);
@@ -276,8 +285,16 @@ public class ActivityService
 	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivities(UserAnonymizedDto userAnonymized, Interval interval,
 			Set<IntervalInactivityDto> missingInactivities)
 	{
-		Map<LocalDate, Set<DayActivity>> dayActivityEntitiesByLocalDate = getDayActivitiesGroupedByDate(userAnonymized.getId(),
-				interval);
+		List<DayActivity> dayActivityEntities = dayActivityRepository
+				.findAllActivitiesForUserInIntervalEndIncluded(userAnonymized.getId(), interval.startDate, interval.endDate);
+		return getDayActivities(userAnonymized, interval, dayActivityEntities, missingInactivities);
+	}
+
+	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivities(UserAnonymizedDto userAnonymized, Interval interval,
+			List<DayActivity> dayActivityEntities, Set<IntervalInactivityDto> missingInactivities)
+	{
+		Map<LocalDate, Set<DayActivity>> dayActivityEntitiesByLocalDate = dayActivityEntities.stream()
+				.collect(Collectors.groupingBy(a -> a.getStartDate(), Collectors.toSet()));
 		Map<ZonedDateTime, Set<DayActivity>> dayActivityEntitiesByZonedDate = mapToZonedDateTime(dayActivityEntitiesByLocalDate);
 		Map<ZonedDateTime, Set<DayActivityDto>> dayActivityDtosByZonedDate = mapDayActivitiesToDtos(
 				dayActivityEntitiesByZonedDate);
@@ -328,13 +345,6 @@ public class ActivityService
 		return dayActivityOverviews;
 	}
 
-	private Map<LocalDate, Set<DayActivity>> getDayActivitiesGroupedByDate(UUID userAnonymizedId, Interval interval)
-	{
-		List<DayActivity> dayActivityEntities = dayActivityRepository
-				.findAllActivitiesForUserInIntervalEndIncluded(userAnonymizedId, interval.startDate, interval.endDate);
-		return dayActivityEntities.stream().collect(Collectors.groupingBy(a -> a.getStartDate(), Collectors.toSet()));
-	}
-
 	private Interval getInterval(LocalDate currentUnitDate, Pageable pageable, ChronoUnit timeUnit)
 	{
 		LocalDate endDate = currentUnitDate.minus(pageable.getOffset(), timeUnit);
@@ -583,7 +593,7 @@ public class ActivityService
 	{
 		UserAnonymized userAnonymizedEntity = userAnonymizedService.getUserAnonymizedEntity(targetUserAnonymizedId);
 		messageService.sendMessage(messageEntity, userAnonymizedEntity.getAnonymousDestination());
-		userAnonymizedService.updateUserAnonymized(userAnonymizedEntity);
+		userAnonymizedService.updateUserAnonymizedKeepingCachedDto(userAnonymizedEntity);
 	}
 
 	private ActivityCommentMessage createMessage(UserDto sendingUser, UUID relatedUserAnonymizedId,
@@ -4,6 +4,7 @@
  *******************************************************************************/
 package nu.yona.server.analysis.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -11,6 +12,7 @@ import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -18,6 +20,7 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonRootName;
+import com.google.common.hash.Hasher;
 
 import nu.yona.server.analysis.entities.DayActivity;
 import nu.yona.server.analysis.entities.IntervalActivity;
@@ -85,6 +88,21 @@ public class DayActivityDto extends IntervalActivityDto
 		return messages;
 	}
 
+	@Override
+	protected void addToFingerprint(Hasher hasher)
+	{
+		super.addToFingerprint(hasher);
+		hasher.putString(activityCategoryId.toString(), StandardCharsets.UTF_8);
+		hasher.putBoolean(goalAccomplished);
+		hasher.putInt(totalMinutesBeyondGoal);
+		hasher.putInt(messages.size());
+		// The IDs and creation times identify the messages, so replacing a message changes the fingerprint as well
+		messages.stream().sorted(Comparator.comparingLong(MessageDto::getMessageId)).forEach(m -> {
+			hasher.putLong(m.getMessageId());
+			hasher.putString(m.getCreationTime().toString(), StandardCharsets.UTF_8);
+		});
+	}
+
 	public static LocalDate parseDate(String iso8601)
 	{
 		return LocalDate.parse(iso8601, ISO8601_DAY_FORMATTER);
@@ -4,6 +4,7 @@
  *******************************************************************************/
 package nu.yona.server.analysis.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalUnit;
@@ -15,6 +16,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import nu.yona.server.analysis.entities.IntervalActivity;
 import nu.yona.server.goals.service.GoalDto;
@@ -151,6 +154,30 @@ public abstract class IntervalActivityDto
 		return totalActivityDurationMinutes;
 	}
 
+	/**
+	 * Returns a fingerprint of the content of this interval activity. It changes whenever the serialized content changes, so it
+	 * can be used as entity tag (ETag) for HTTP caching.
+	 */
+	@JsonIgnore
+	public String getContentFingerprint()
+	{
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		addToFingerprint(hasher);
+		return hasher.hash().toString();
+	}
+
+	protected void addToFingerprint(Hasher hasher)
+	{
+		hasher.putString(goalId.toString(), StandardCharsets.UTF_8);
+		hasher.putString(startTime.toString(), StandardCharsets.UTF_8);
+		hasher.putBoolean(shouldSerializeDate);
+		hasher.putInt(spread.size());
+		spread.forEach(hasher::putInt);
+		hasher.putInt(totalActivityDurationMinutes.orElse(-1));
+		hasher.putBoolean(hasPrevious);
+		hasher.putBoolean(hasNext);
+	}
+
 	public static boolean hasPrevious(GoalDto goal, ZonedDateTime startTime, TemporalUnit timeUnit)
 	{
 		return goal.wasActiveAtInterval(startTime.minus(1, timeUnit), timeUnit);
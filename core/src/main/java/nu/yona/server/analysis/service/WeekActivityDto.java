@@ -26,6 +26,7 @@ import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonRootName;
+import com.google.common.hash.Hasher;
 
 import nu.yona.server.Translator;
 import nu.yona.server.analysis.entities.IntervalActivity;
@@ -70,6 +71,16 @@ public class WeekActivityDto extends IntervalActivityDto
 		return dayActivities;
 	}
 
+	@Override
+	protected void addToFingerprint(Hasher hasher)
+	{
+		super.addToFingerprint(hasher);
+		dayActivities.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+			hasher.putInt(e.getKey().getValue());
+			e.getValue().addToFingerprint(hasher);
+		});
+	}
+
 	public static LocalDate parseDate(String iso8601)
 	{
 		// ISO treats Monday as first day of the week, so our formatter defaults the day as Monday and here we subtract one day to
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import nu.yona.server.messaging.service.MessageDestinationDto;
+import nu.yona.server.subscriptions.entities.BuddyAnonymized.Status;
+import nu.yona.server.subscriptions.service.BuddyAnonymizedDto;
+
+class BuddyAnonymizedDtoSerializer extends DtoStreamSerializer<BuddyAnonymizedDto>
+{
+	static final int TYPE_ID = 5;
+
+	BuddyAnonymizedDtoSerializer()
+	{
+		super(TYPE_ID, BuddyAnonymizedDto.class);
+	}
+
+	@Override
+	public void write(ObjectDataOutput out, BuddyAnonymizedDto buddyAnonymized) throws IOException
+	{
+		writeUuid(out, buddyAnonymized.getId());
+		writeOptionalUuid(out, buddyAnonymized.getUserAnonymizedId());
+		out.writeUTF(buddyAnonymized.getSendingStatus().name());
+		writeOptionalUuid(out, buddyAnonymized.getUserAnonymizedDestination().map(MessageDestinationDto::getId));
+	}
+
+	@Override
+	public BuddyAnonymizedDto read(ObjectDataInput in) throws IOException
+	{
+		UUID id = readUuid(in);
+		Optional<UUID> userAnonymizedId = readOptionalUuid(in);
+		Status sendingStatus = Status.valueOf(in.readUTF());
+		Optional<MessageDestinationDto> userAnonymizedDestination = readOptionalUuid(in).map(MessageDestinationDto::new);
+		return new BuddyAnonymizedDto(id, userAnonymizedId, sendingStatus, userAnonymizedDestination);
+	}
+}
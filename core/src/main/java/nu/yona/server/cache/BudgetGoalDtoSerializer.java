@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import nu.yona.server.goals.service.BudgetGoalDto;
+
+class BudgetGoalDtoSerializer extends DtoStreamSerializer<BudgetGoalDto>
+{
+	static final int TYPE_ID = 2;
+
+	BudgetGoalDtoSerializer()
+	{
+		super(TYPE_ID, BudgetGoalDto.class);
+	}
+
+	@Override
+	public void write(ObjectDataOutput out, BudgetGoalDto goal) throws IOException
+	{
+		writeUuid(out, goal.getGoalId());
+		writeUuid(out, goal.getActivityCategoryId());
+		out.writeInt(goal.getMaxDurationMinutes());
+		writeOptionalDateTime(out, goal.getCreationTime());
+		writeOptionalDateTime(out, goal.getEndTime());
+		out.writeBoolean(goal.isMandatory());
+	}
+
+	@Override
+	public BudgetGoalDto read(ObjectDataInput in) throws IOException
+	{
+		UUID id = readUuid(in);
+		UUID activityCategoryId = readUuid(in);
+		int maxDurationMinutes = in.readInt();
+		Optional<LocalDateTime> creationTime = readOptionalDateTime(in);
+		Optional<LocalDateTime> endTime = readOptionalDateTime(in);
+		boolean mandatory = in.readBoolean();
+		return new BudgetGoalDto(id, activityCategoryId, maxDurationMinutes, creationTime.get(), endTime, mandatory);
+	}
+}
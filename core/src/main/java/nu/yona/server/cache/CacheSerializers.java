@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.util.Arrays;
+
+import com.hazelcast.config.SerializationConfig;
+
+public class CacheSerializers
+{
+	private CacheSerializers()
+	{
+		// No instances
+	}
+
+	public static void register(SerializationConfig serializationConfig)
+	{
+		Arrays.asList(new MessageDestinationDtoSerializer(), new BudgetGoalDtoSerializer(), new TimeZoneGoalDtoSerializer(),
+				new BuddyAnonymizedDtoSerializer(), new UserAnonymizedDtoSerializer())
+				.forEach(s -> serializationConfig.addSerializerConfig(s.createSerializerConfig()));
+	}
+}
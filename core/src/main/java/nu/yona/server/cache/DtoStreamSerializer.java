@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+
+/**
+ * Base class for the Hazelcast serializers of the DTOs that are stored in the distributed cache. These serializers replace Java
+ * serialization, which is slow and produces large byte arrays, as it includes the class descriptors.
+ */
+abstract class DtoStreamSerializer<T> implements StreamSerializer<T>
+{
+	private final int typeId;
+	private final Class<T> typeClass;
+
+	protected DtoStreamSerializer(int typeId, Class<T> typeClass)
+	{
+		this.typeId = typeId;
+		this.typeClass = typeClass;
+	}
+
+	@Override
+	public int getTypeId()
+	{
+		return typeId;
+	}
+
+	@Override
+	public void destroy()
+	{
+		// Nothing to do here
+	}
+
+	SerializerConfig createSerializerConfig()
+	{
+		return new SerializerConfig().setTypeClass(typeClass).setImplementation(this);
+	}
+
+	protected static void writeUuid(ObjectDataOutput out, UUID uuid) throws IOException
+	{
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	protected static UUID readUuid(ObjectDataInput in) throws IOException
+	{
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+	protected static void writeOptionalUuid(ObjectDataOutput out, Optional<UUID> uuid) throws IOException
+	{
+		out.writeBoolean(uuid.isPresent());
+		if (uuid.isPresent())
+		{
+			writeUuid(out, uuid.get());
+		}
+	}
+
+	protected static Optional<UUID> readOptionalUuid(ObjectDataInput in) throws IOException
+	{
+		return in.readBoolean() ? Optional.of(readUuid(in)) : Optional.empty();
+	}
+
+	protected static void writeUuids(ObjectDataOutput out, Collection<UUID> uuids) throws IOException
+	{
+		out.writeInt(uuids.size());
+		for (UUID uuid : uuids)
+		{
+			writeUuid(out, uuid);
+		}
+	}
+
+	protected static Set<UUID> readUuids(ObjectDataInput in) throws IOException
+	{
+		int size = in.readInt();
+		Set<UUID> uuids = new HashSet<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			uuids.add(readUuid(in));
+		}
+		return uuids;
+	}
+
+	protected static void writeUuidMap(ObjectDataOutput out, Map<UUID, UUID> uuidMap) throws IOException
+	{
+		out.writeInt(uuidMap.size());
+		for (Map.Entry<UUID, UUID> entry : uuidMap.entrySet())
+		{
+			writeUuid(out, entry.getKey());
+			writeUuid(out, entry.getValue());
+		}
+	}
+
+	protected static Map<UUID, UUID> readUuidMap(ObjectDataInput in) throws IOException
+	{
+		int size = in.readInt();
+		Map<UUID, UUID> uuidMap = new HashMap<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			uuidMap.put(readUuid(in), readUuid(in));
+		}
+		return uuidMap;
+	}
+
+	protected static void writeOptionalDate(ObjectDataOutput out, Optional<LocalDate> date) throws IOException
+	{
+		out.writeBoolean(date.isPresent());
+		if (date.isPresent())
+		{
+			out.writeLong(date.get().toEpochDay());
+		}
+	}
+
+	protected static Optional<LocalDate> readOptionalDate(ObjectDataInput in) throws IOException
+	{
+		return in.readBoolean() ? Optional.of(LocalDate.ofEpochDay(in.readLong())) : Optional.empty();
+	}
+
+	protected static void writeOptionalDateTime(ObjectDataOutput out, Optional<LocalDateTime> dateTime) throws IOException
+	{
+		out.writeBoolean(dateTime.isPresent());
+		if (dateTime.isPresent())
+		{
+			out.writeLong(dateTime.get().toEpochSecond(ZoneOffset.UTC));
+			out.writeInt(dateTime.get().getNano());
+		}
+	}
+
+	protected static Optional<LocalDateTime> readOptionalDateTime(ObjectDataInput in) throws IOException
+	{
+		return in.readBoolean() ? Optional.of(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC))
+				: Optional.empty();
+	}
+
+	protected static void writeStrings(ObjectDataOutput out, List<String> strings) throws IOException
+	{
+		out.writeInt(strings.size());
+		for (String string : strings)
+		{
+			out.writeUTF(string);
+		}
+	}
+
+	protected static List<String> readStrings(ObjectDataInput in) throws IOException
+	{
+		int size = in.readInt();
+		List<String> strings = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			strings.add(in.readUTF());
+		}
+		return strings;
+	}
+}
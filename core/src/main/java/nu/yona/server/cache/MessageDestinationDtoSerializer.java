@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.io.IOException;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import nu.yona.server.messaging.service.MessageDestinationDto;
+
+class MessageDestinationDtoSerializer extends DtoStreamSerializer<MessageDestinationDto>
+{
+	static final int TYPE_ID = 1;
+
+	MessageDestinationDtoSerializer()
+	{
+		super(TYPE_ID, MessageDestinationDto.class);
+	}
+
+	@Override
+	public void write(ObjectDataOutput out, MessageDestinationDto messageDestination) throws IOException
+	{
+		writeUuid(out, messageDestination.getId());
+	}
+
+	@Override
+	public MessageDestinationDto read(ObjectDataInput in) throws IOException
+	{
+		return new MessageDestinationDto(readUuid(in));
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import nu.yona.server.goals.service.TimeZoneGoalDto;
+
+class TimeZoneGoalDtoSerializer extends DtoStreamSerializer<TimeZoneGoalDto>
+{
+	static final int TYPE_ID = 3;
+
+	TimeZoneGoalDtoSerializer()
+	{
+		super(TYPE_ID, TimeZoneGoalDto.class);
+	}
+
+	@Override
+	public void write(ObjectDataOutput out, TimeZoneGoalDto goal) throws IOException
+	{
+		writeUuid(out, goal.getGoalId());
+		writeUuid(out, goal.getActivityCategoryId());
+		writeStrings(out, goal.getZones());
+		writeOptionalDateTime(out, goal.getCreationTime());
+		writeOptionalDateTime(out, goal.getEndTime());
+		List<Integer> spreadCells = goal.getSpreadCells();
+		out.writeInt(spreadCells.size());
+		for (int spreadCell : spreadCells)
+		{
+			out.writeInt(spreadCell);
+		}
+	}
+
+	@Override
+	public TimeZoneGoalDto read(ObjectDataInput in) throws IOException
+	{
+		UUID id = readUuid(in);
+		UUID activityCategoryId = readUuid(in);
+		List<String> zones = readStrings(in);
+		Optional<LocalDateTime> creationTime = readOptionalDateTime(in);
+		Optional<LocalDateTime> endTime = readOptionalDateTime(in);
+		int numSpreadCells = in.readInt();
+		List<Integer> spreadCells = new ArrayList<>(numSpreadCells);
+		for (int i = 0; i < numSpreadCells; i++)
+		{
+			spreadCells.add(in.readInt());
+		}
+		return new TimeZoneGoalDto(id, activityCategoryId, zones, creationTime.get(), endTime, spreadCells);
+	}
+}
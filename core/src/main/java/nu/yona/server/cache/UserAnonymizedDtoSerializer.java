@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import nu.yona.server.goals.service.GoalDto;
+import nu.yona.server.messaging.service.MessageDestinationDto;
+import nu.yona.server.subscriptions.service.BuddyAnonymizedDto;
+import nu.yona.server.subscriptions.service.UserAnonymizedDto;
+
+/**
+ * Serializes the anonymized user. The goals, the buddies and the message destination are written as nested objects, so Hazelcast
+ * serializes them with their own serializers. The goal indexes are not written, as the constructor rebuilds them.
+ */
+class UserAnonymizedDtoSerializer extends DtoStreamSerializer<UserAnonymizedDto>
+{
+	static final int TYPE_ID = 4;
+
+	UserAnonymizedDtoSerializer()
+	{
+		super(TYPE_ID, UserAnonymizedDto.class);
+	}
+
+	@Override
+	public void write(ObjectDataOutput out, UserAnonymizedDto userAnonymized) throws IOException
+	{
+		writeUuid(out, userAnonymized.getId());
+		writeOptionalDate(out, userAnonymized.getLastMonitoredActivityDate());
+		Set<GoalDto> goals = userAnonymized.getGoals();
+		out.writeInt(goals.size());
+		for (GoalDto goal : goals)
+		{
+			out.writeObject(goal);
+		}
+		writeUuidMap(out, userAnonymized.getPreviousGoalVersionIds());
+		out.writeObject(userAnonymized.getAnonymousDestination());
+		Set<BuddyAnonymizedDto> buddiesAnonymized = userAnonymized.getBuddiesAnonymized();
+		out.writeInt(buddiesAnonymized.size());
+		for (BuddyAnonymizedDto buddyAnonymized : buddiesAnonymized)
+		{
+			out.writeObject(buddyAnonymized);
+		}
+	}
+
+	@Override
+	public UserAnonymizedDto read(ObjectDataInput in) throws IOException
+	{
+		UUID id = readUuid(in);
+		Optional<LocalDate> lastMonitoredActivityDate = readOptionalDate(in);
+		int numGoals = in.readInt();
+		Set<GoalDto> goals = new HashSet<>(numGoals);
+		for (int i = 0; i < numGoals; i++)
+		{
+			goals.add(in.readObject());
+		}
+		Map<UUID, UUID> previousGoalVersionIds = readUuidMap(in);
+		MessageDestinationDto anonymousMessageDestination = in.readObject();
+		int numBuddiesAnonymized = in.readInt();
+		Set<BuddyAnonymizedDto> buddiesAnonymized = new HashSet<>(numBuddiesAnonymized);
+		for (int i = 0; i < numBuddiesAnonymized; i++)
+		{
+			buddiesAnonymized.add(in.readObject());
+		}
+		return new UserAnonymizedDto(id, lastMonitoredActivityDate, goals, previousGoalVersionIds, anonymousMessageDestination,
+				buddiesAnonymized);
+	}
+}
@@ -10,9 +10,14 @@ import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.InvalidParameterSpecException;
 import java.security.spec.KeySpec;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
@@ -27,6 +32,8 @@ import org.slf4j.LoggerFactory;
 import nu.yona.server.crypto.CryptoException;
 import nu.yona.server.crypto.CryptoUtil;
 import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Phase;
 
 public class CryptoSession implements AutoCloseable
 {
@@ -48,6 +55,7 @@ public class CryptoSession implements AutoCloseable
 	private final SecretKey secretKey;
 	private final CryptoSession previousCryptoSession;
 	private Cipher decryptionCipher;
+	private final Map<Object, Object> memoizedValues = new HashMap<>();
 
 	private CryptoSession(SecretKey secretKey, CryptoSession previousCryptoSession)
 	{
@@ -94,6 +102,7 @@ public class CryptoSession implements AutoCloseable
 
 	public static CryptoSession start(Optional<String> optionalPassword, VoidPredicate passwordChecker)
 	{
+		long startNanos = System.nanoTime();
 		String password = getPassword(optionalPassword);
 		CryptoSession session = start(getSecretKey(password));
 		try
@@ -108,6 +117,10 @@ public class CryptoSession implements AutoCloseable
 			session.close();
 			throw e;
 		}
+		finally
+		{
+			RequestTimings.addPhaseTime(Phase.CRYPTO_SESSION_START, System.nanoTime() - startNanos);
+		}
 
 		return session;
 	}
@@ -128,6 +141,36 @@ public class CryptoSession implements AutoCloseable
 		return cryptoSession;
 	}
 
+	/**
+	 * Returns the value of the given type for the given ID, as memoized in this session. The supplier is called on first use. This
+	 * is meant for data that is decrypted with the key of this session, so it is loaded and decrypted at most once per request.
+	 * The memoized values are dropped on every database write on this thread (see {@link #clearMemoizedValues()}), so they do not
+	 * outlive a change of the data they were derived from.
+	 */
+	public <T> T getMemoized(Class<T> type, UUID id, Supplier<T> supplier)
+	{
+		Object key = new SimpleImmutableEntry<>(type, id);
+		Object value = memoizedValues.get(key);
+		if (value == null)
+		{
+			// Not computeIfAbsent, as the supplier might write to the database and thus clear the memoized values
+			value = supplier.get();
+			memoizedValues.put(key, value);
+		}
+		return type.cast(value);
+	}
+
+	/**
+	 * Drops the memoized values of all crypto sessions on the current thread.
+	 */
+	public static void clearMemoizedValues()
+	{
+		for (CryptoSession session = threadLocal.get(); session != null; session = session.previousCryptoSession)
+		{
+			session.memoizedValues.clear();
+		}
+	}
+
 	public String getKeyString()
 	{
 		return encodeAesKey(secretKey);
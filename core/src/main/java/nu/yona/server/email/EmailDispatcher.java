@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.email;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.properties.EmailProperties;
+import nu.yona.server.properties.YonaProperties;
+
+/**
+ * Sends the rendered e-mails from a bounded queue on a separate thread. The dispatcher takes all queued messages (up to
+ * yona.email.maxMessagesPerConnection) and sends them in one call to the mail sender, which sends them through a single SMTP
+ * connection. If the queue is full, the message is sent on the thread of the caller, so the queue exerts back pressure rather
+ * than dropping messages.
+ */
+@Component
+class EmailDispatcher
+{
+	private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+
+	private static final long POLL_TIMEOUT_SECONDS = 1;
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+	static class EmailMessage
+	{
+		private final String senderName;
+		private final InternetAddress receiverAddress;
+		private final String subjectText;
+		private final String bodyText;
+
+		EmailMessage(String senderName, InternetAddress receiverAddress, String subjectText, String bodyText)
+		{
+			this.senderName = senderName;
+			this.receiverAddress = receiverAddress;
+			this.subjectText = subjectText;
+			this.bodyText = bodyText;
+		}
+	}
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private JavaMailSender mailSender;
+
+	@Autowired
+	private CounterService counterService;
+
+	@Autowired
+	private GaugeService gaugeService;
+
+	private BlockingQueue<EmailMessage> queue;
+	private Thread dispatcherThread;
+	private volatile boolean isStopping;
+
+	@PostConstruct
+	private void start()
+	{
+		queue = new ArrayBlockingQueue<>(yonaProperties.getEmail().getDispatcherQueueCapacity());
+		dispatcherThread = new Thread(this::dispatchUntilStopped, "email-dispatcher");
+		dispatcherThread.setDaemon(true);
+		dispatcherThread.start();
+	}
+
+	@PreDestroy
+	private void stop() throws InterruptedException
+	{
+		isStopping = true;
+		dispatcherThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+		if (!queue.isEmpty())
+		{
+			logger.warn("{} e-mails were not sent before shutdown", queue.size());
+		}
+	}
+
+	void dispatch(EmailMessage message)
+	{
+		if (queue.offer(message))
+		{
+			gaugeService.submit("gauge.email.queueSize", queue.size());
+			return;
+		}
+		logger.warn("E-mail queue is full, sending e-mail to '{}' synchronously", message.receiverAddress);
+		counterService.increment("counter.email.sentSynchronously");
+		send(Collections.singletonList(message));
+	}
+
+	private void dispatchUntilStopped()
+	{
+		int maxMessagesPerConnection = yonaProperties.getEmail().getMaxMessagesPerConnection();
+		try
+		{
+			while (!isStopping || !queue.isEmpty())
+			{
+				EmailMessage first = queue.poll(POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+				if (first == null)
+				{
+					continue;
+				}
+				List<EmailMessage> batch = new ArrayList<>();
+				batch.add(first);
+				queue.drainTo(batch, maxMessagesPerConnection - 1);
+				send(batch);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void send(List<EmailMessage> messages)
+	{
+		try
+		{
+			mailSender.send(messages.stream().map(this::createMimeMessage).toArray(MimeMessage[]::new));
+			messages.forEach(m -> counterService.increment("counter.email.sent"));
+			logger.info("{} e-mail(s) sent succesfully.", messages.size());
+		}
+		catch (MailSendException e)
+		{
+			int failedCount = e.getFailedMessages().isEmpty() ? messages.size() : e.getFailedMessages().size();
+			for (int i = 0; i < failedCount; i++)
+			{
+				counterService.increment("counter.email.failed");
+			}
+			for (int i = failedCount; i < messages.size(); i++)
+			{
+				counterService.increment("counter.email.sent");
+			}
+			logger.error("Sending " + failedCount + " of " + messages.size() + " e-mail(s) failed", e);
+		}
+		catch (MailException | YonaException e)
+		{
+			messages.forEach(m -> counterService.increment("counter.email.failed"));
+			logger.error("Sending " + messages.size() + " e-mail(s) failed", e);
+		}
+	}
+
+	private MimeMessage createMimeMessage(EmailMessage message)
+	{
+		try
+		{
+			EmailProperties emailProperties = yonaProperties.getEmail();
+			MimeMessage mimeMessage = mailSender.createMimeMessage();
+			MimeMessageHelper helper = new MimeMessageHelper(mimeMessage);
+			helper.setFrom(new InternetAddress(emailProperties.getSenderAddress(), message.senderName));
+			helper.setTo(message.receiverAddress);
+			helper.setSubject(message.subjectText);
+			helper.setText(message.bodyText, true);
+			return mimeMessage;
+		}
+		catch (MessagingException | UnsupportedEncodingException e)
+		{
+			throw YonaException.unexpected(e);
+		}
+	}
+}
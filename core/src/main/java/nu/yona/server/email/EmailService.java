@@ -7,22 +7,24 @@ package nu.yona.server.email;
 import java.util.Map;
 
 import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.mail.javamail.MimeMessagePreparator;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
+import nu.yona.server.email.EmailDispatcher.EmailMessage;
 import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.util.ThymeleafUtil;
+import nu.yona.server.util.TransactionHelper;
 
+/**
+ * Renders e-mails and hands them over to the {@link EmailDispatcher} once the transaction of the caller commits. The caller does
+ * not wait for the SMTP server, and no e-mail is sent for a rolled back transaction.
+ */
 @Service
 public class EmailService
 {
@@ -30,7 +32,9 @@ public class EmailService
 	@Autowired
 	private YonaProperties yonaProperties;
 	@Autowired
-	private JavaMailSender mailSender;
+	private EmailDispatcher emailDispatcher;
+	@Autowired
+	private TransactionHelper transactionHelper;
 	@Autowired
 	@Qualifier("emailTemplateEngine")
 	private TemplateEngine emailTemplateEngine;
@@ -46,28 +50,17 @@ public class EmailService
 			return;
 		}
 
-		MimeMessagePreparator preparator = new MimeMessagePreparator() {
-			@Override
-			public void prepare(MimeMessage mimeMessage) throws Exception
-			{
-				Context ctx = ThymeleafUtil.createContext();
-				ctx.setVariable("includedMediaBaseUrl", yonaProperties.getEmail().getIncludedMediaBaseUrl());
-				ctx.setVariable("appleAppStoreUrl", yonaProperties.getEmail().getAppleAppStoreUrl());
-				ctx.setVariable("googlePlayStoreUrl", yonaProperties.getEmail().getGooglePlayStoreUrl());
-				templateParameters.entrySet().stream().forEach(e -> ctx.setVariable(e.getKey(), e.getValue()));
-
-				String subjectText = emailTemplateEngine.process(subjectTemplateName + ".txt", ctx);
-				String bodyText = emailTemplateEngine.process(bodyTemplateName + ".html", ctx);
+		Context ctx = ThymeleafUtil.createContext();
+		ctx.setVariable("includedMediaBaseUrl", yonaProperties.getEmail().getIncludedMediaBaseUrl());
+		ctx.setVariable("appleAppStoreUrl", yonaProperties.getEmail().getAppleAppStoreUrl());
+		ctx.setVariable("googlePlayStoreUrl", yonaProperties.getEmail().getGooglePlayStoreUrl());
+		templateParameters.entrySet().stream().forEach(e -> ctx.setVariable(e.getKey(), e.getValue()));
 
-				MimeMessageHelper message = new MimeMessageHelper(mimeMessage);
-				message.setFrom(new InternetAddress(yonaProperties.getEmail().getSenderAddress(), senderName));
-				message.setTo(receiverAddress);
-				message.setSubject(subjectText);
-				message.setText(bodyText, true);
-			}
-		};
-		mailSender.send(preparator);
+		// Render in the thread of the caller, as the templates depend on its locale
+		String subjectText = emailTemplateEngine.process(subjectTemplateName + ".txt", ctx);
+		String bodyText = emailTemplateEngine.process(bodyTemplateName + ".html", ctx);
 
-		logger.info("E-mail sent succesfully.");
+		EmailMessage message = new EmailMessage(senderName, receiverAddress, subjectText, bodyText);
+		transactionHelper.executeAfterCommit(() -> emailDispatcher.dispatch(message));
 	}
 }
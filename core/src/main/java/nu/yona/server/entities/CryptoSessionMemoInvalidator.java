@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.entities;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.DeleteEvent;
+import org.hibernate.event.spi.DeleteEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.MergeEvent;
+import org.hibernate.event.spi.MergeEventListener;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import nu.yona.server.crypto.seckey.CryptoSession;
+
+/**
+ * Drops the values memoized in the crypto sessions of the current thread on every database write, so a request never works with
+ * a memoized DTO that is older than a change it made itself. Explicit saves and deletes are caught when they are called, changes
+ * to managed entities when they are flushed.
+ */
+@Component
+public class CryptoSessionMemoInvalidator
+		implements PersistEventListener, MergeEventListener, DeleteEventListener, PostInsertEventListener,
+		PostUpdateEventListener, PostDeleteEventListener, PostCollectionUpdateEventListener
+{
+	private static final long serialVersionUID = 2818567916325446339L;
+
+	@Autowired
+	private transient EntityManagerFactory entityManagerFactory;
+
+	@PostConstruct
+	private void initialize()
+	{
+		SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		EventListenerRegistry eventListenerRegistry = sessionFactory.getServiceRegistry()
+				.getService(EventListenerRegistry.class);
+		eventListenerRegistry.appendListeners(EventType.PERSIST, this);
+		eventListenerRegistry.appendListeners(EventType.MERGE, this);
+		eventListenerRegistry.appendListeners(EventType.DELETE, this);
+		eventListenerRegistry.appendListeners(EventType.POST_INSERT, this);
+		eventListenerRegistry.appendListeners(EventType.POST_UPDATE, this);
+		eventListenerRegistry.appendListeners(EventType.POST_DELETE, this);
+		eventListenerRegistry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+	}
+
+	@Override
+	public void onPersist(PersistEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void onPersist(PersistEvent event, Map createdAlready)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public void onMerge(MergeEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void onMerge(MergeEvent event, Map copiedAlready)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public void onDelete(DeleteEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void onDelete(DeleteEvent event, Set transientEntities)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public void onPostUpdateCollection(PostCollectionUpdateEvent event)
+	{
+		CryptoSession.clearMemoizedValues();
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister)
+	{
+		return false;
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+
+/**
+ * Opt-in instrumentation of Hibernate (yona.monitoring.queryCountingEnabled). It enables the Hibernate statistics and exposes
+ * them through the actuator metrics endpoint. It also counts the entity loads and collection fetches per request in the
+ * {@link RequestTimings}. The JDBC statements are counted by the {@link RequestTimingJdbcInterceptor}.
+ */
+@Component
+public class HibernateInstrumentation implements PublicMetrics
+{
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@PostConstruct
+	private void initialize()
+	{
+		if (!yonaProperties.getMonitoring().isQueryCountingEnabled())
+		{
+			return;
+		}
+		SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+
+		EventListenerRegistry eventListenerRegistry = sessionFactory.getServiceRegistry()
+				.getService(EventListenerRegistry.class);
+		eventListenerRegistry.appendListeners(EventType.POST_LOAD,
+				(PostLoadEventListener) e -> RequestTimings.increment(Counter.ENTITY_LOADS));
+		eventListenerRegistry.appendListeners(EventType.INIT_COLLECTION,
+				(InitializeCollectionEventListener) e -> RequestTimings.increment(Counter.COLLECTION_FETCHES));
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics()
+	{
+		if (statistics == null)
+		{
+			return Collections.emptyList();
+		}
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<>("hibernate.statements.prepared", statistics.getPrepareStatementCount()));
+		metrics.add(new Metric<>("hibernate.queries.executed", statistics.getQueryExecutionCount()));
+		metrics.add(new Metric<>("hibernate.queries.maxTimeMillis", statistics.getQueryExecutionMaxTime()));
+		metrics.add(new Metric<>("hibernate.entities.loaded", statistics.getEntityLoadCount()));
+		metrics.add(new Metric<>("hibernate.entities.fetched", statistics.getEntityFetchCount()));
+		metrics.add(new Metric<>("hibernate.collections.loaded", statistics.getCollectionLoadCount()));
+		metrics.add(new Metric<>("hibernate.collections.fetched", statistics.getCollectionFetchCount()));
+		metrics.add(new Metric<>("hibernate.flushes", statistics.getFlushCount()));
+		metrics.add(new Metric<>("hibernate.sessions.opened", statistics.getSessionOpenCount()));
+		return metrics;
+	}
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.entities;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.tomcat.jdbc.pool.interceptor.AbstractCreateStatementInterceptor;
+
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+import nu.yona.server.util.RequestTimings.Phase;
+
+/**
+ * Tomcat JDBC pool interceptor that adds the execution time of the statements to the database phase of the request timings and
+ * counts the executed statements. Statements created outside a request are not wrapped, so batch and background processing have
+ * no overhead.
+ */
+public class RequestTimingJdbcInterceptor extends AbstractCreateStatementInterceptor
+{
+	@Override
+	public Object createStatement(Object proxy, Method method, Object[] args, Object statement, long time)
+	{
+		if (!RequestTimings.isActive())
+		{
+			return statement;
+		}
+		return Proxy.newProxyInstance(RequestTimingJdbcInterceptor.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+				new TimingStatementHandler(statement));
+	}
+
+	@Override
+	public void closeInvoked()
+	{
+		// Nothing to do here
+	}
+
+	private static class TimingStatementHandler implements InvocationHandler
+	{
+		private final Object statement;
+
+		TimingStatementHandler(Object statement)
+		{
+			this.statement = statement;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			boolean isExecute = method.getName().startsWith("execute");
+			long startNanos = isExecute ? System.nanoTime() : 0;
+			try
+			{
+				return method.invoke(statement, args);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+			finally
+			{
+				if (isExecute)
+				{
+					RequestTimings.addPhaseTime(Phase.DATABASE, System.nanoTime() - startNanos);
+					RequestTimings.increment(Counter.JDBC_STATEMENTS);
+				}
+			}
+		}
+	}
+}
@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.exceptions;
 
@@ -42,4 +42,19 @@ public class AnalysisException extends YonaException
 		return new AnalysisException("error.analysis.invalid.app.activity.data.ends.in.future", userAnonymizedId, application,
 				endTime);
 	}
+
+	public static AnalysisException invalidNetworkActivityStream(int lineNumber, String detail)
+	{
+		return new AnalysisException("error.analysis.invalid.network.activity.stream", lineNumber, detail);
+	}
+
+	public static AnalysisException networkActivityStreamTooLarge(int maxEventCount)
+	{
+		return new AnalysisException("error.analysis.network.activity.stream.too.large", maxEventCount);
+	}
+
+	public static AnalysisException invalidNetworkActivity(int lineNumber, String detail)
+	{
+		return new AnalysisException("error.analysis.invalid.network.activity", lineNumber, detail);
+	}
 }
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.goals.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Immutable inverted index of the activity categories, from application name and from Smoothwall category to the activity
+ * categories that contain them. The index is built once from the set of all activity categories and is rebuilt when that set
+ * changes.
+ */
+final class ActivityCategoryIndex
+{
+	private final Set<ActivityCategoryDto> activityCategories;
+	private final Map<String, Set<ActivityCategoryDto>> activityCategoriesByApplication;
+	private final Map<String, Set<ActivityCategoryDto>> activityCategoriesBySmoothwallCategory;
+
+	private ActivityCategoryIndex(Set<ActivityCategoryDto> activityCategories)
+	{
+		this.activityCategories = activityCategories;
+		this.activityCategoriesByApplication = createIndex(activityCategories, ActivityCategoryDto::getApplications);
+		this.activityCategoriesBySmoothwallCategory = createIndex(activityCategories, ActivityCategoryDto::getSmoothwallCategories);
+	}
+
+	static ActivityCategoryIndex createInstance(Set<ActivityCategoryDto> activityCategories)
+	{
+		return new ActivityCategoryIndex(activityCategories);
+	}
+
+	/**
+	 * Returns whether this index was built from the given set of activity categories. This is an identity check, so it is cheap.
+	 * Whenever the set is retrieved anew from the cache or the database, the index is rebuilt.
+	 */
+	boolean isBuiltFrom(Set<ActivityCategoryDto> activityCategories)
+	{
+		return this.activityCategories == activityCategories;
+	}
+
+	Set<ActivityCategoryDto> getMatchingCategoriesForApp(String application)
+	{
+		return activityCategoriesByApplication.getOrDefault(application, Collections.emptySet());
+	}
+
+	Set<ActivityCategoryDto> getMatchingCategoriesForSmoothwallCategories(Set<String> smoothwallCategories)
+	{
+		if (smoothwallCategories.size() == 1)
+		{
+			// Typical case, no need to collect the matches into a new set
+			return activityCategoriesBySmoothwallCategory.getOrDefault(smoothwallCategories.iterator().next(),
+					Collections.emptySet());
+		}
+		Set<ActivityCategoryDto> matchingCategories = new HashSet<>();
+		smoothwallCategories.forEach(
+				sc -> matchingCategories.addAll(activityCategoriesBySmoothwallCategory.getOrDefault(sc, Collections.emptySet())));
+		return matchingCategories;
+	}
+
+	private static Map<String, Set<ActivityCategoryDto>> createIndex(Set<ActivityCategoryDto> activityCategories,
+			Function<ActivityCategoryDto, Set<String>> keyExtractor)
+	{
+		Map<String, ImmutableSet.Builder<ActivityCategoryDto>> builders = new HashMap<>();
+		for (ActivityCategoryDto activityCategory : activityCategories)
+		{
+			keyExtractor.apply(activityCategory)
+					.forEach(key -> builders.computeIfAbsent(key, k -> ImmutableSet.builder()).add(activityCategory));
+		}
+		ImmutableMap.Builder<String, Set<ActivityCategoryDto>> index = ImmutableMap.builder();
+		builders.forEach((key, builder) -> index.put(key, builder.build()));
+		return index.build();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015, 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.goals.service;
@@ -34,10 +34,15 @@ import nu.yona.server.goals.entities.ActivityCategoryRepository;
 @Service
 public class ActivityCategoryService
 {
+	public static final String CACHE_NAME = "activityCategorySet";
+
 	/**
 	 * The FilterService is created as a small nested class, to ensure ActivityCategoryService.getAllActivityCategories is called
 	 * from outside, through the Spring proxy. Calling it from inside means the call does not go through the Spring proxy and thus
-	 * Spring cannot intercept the call to fetch the data from the cache.
+	 * Spring cannot intercept the call to fetch the data from the cache.<br/>
+	 * The filter service is called for every activity that the analysis engine receives. To make matching cheap, it matches
+	 * through an inverted index. The activity category set is near cached in deserialized form, so the same set instance is
+	 * returned until the cache entry is evicted or updated. The index is rebuilt when a different set instance is returned.
 	 */
 	@Service
 	public static class FilterService
@@ -45,19 +50,29 @@ public class ActivityCategoryService
 		@Autowired
 		private ActivityCategoryService activityCategoryService;
 
+		private volatile ActivityCategoryIndex index = ActivityCategoryIndex.createInstance(Collections.emptySet());
+
 		public Set<ActivityCategoryDto> getMatchingCategoriesForSmoothwallCategories(Set<String> smoothwallCategories)
 		{
-			return activityCategoryService.getAllActivityCategories().stream().filter(ac -> {
-				Set<String> acSmoothwallCategories = new HashSet<>(ac.getSmoothwallCategories());
-				acSmoothwallCategories.retainAll(smoothwallCategories);
-				return !acSmoothwallCategories.isEmpty();
-			}).collect(Collectors.toSet());
+			return getIndex().getMatchingCategoriesForSmoothwallCategories(smoothwallCategories);
 		}
 
 		public Set<ActivityCategoryDto> getMatchingCategoriesForApp(String application)
 		{
-			return activityCategoryService.getAllActivityCategories().stream()
-					.filter(ac -> ac.getApplications().contains(application)).collect(Collectors.toSet());
+			return getIndex().getMatchingCategoriesForApp(application);
+		}
+
+		private ActivityCategoryIndex getIndex()
+		{
+			Set<ActivityCategoryDto> allActivityCategories = activityCategoryService.getAllActivityCategories();
+			ActivityCategoryIndex currentIndex = index;
+			if (currentIndex.isBuiltFrom(allActivityCategories))
+			{
+				return currentIndex;
+			}
+			currentIndex = ActivityCategoryIndex.createInstance(allActivityCategories);
+			index = currentIndex;
+			return currentIndex;
 		}
 	}
 
@@ -73,7 +88,7 @@ public class ActivityCategoryService
 		return ActivityCategoryDto.createInstance(activityCategoryEntity);
 	}
 
-	@Cacheable(value = "activityCategorySet", key = "'instance'")
+	@Cacheable(value = CACHE_NAME, key = "'instance'")
 	@Transactional
 	public Set<ActivityCategoryDto> getAllActivityCategories()
 	{
@@ -83,7 +98,7 @@ public class ActivityCategoryService
 						(Comparator<ActivityCategoryDto> & Serializable) (l, r) -> l.getName().compareTo(r.getName()))));
 	}
 
-	@CacheEvict(value = "activityCategorySet", key = "'instance'")
+	@CacheEvict(value = CACHE_NAME, key = "'instance'")
 	@Transactional
 	public ActivityCategoryDto addActivityCategory(ActivityCategoryDto activityCategoryDto)
 	{
@@ -93,7 +108,7 @@ public class ActivityCategoryService
 		return ActivityCategoryDto.createInstance(repository.save(activityCategoryDto.createActivityCategoryEntity()));
 	}
 
-	@CacheEvict(value = "activityCategorySet", key = "'instance'")
+	@CacheEvict(value = CACHE_NAME, key = "'instance'")
 	@Transactional
 	public ActivityCategoryDto updateActivityCategory(UUID id, ActivityCategoryDto activityCategoryDto)
 	{
@@ -103,7 +118,7 @@ public class ActivityCategoryService
 		return ActivityCategoryDto.createInstance(updateActivityCategory(originalEntity, activityCategoryDto));
 	}
 
-	@CacheEvict(value = "activityCategorySet", key = "'instance'")
+	@CacheEvict(value = CACHE_NAME, key = "'instance'")
 	@Transactional
 	public void updateActivityCategorySet(Set<ActivityCategoryDto> activityCategoryDtos)
 	{
@@ -115,7 +130,7 @@ public class ActivityCategoryService
 		logger.info("Activity category set update completed");
 	}
 
-	@CacheEvict(value = "activityCategorySet", key = "'instance'")
+	@CacheEvict(value = CACHE_NAME, key = "'instance'")
 	@Transactional
 	public void deleteActivityCategory(UUID id)
 	{
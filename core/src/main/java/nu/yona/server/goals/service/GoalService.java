@@ -53,8 +53,7 @@ public class GoalService
 
 	public GoalDto getGoalForUserAnonymizedId(UUID userAnonymizedId, UUID goalId)
 	{
-		return userAnonymizedService.getUserAnonymized(userAnonymizedId).getGoals().stream()
-				.filter(g -> g.getGoalId().equals(goalId)).findFirst()
+		return userAnonymizedService.getUserAnonymized(userAnonymizedId).getGoal(goalId)
 				.orElseThrow(() -> GoalServiceException.goalNotFoundByIdForUserAnonymized(userAnonymizedId, goalId));
 	}
 
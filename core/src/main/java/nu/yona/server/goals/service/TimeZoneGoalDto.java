@@ -44,7 +44,7 @@ public class TimeZoneGoalDto extends GoalDto
 		this.spreadCells = Collections.emptyList();
 	}
 
-	private TimeZoneGoalDto(UUID id, UUID activityCategoryId, List<String> zones, LocalDateTime creationTime,
+	public TimeZoneGoalDto(UUID id, UUID activityCategoryId, List<String> zones, LocalDateTime creationTime,
 			Optional<LocalDateTime> endTime, List<Integer> spreadCells)
 	{
 		super(id, Optional.of(creationTime), endTime, activityCategoryId, false);
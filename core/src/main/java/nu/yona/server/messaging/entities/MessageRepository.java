@@ -11,16 +11,17 @@ import java.util.UUID;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import nu.yona.server.analysis.entities.Activity;
 import nu.yona.server.analysis.entities.IntervalActivity;
 
 @Repository
-public interface MessageRepository extends CrudRepository<Message, Long>
+public interface MessageRepository extends JpaRepository<Message, Long>
 {
 	@Query("select m from Message m, MessageDestination d where d.id = :destinationId and m member of d.messages order by m.creationTime desc")
 	Page<Message> findFromDestination(@Param("destinationId") UUID destinationId, Pageable pageable);
@@ -44,6 +45,9 @@ public interface MessageRepository extends CrudRepository<Message, Long>
 	@Query("select m.id from Message m, MessageDestination d where d.id = :destinationId and m.isProcessed = false and m member of d.messages order by m.id desc")
 	List<Long> findUnprocessedMessagesFromDestination(@Param("destinationId") UUID destinationId);
 
+	@Query("select m from GoalConflictMessage m where m.activity in :activities")
+	List<Message> findGoalConflictMessagesForActivities(@Param("activities") Collection<Activity> activities);
+
 	@Modifying
 	@Query("delete from Message m where m.intervalActivity in :intervalActivities")
 	void deleteMessagesForIntervalActivities(@Param("intervalActivities") Collection<IntervalActivity> intervalActivities);
@@ -27,10 +27,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
+import nu.yona.server.analysis.entities.Activity;
 import nu.yona.server.analysis.entities.IntervalActivity;
 import nu.yona.server.exceptions.InvalidMessageActionException;
 import nu.yona.server.messaging.entities.Message;
 import nu.yona.server.messaging.entities.MessageDestination;
+import nu.yona.server.messaging.entities.MessageRepository;
 import nu.yona.server.messaging.entities.MessageSource;
 import nu.yona.server.messaging.entities.SystemMessage;
 import nu.yona.server.subscriptions.service.UserAnonymizedDto;
@@ -325,4 +327,18 @@ public class MessageService
 		}
 		Message.getRepository().deleteMessagesForIntervalActivities(intervalActivities);
 	}
+
+	public void deleteGoalConflictMessagesForActivities(Collection<Activity> activities)
+	{
+		if (activities.isEmpty())
+		{
+			return;
+		}
+		MessageRepository messageRepository = Message.getRepository();
+		List<Message> messages = messageRepository.findGoalConflictMessagesForActivities(activities);
+		// Thread head messages have a self-reference that prevents deletion. Clear all such references.
+		messages.forEach(m -> m.clearThreadHeadSelfReference());
+		messageRepository.flush();
+		messageRepository.delete(messages);
+	}
 }
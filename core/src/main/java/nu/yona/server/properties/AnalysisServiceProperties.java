@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.properties;
 
@@ -12,6 +12,16 @@ public class AnalysisServiceProperties
 	private Duration updateSkipWindow = Duration.ofSeconds(5);
 	private Duration activityMemory = Duration.ofDays(490);
 	private String serviceUrl = "http://localhost:8081";
+	private boolean isCacheWarmUpEnabled = false;
+	private Duration cacheWarmUpActivityWindow = Duration.ofDays(1);
+	private int cacheWarmUpThreadCount = 4;
+	private Duration cacheWarmUpTimeBudget = Duration.ofMinutes(2);
+	private int bulkIngestionThreadCount = 4;
+	private int bulkIngestionMaxEventCount = 10000;
+	private boolean isNetworkActivityCoalescingEnabled = false;
+	private Duration networkActivityCoalescingFlushDelay = Duration.ofSeconds(1);
+	private int networkActivityCoalescingMaxBufferSize = 10000;
+	private int networkActivityCoalescingThreadCount = 4;
 
 	public Duration getActivityMemory()
 	{
@@ -52,4 +62,104 @@ public class AnalysisServiceProperties
 	{
 		this.serviceUrl = serviceUrl;
 	}
+
+	public boolean isCacheWarmUpEnabled()
+	{
+		return isCacheWarmUpEnabled;
+	}
+
+	public void setCacheWarmUpEnabled(boolean isCacheWarmUpEnabled)
+	{
+		this.isCacheWarmUpEnabled = isCacheWarmUpEnabled;
+	}
+
+	public Duration getCacheWarmUpActivityWindow()
+	{
+		return cacheWarmUpActivityWindow;
+	}
+
+	public void setCacheWarmUpActivityWindow(String cacheWarmUpActivityWindow)
+	{
+		this.cacheWarmUpActivityWindow = Duration.parse(cacheWarmUpActivityWindow);
+	}
+
+	public int getCacheWarmUpThreadCount()
+	{
+		return cacheWarmUpThreadCount;
+	}
+
+	public void setCacheWarmUpThreadCount(int cacheWarmUpThreadCount)
+	{
+		this.cacheWarmUpThreadCount = cacheWarmUpThreadCount;
+	}
+
+	public Duration getCacheWarmUpTimeBudget()
+	{
+		return cacheWarmUpTimeBudget;
+	}
+
+	public void setCacheWarmUpTimeBudget(String cacheWarmUpTimeBudget)
+	{
+		this.cacheWarmUpTimeBudget = Duration.parse(cacheWarmUpTimeBudget);
+	}
+
+	public int getBulkIngestionThreadCount()
+	{
+		return bulkIngestionThreadCount;
+	}
+
+	public void setBulkIngestionThreadCount(int bulkIngestionThreadCount)
+	{
+		this.bulkIngestionThreadCount = bulkIngestionThreadCount;
+	}
+
+	public int getBulkIngestionMaxEventCount()
+	{
+		return bulkIngestionMaxEventCount;
+	}
+
+	public void setBulkIngestionMaxEventCount(int bulkIngestionMaxEventCount)
+	{
+		this.bulkIngestionMaxEventCount = bulkIngestionMaxEventCount;
+	}
+
+	public boolean isNetworkActivityCoalescingEnabled()
+	{
+		return isNetworkActivityCoalescingEnabled;
+	}
+
+	public void setNetworkActivityCoalescingEnabled(boolean isNetworkActivityCoalescingEnabled)
+	{
+		this.isNetworkActivityCoalescingEnabled = isNetworkActivityCoalescingEnabled;
+	}
+
+	public Duration getNetworkActivityCoalescingFlushDelay()
+	{
+		return networkActivityCoalescingFlushDelay;
+	}
+
+	public void setNetworkActivityCoalescingFlushDelay(String networkActivityCoalescingFlushDelay)
+	{
+		this.networkActivityCoalescingFlushDelay = Duration.parse(networkActivityCoalescingFlushDelay);
+	}
+
+	public int getNetworkActivityCoalescingMaxBufferSize()
+	{
+		return networkActivityCoalescingMaxBufferSize;
+	}
+
+	public void setNetworkActivityCoalescingMaxBufferSize(int networkActivityCoalescingMaxBufferSize)
+	{
+		this.networkActivityCoalescingMaxBufferSize = networkActivityCoalescingMaxBufferSize;
+	}
+
+	public int getNetworkActivityCoalescingThreadCount()
+	{
+		return networkActivityCoalescingThreadCount;
+	}
+
+	public void setNetworkActivityCoalescingThreadCount(int networkActivityCoalescingThreadCount)
+	{
+		this.networkActivityCoalescingThreadCount = networkActivityCoalescingThreadCount;
+	}
 }
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.properties;
+
+import java.time.Duration;
+
+public class AppServiceProperties
+{
+	private boolean isCompressionEnabled = true;
+	private int compressionMinResponseSize = 2048;
+	private Duration pastActivityCacheMaxAge = Duration.ofHours(1);
+
+	public boolean isCompressionEnabled()
+	{
+		return isCompressionEnabled;
+	}
+
+	public void setCompressionEnabled(boolean isCompressionEnabled)
+	{
+		this.isCompressionEnabled = isCompressionEnabled;
+	}
+
+	public int getCompressionMinResponseSize()
+	{
+		return compressionMinResponseSize;
+	}
+
+	public void setCompressionMinResponseSize(int compressionMinResponseSize)
+	{
+		this.compressionMinResponseSize = compressionMinResponseSize;
+	}
+
+	public Duration getPastActivityCacheMaxAge()
+	{
+		return pastActivityCacheMaxAge;
+	}
+
+	public void setPastActivityCacheMaxAge(String pastActivityCacheMaxAge)
+	{
+		this.pastActivityCacheMaxAge = Duration.parse(pastActivityCacheMaxAge);
+	}
+}
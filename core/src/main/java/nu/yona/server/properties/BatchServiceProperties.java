@@ -1,12 +1,26 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.properties;
 
+import java.time.Duration;
+
 public class BatchServiceProperties
 {
 	private String serviceUrl = "http://localhost:8083";
+	private String activityPurgeCron = "0 30 3 * * *";
+	private int activityPurgeChunkSize = 100;
+	private Duration activityPurgeChunkPause = Duration.ofMillis(500);
+	private boolean isActivityPurgeDryRun = false;
+	private int schedulerPoolSize = 4;
+	private int jobLauncherPoolSize = 4;
+	private int jobLauncherQueueCapacity = 100;
+	private boolean isPinResetMicroBatchingEnabled = false;
+	private Duration scheduledTaskPollInterval = Duration.ofSeconds(2);
+	private int scheduledTaskBatchSize = 50;
+	private Duration scheduledTaskClaimTimeout = Duration.ofMinutes(5);
+	private int scheduledTaskMaxAttempts = 5;
 
 	public String getServiceUrl()
 	{
@@ -17,4 +31,124 @@ public class BatchServiceProperties
 	{
 		this.serviceUrl = serviceUrl;
 	}
+
+	public String getActivityPurgeCron()
+	{
+		return activityPurgeCron;
+	}
+
+	public void setActivityPurgeCron(String activityPurgeCron)
+	{
+		this.activityPurgeCron = activityPurgeCron;
+	}
+
+	public int getActivityPurgeChunkSize()
+	{
+		return activityPurgeChunkSize;
+	}
+
+	public void setActivityPurgeChunkSize(int activityPurgeChunkSize)
+	{
+		this.activityPurgeChunkSize = activityPurgeChunkSize;
+	}
+
+	public Duration getActivityPurgeChunkPause()
+	{
+		return activityPurgeChunkPause;
+	}
+
+	public void setActivityPurgeChunkPause(String activityPurgeChunkPause)
+	{
+		this.activityPurgeChunkPause = Duration.parse(activityPurgeChunkPause);
+	}
+
+	public boolean isActivityPurgeDryRun()
+	{
+		return isActivityPurgeDryRun;
+	}
+
+	public void setActivityPurgeDryRun(boolean isActivityPurgeDryRun)
+	{
+		this.isActivityPurgeDryRun = isActivityPurgeDryRun;
+	}
+
+	public int getSchedulerPoolSize()
+	{
+		return schedulerPoolSize;
+	}
+
+	public void setSchedulerPoolSize(int schedulerPoolSize)
+	{
+		this.schedulerPoolSize = schedulerPoolSize;
+	}
+
+	public int getJobLauncherPoolSize()
+	{
+		return jobLauncherPoolSize;
+	}
+
+	public void setJobLauncherPoolSize(int jobLauncherPoolSize)
+	{
+		this.jobLauncherPoolSize = jobLauncherPoolSize;
+	}
+
+	public int getJobLauncherQueueCapacity()
+	{
+		return jobLauncherQueueCapacity;
+	}
+
+	public void setJobLauncherQueueCapacity(int jobLauncherQueueCapacity)
+	{
+		this.jobLauncherQueueCapacity = jobLauncherQueueCapacity;
+	}
+
+	public boolean isPinResetMicroBatchingEnabled()
+	{
+		return isPinResetMicroBatchingEnabled;
+	}
+
+	public void setPinResetMicroBatchingEnabled(boolean isPinResetMicroBatchingEnabled)
+	{
+		this.isPinResetMicroBatchingEnabled = isPinResetMicroBatchingEnabled;
+	}
+
+	public Duration getScheduledTaskPollInterval()
+	{
+		return scheduledTaskPollInterval;
+	}
+
+	public void setScheduledTaskPollInterval(String scheduledTaskPollInterval)
+	{
+		this.scheduledTaskPollInterval = Duration.parse(scheduledTaskPollInterval);
+	}
+
+	public int getScheduledTaskBatchSize()
+	{
+		return scheduledTaskBatchSize;
+	}
+
+	public void setScheduledTaskBatchSize(int scheduledTaskBatchSize)
+	{
+		this.scheduledTaskBatchSize = scheduledTaskBatchSize;
+	}
+
+	public Duration getScheduledTaskClaimTimeout()
+	{
+		return scheduledTaskClaimTimeout;
+	}
+
+	public void setScheduledTaskClaimTimeout(String scheduledTaskClaimTimeout)
+	{
+		this.scheduledTaskClaimTimeout = Duration.parse(scheduledTaskClaimTimeout);
+	}
+
+	public int getScheduledTaskMaxAttempts()
+	{
+		return scheduledTaskMaxAttempts;
+	}
+
+	public void setScheduledTaskMaxAttempts(int scheduledTaskMaxAttempts)
+	{
+		this.scheduledTaskMaxAttempts = scheduledTaskMaxAttempts;
+	}
 }
@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.properties;
 
@@ -12,6 +12,8 @@ public class EmailProperties
 	private String includedMediaBaseUrl;
 	private String appleAppStoreUrl;
 	private String googlePlayStoreUrl;
+	private int dispatcherQueueCapacity = 500;
+	private int maxMessagesPerConnection = 20;
 
 	public static class Smtp
 	{
@@ -148,4 +150,24 @@ public class EmailProperties
 	{
 		this.googlePlayStoreUrl = googlePlayStoreUrl;
 	}
+
+	public int getDispatcherQueueCapacity()
+	{
+		return dispatcherQueueCapacity;
+	}
+
+	public void setDispatcherQueueCapacity(int dispatcherQueueCapacity)
+	{
+		this.dispatcherQueueCapacity = dispatcherQueueCapacity;
+	}
+
+	public int getMaxMessagesPerConnection()
+	{
+		return maxMessagesPerConnection;
+	}
+
+	public void setMaxMessagesPerConnection(int maxMessagesPerConnection)
+	{
+		this.maxMessagesPerConnection = maxMessagesPerConnection;
+	}
 }
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.properties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class HazelcastProperties
+{
+	private final List<String> members = new ArrayList<>();
+	private final Map<String, MapProperties> maps = new HashMap<>();
+	private String groupName = "yona";
+	private int port = 5701;
+
+	public static class MapProperties
+	{
+		private int maxSize;
+		private String evictionPolicy = "NONE";
+		private Duration timeToLive = Duration.ZERO;
+		private int backupCount = 1;
+
+		/**
+		 * The maximum number of entries per cluster member. Zero means unlimited.
+		 */
+		public int getMaxSize()
+		{
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize)
+		{
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * The Hazelcast eviction policy: NONE, LRU, LFU or RANDOM.
+		 */
+		public String getEvictionPolicy()
+		{
+			return evictionPolicy;
+		}
+
+		public void setEvictionPolicy(String evictionPolicy)
+		{
+			this.evictionPolicy = evictionPolicy;
+		}
+
+		/**
+		 * The maximum time an entry stays in the map. Zero means infinite.
+		 */
+		public Duration getTimeToLive()
+		{
+			return timeToLive;
+		}
+
+		public void setTimeToLive(String timeToLive)
+		{
+			this.timeToLive = Duration.parse(timeToLive);
+		}
+
+		public int getBackupCount()
+		{
+			return backupCount;
+		}
+
+		public void setBackupCount(int backupCount)
+		{
+			this.backupCount = backupCount;
+		}
+	}
+
+	/**
+	 * The name of the cluster. Only members with the same group name join the same cluster.
+	 */
+	public String getGroupName()
+	{
+		return groupName;
+	}
+
+	public void setGroupName(String groupName)
+	{
+		this.groupName = groupName;
+	}
+
+	public int getPort()
+	{
+		return port;
+	}
+
+	public void setPort(int port)
+	{
+		this.port = port;
+	}
+
+	/**
+	 * The TCP-IP members (host or host:port) to join. If empty, members are discovered through multicast.
+	 */
+	public List<String> getMembers()
+	{
+		return Collections.unmodifiableList(members);
+	}
+
+	public void setMembers(String members)
+	{
+		this.members.clear();
+		this.members.addAll(Arrays.asList(members.split(",")).stream().map(String::trim).filter(m -> !m.isEmpty())
+				.collect(Collectors.toList()));
+	}
+
+	public Map<String, MapProperties> getMaps()
+	{
+		return maps;
+	}
+}
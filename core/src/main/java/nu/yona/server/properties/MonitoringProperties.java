@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.properties;
+
+import java.time.Duration;
+
+public class MonitoringProperties
+{
+	private boolean isRequestTimingEnabled = true;
+	private Duration slowRequestThreshold = Duration.ofSeconds(1);
+	private boolean isQueryCountingEnabled = false;
+	private boolean isQueryCountHeadersEnabled = false;
+	private int statementBudget = 50;
+
+	public boolean isRequestTimingEnabled()
+	{
+		return isRequestTimingEnabled;
+	}
+
+	public void setRequestTimingEnabled(boolean isRequestTimingEnabled)
+	{
+		this.isRequestTimingEnabled = isRequestTimingEnabled;
+	}
+
+	public Duration getSlowRequestThreshold()
+	{
+		return slowRequestThreshold;
+	}
+
+	public void setSlowRequestThreshold(String slowRequestThreshold)
+	{
+		this.slowRequestThreshold = Duration.parse(slowRequestThreshold);
+	}
+
+	public boolean isQueryCountingEnabled()
+	{
+		return isQueryCountingEnabled;
+	}
+
+	public void setQueryCountingEnabled(boolean isQueryCountingEnabled)
+	{
+		this.isQueryCountingEnabled = isQueryCountingEnabled;
+	}
+
+	public boolean isQueryCountHeadersEnabled()
+	{
+		return isQueryCountHeadersEnabled;
+	}
+
+	public void setQueryCountHeadersEnabled(boolean isQueryCountHeadersEnabled)
+	{
+		this.isQueryCountHeadersEnabled = isQueryCountHeadersEnabled;
+	}
+
+	public int getStatementBudget()
+	{
+		return statementBudget;
+	}
+
+	public void setStatementBudget(int statementBudget)
+	{
+		this.statementBudget = statementBudget;
+	}
+}
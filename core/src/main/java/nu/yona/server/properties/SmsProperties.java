@@ -1,9 +1,11 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.properties;
 
+import java.time.Duration;
+
 public class SmsProperties
 {
 	private boolean isEnabled = false;
@@ -11,6 +13,12 @@ public class SmsProperties
 	private String plivoUrl = "https://api.plivo.com/v1/Account/{0}/Message/";
 	private String plivoAuthId = "";
 	private String plivoAuthToken = "";
+	private boolean isStubEnabled = false;
+	private int maxConnections = 10;
+	private int senderThreadCount = 2;
+	private int maxSendAttempts = 5;
+	private Duration retryBaseDelay = Duration.ofSeconds(1);
+	private int maxMessagesPerSecond = 5;
 
 	public boolean isEnabled()
 	{
@@ -61,4 +69,64 @@ public class SmsProperties
 	{
 		this.plivoAuthToken = plivoAuthToken;
 	}
+
+	public boolean isStubEnabled()
+	{
+		return isStubEnabled;
+	}
+
+	public void setStubEnabled(boolean isStubEnabled)
+	{
+		this.isStubEnabled = isStubEnabled;
+	}
+
+	public int getMaxConnections()
+	{
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections)
+	{
+		this.maxConnections = maxConnections;
+	}
+
+	public int getSenderThreadCount()
+	{
+		return senderThreadCount;
+	}
+
+	public void setSenderThreadCount(int senderThreadCount)
+	{
+		this.senderThreadCount = senderThreadCount;
+	}
+
+	public int getMaxSendAttempts()
+	{
+		return maxSendAttempts;
+	}
+
+	public void setMaxSendAttempts(int maxSendAttempts)
+	{
+		this.maxSendAttempts = maxSendAttempts;
+	}
+
+	public Duration getRetryBaseDelay()
+	{
+		return retryBaseDelay;
+	}
+
+	public void setRetryBaseDelay(String retryBaseDelay)
+	{
+		this.retryBaseDelay = Duration.parse(retryBaseDelay);
+	}
+
+	public int getMaxMessagesPerSecond()
+	{
+		return maxMessagesPerSecond;
+	}
+
+	public void setMaxMessagesPerSecond(int maxMessagesPerSecond)
+	{
+		this.maxMessagesPerSecond = maxMessagesPerSecond;
+	}
 }
@@ -37,6 +37,15 @@ public class YonaProperties
 	@NestedConfigurationProperty
 	private final BatchServiceProperties batchService = new BatchServiceProperties();
 
+	@NestedConfigurationProperty
+	private final AppServiceProperties appService = new AppServiceProperties();
+
+	@NestedConfigurationProperty
+	private final HazelcastProperties hazelcast = new HazelcastProperties();
+
+	@NestedConfigurationProperty
+	private final MonitoringProperties monitoring = new MonitoringProperties();
+
 	private final Set<Locale> supportedLocales = new HashSet<>();
 
 	private Locale defaultLocale;
@@ -49,6 +58,8 @@ public class YonaProperties
 
 	private boolean isWhiteListActiveInvitedUsers;
 
+	private boolean isPrettyPrintJson;
+
 	public AnalysisServiceProperties getAnalysisService()
 	{
 		return analysisService;
@@ -79,6 +90,21 @@ public class YonaProperties
 		return batchService;
 	}
 
+	public AppServiceProperties getAppService()
+	{
+		return appService;
+	}
+
+	public HazelcastProperties getHazelcast()
+	{
+		return hazelcast;
+	}
+
+	public MonitoringProperties getMonitoring()
+	{
+		return monitoring;
+	}
+
 	public void setDefaultLocale(String defaultLocale)
 	{
 		this.defaultLocale = Locale.forLanguageTag(defaultLocale);
@@ -139,4 +165,14 @@ public class YonaProperties
 	{
 		return isWhiteListActiveInvitedUsers;
 	}
+
+	public void setPrettyPrintJson(boolean isPrettyPrintJson)
+	{
+		this.isPrettyPrintJson = isPrettyPrintJson;
+	}
+
+	public boolean isPrettyPrintJson()
+	{
+		return isPrettyPrintJson;
+	}
 }
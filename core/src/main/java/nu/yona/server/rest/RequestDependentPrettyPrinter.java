@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.rest;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.fasterxml.jackson.core.PrettyPrinter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.Instantiatable;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+/**
+ * Pretty printer that only indents the JSON output if that is requested. Indenting large HAL responses costs CPU time and
+ * bandwidth, so by default the output is compact. A client (typically a developer) can request indented output by adding the
+ * request parameter "pretty=true" or the header "X-Pretty-Print: true". If both are present, the parameter takes precedence.
+ * Alternatively, indentation can be enabled by default through the property yona.prettyPrintJson, e.g. in the "dev"
+ * profile.<br/>
+ * To make Jackson use this pretty printer, INDENT_OUTPUT must be enabled on the object mapper and this must be set as default
+ * pretty printer. Jackson then calls {@link #createInstance()} for every value it writes.
+ */
+public class RequestDependentPrettyPrinter extends MinimalPrettyPrinter implements Instantiatable<PrettyPrinter>
+{
+	private static final long serialVersionUID = 2697512624312591573L;
+
+	public static final String PRETTY_PRINT_PARAMETER = "pretty";
+	public static final String PRETTY_PRINT_HEADER = "X-Pretty-Print";
+
+	private final boolean isPrettyPrintByDefault;
+
+	public RequestDependentPrettyPrinter(boolean isPrettyPrintByDefault)
+	{
+		this.isPrettyPrintByDefault = isPrettyPrintByDefault;
+	}
+
+	@Override
+	public PrettyPrinter createInstance()
+	{
+		if (isPrettyPrintRequested())
+		{
+			return new DefaultPrettyPrinter();
+		}
+		return this; // This minimal pretty printer is stateless, so it can be shared
+	}
+
+	private boolean isPrettyPrintRequested()
+	{
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		if (!(requestAttributes instanceof ServletRequestAttributes))
+		{
+			return isPrettyPrintByDefault;
+		}
+		HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+		String prettyPrintParameter = request.getParameter(PRETTY_PRINT_PARAMETER);
+		if (prettyPrintParameter != null)
+		{
+			return Boolean.parseBoolean(prettyPrintParameter);
+		}
+		String prettyPrintHeader = request.getHeader(PRETTY_PRINT_HEADER);
+		if (prettyPrintHeader != null)
+		{
+			return Boolean.parseBoolean(prettyPrintHeader);
+		}
+		return isPrettyPrintByDefault;
+	}
+}
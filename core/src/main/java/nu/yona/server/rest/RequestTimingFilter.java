@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.rest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import nu.yona.server.properties.MonitoringProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.LatencyBuckets;
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+
+/**
+ * Records the latency of every request in a histogram per HTTP method, URI template and status series, e.g.
+ * counter.request.GET.users.userId.activity.days.2xx.upTo100ms. Requests that take longer than
+ * yona.monitoring.slowRequestThreshold are logged with the breakdown collected in {@link RequestTimings}.<br/>
+ * The metric names are derived from the URI template (not the actual URI), so their number is bounded. The derived names are
+ * cached, so the overhead per request is limited to a few map lookups.<br/>
+ * If query counting is enabled, the number of JDBC statements, entity loads and collection fetches are submitted as gauges per
+ * endpoint, and requests that exceed the statement budget are logged.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Component
+public class RequestTimingFilter implements Filter
+{
+	private static final Logger logger = LoggerFactory.getLogger(RequestTimingFilter.class);
+
+	private static final String UNMAPPED_URI_TEMPLATE = "unmapped";
+	private static final Counter[] COUNTERS = Counter.values();
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private CounterService counterService;
+
+	@Autowired
+	private GaugeService gaugeService;
+
+	private final Map<String, Map<String, EndpointMetricNames>> metricNamesByMethodAndUriTemplate = new ConcurrentHashMap<>();
+
+	@Override
+	public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+			throws IOException, ServletException
+	{
+		MonitoringProperties monitoringProperties = yonaProperties.getMonitoring();
+		if (!monitoringProperties.isRequestTimingEnabled() || RequestTimings.isActive())
+		{
+			chain.doFilter(servletRequest, servletResponse);
+			return;
+		}
+
+		HttpServletRequest request = (HttpServletRequest) servletRequest;
+		HttpServletResponse response = (HttpServletResponse) servletResponse;
+		RequestTimings timings = RequestTimings.start();
+		try
+		{
+			chain.doFilter(request, response);
+		}
+		finally
+		{
+			long elapsedNanos = timings.stop();
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+			String uriTemplate = getUriTemplate(request);
+			EndpointMetricNames metricNames = getMetricNames(request.getMethod(), uriTemplate);
+			counterService.increment(metricNames.getLatencyCounterName(response.getStatus(), elapsedMillis));
+			if (elapsedNanos > monitoringProperties.getSlowRequestThreshold().toNanos())
+			{
+				logger.warn("Slow request: {} {} (template {}) returned status {} in {} ms ({})", request.getMethod(),
+						request.getRequestURI(), uriTemplate, response.getStatus(), elapsedMillis, timings.getBreakdown());
+			}
+			if (monitoringProperties.isQueryCountingEnabled())
+			{
+				recordQueryCounts(request, uriTemplate, metricNames, timings, monitoringProperties.getStatementBudget());
+			}
+		}
+	}
+
+	private void recordQueryCounts(HttpServletRequest request, String uriTemplate, EndpointMetricNames metricNames,
+			RequestTimings timings, int statementBudget)
+	{
+		for (Counter counter : COUNTERS)
+		{
+			gaugeService.submit(metricNames.getQueryCountGaugeName(counter), timings.getCount(counter));
+		}
+		int statementCount = timings.getCount(Counter.JDBC_STATEMENTS);
+		if (statementCount > statementBudget)
+		{
+			counterService.increment(metricNames.getStatementBudgetExceededCounterName());
+			logger.warn("Statement budget of {} exceeded: {} {} (template {}) executed {} statements ({})", statementBudget,
+					request.getMethod(), request.getRequestURI(), uriTemplate, statementCount, timings.getBreakdown());
+		}
+	}
+
+	private static String getUriTemplate(HttpServletRequest request)
+	{
+		Object uriTemplate = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return (uriTemplate == null) ? UNMAPPED_URI_TEMPLATE : uriTemplate.toString();
+	}
+
+	private EndpointMetricNames getMetricNames(String method, String uriTemplate)
+	{
+		return metricNamesByMethodAndUriTemplate.computeIfAbsent(method, m -> new ConcurrentHashMap<>())
+				.computeIfAbsent(uriTemplate, t -> new EndpointMetricNames(method + "." + toMetricName(t)));
+	}
+
+	private static String toMetricName(String uriTemplate)
+	{
+		return uriTemplate.replaceAll("[{}]", "").replaceAll("^/+|/+$", "").replace('/', '.');
+	}
+
+	@Override
+	public void destroy()
+	{
+		// Nothing to do here
+	}
+
+	@Override
+	public void init(FilterConfig config) throws ServletException
+	{
+		// Nothing to do here
+	}
+
+	/**
+	 * The metric names of one endpoint (HTTP method and URI template). The latency counter names are created on first use, as most
+	 * endpoints only ever return a few of the status series.
+	 */
+	static class EndpointMetricNames
+	{
+		private static final int STATUS_SERIES_COUNT = 10;
+
+		private final String endpointMetricName;
+		private final String[][] latencyCounterNames = new String[STATUS_SERIES_COUNT][LatencyBuckets.BUCKET_COUNT];
+		private final String[] queryCountGaugeNames = new String[COUNTERS.length];
+		private final String statementBudgetExceededCounterName;
+
+		EndpointMetricNames(String endpointMetricName)
+		{
+			this.endpointMetricName = endpointMetricName;
+			for (Counter counter : COUNTERS)
+			{
+				queryCountGaugeNames[counter.ordinal()] = "gauge.request." + endpointMetricName + "." + counter.getDisplayName();
+			}
+			statementBudgetExceededCounterName = "counter.request." + endpointMetricName + ".statementBudgetExceeded";
+		}
+
+		String getLatencyCounterName(int status, long elapsedMillis)
+		{
+			int statusSeries = status / 100;
+			int bucketIndex = LatencyBuckets.getBucketIndex(elapsedMillis);
+			if (statusSeries < 0 || statusSeries >= STATUS_SERIES_COUNT)
+			{
+				return createLatencyCounterName(statusSeries, bucketIndex);
+			}
+			// Concurrent requests might both create the same name, which is harmless as strings are immutable
+			String name = latencyCounterNames[statusSeries][bucketIndex];
+			if (name == null)
+			{
+				name = createLatencyCounterName(statusSeries, bucketIndex);
+				latencyCounterNames[statusSeries][bucketIndex] = name;
+			}
+			return name;
+		}
+
+		private String createLatencyCounterName(int statusSeries, int bucketIndex)
+		{
+			return "counter.request." + endpointMetricName + "." + statusSeries + "xx." + LatencyBuckets.getBucketNameOfIndex(bucketIndex);
+		}
+
+		String getQueryCountGaugeName(Counter counter)
+		{
+			return queryCountGaugeNames[counter.ordinal()];
+		}
+
+		String getStatementBudgetExceededCounterName()
+		{
+			return statementBudgetExceededCounterName;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+
+/**
+ * Marks the start of the response body serialization in the request timings. This is called right before the message converter
+ * writes the body, so this is also the last moment to add headers: if enabled, the query counts are added as response headers.
+ * These do not include the lazy loads during serialization.
+ */
+@ControllerAdvice
+public class RequestTimingResponseBodyAdvice implements ResponseBodyAdvice<Object>
+{
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType)
+	{
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response)
+	{
+		RequestTimings.markSerializationStart();
+		RequestTimings timings = RequestTimings.getCurrent();
+		if (timings != null && yonaProperties.getMonitoring().isQueryCountHeadersEnabled())
+		{
+			for (Counter counter : Counter.values())
+			{
+				response.getHeaders().add(counter.getHeaderName(), Integer.toString(timings.getCount(counter)));
+			}
+		}
+		return body;
+	}
+}
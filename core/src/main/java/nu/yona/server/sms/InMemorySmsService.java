@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.sms;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import nu.yona.server.util.ThymeleafUtil;
+
+/**
+ * Stub for local and load testing (yona.sms.stubEnabled = true). It renders the messages like the Plivo service does, but
+ * records them in memory instead of sending them. The render latency is recorded in the same histogram as the real sends.
+ */
+@ConditionalOnProperty(name = "yona.sms.stubEnabled", havingValue = "true")
+@Service
+public class InMemorySmsService implements SmsService
+{
+	private static final Logger logger = LoggerFactory.getLogger(InMemorySmsService.class);
+
+	public static class SentMessage
+	{
+		private final String phoneNumber;
+		private final String messageTemplateName;
+		private final String message;
+
+		private SentMessage(String phoneNumber, String messageTemplateName, String message)
+		{
+			this.phoneNumber = phoneNumber;
+			this.messageTemplateName = messageTemplateName;
+			this.message = message;
+		}
+
+		public String getPhoneNumber()
+		{
+			return phoneNumber;
+		}
+
+		public String getMessageTemplateName()
+		{
+			return messageTemplateName;
+		}
+
+		public String getMessage()
+		{
+			return message;
+		}
+	}
+
+	@Autowired
+	@Qualifier("smsTemplateEngine")
+	private TemplateEngine templateEngine;
+
+	@Autowired
+	private SmsMetrics smsMetrics;
+
+	private final List<SentMessage> sentMessages = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void send(String phoneNumber, String messageTemplateName, Map<String, Object> templateParameters)
+	{
+		long startNanos = System.nanoTime();
+		Context ctx = ThymeleafUtil.createContext();
+		templateParameters.entrySet().stream().forEach(e -> ctx.setVariable(e.getKey(), e.getValue()));
+
+		String message = templateEngine.process(messageTemplateName + ".txt", ctx);
+		sentMessages.add(new SentMessage(phoneNumber, messageTemplateName, message));
+		smsMetrics.recordSent(Duration.ofNanos(System.nanoTime() - startNanos));
+		logger.info("Recorded SMS to number '{}'. Message: {}", phoneNumber, message);
+	}
+
+	public List<SentMessage> getSentMessages()
+	{
+		return Collections.unmodifiableList(sentMessages);
+	}
+
+	public void clearSentMessages()
+	{
+		sentMessages.clear();
+	}
+}
@@ -8,26 +8,34 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
@@ -36,15 +44,26 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import nu.yona.server.exceptions.SmsException;
+import nu.yona.server.exceptions.YonaException;
 import nu.yona.server.properties.SmsProperties;
 import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.util.ThymeleafUtil;
-
+import nu.yona.server.util.TransactionHelper;
+
+/**
+ * Sends text messages through Plivo. The message is rendered in the thread of the caller, as the template depends on its locale.
+ * Sending is asynchronous: the message is queued once the transaction of the caller commits, so the caller does not wait for
+ * Plivo and no message is sent for a rolled back transaction. The messages are sent through a shared, pooled HTTP client. A token
+ * bucket keeps the throughput within the rate limit of Plivo. Failed sends are retried with exponential backoff.
+ */
+@ConditionalOnProperty(name = "yona.sms.stubEnabled", havingValue = "false", matchIfMissing = true)
 @Service
 public class PlivoSmsService implements SmsService
 {
 	private static final Logger logger = LoggerFactory.getLogger(PlivoSmsService.class);
 
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
 	@Autowired
 	private YonaProperties yonaProperties;
 
@@ -52,6 +71,48 @@ public class PlivoSmsService implements SmsService
 	@Qualifier("smsTemplateEngine")
 	private TemplateEngine templateEngine;
 
+	@Autowired
+	private SmsMetrics smsMetrics;
+
+	@Autowired
+	private TransactionHelper transactionHelper;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private URI plivoUri;
+	private CloseableHttpClient httpClient;
+	private ScheduledExecutorService sendExecutor;
+	private TokenBucket tokenBucket;
+
+	@PostConstruct
+	private void initialize()
+	{
+		SmsProperties smsProperties = yonaProperties.getSms();
+		plivoUri = getPlivoUrl(smsProperties);
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(smsProperties.getMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(smsProperties.getMaxConnections());
+		CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+		credentialsProvider.setCredentials(new AuthScope(plivoUri.getHost(), plivoUri.getPort()),
+				new UsernamePasswordCredentials(smsProperties.getPlivoAuthId(), smsProperties.getPlivoAuthToken()));
+		httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager)
+				.setDefaultCredentialsProvider(credentialsProvider).build();
+
+		sendExecutor = Executors.newScheduledThreadPool(smsProperties.getSenderThreadCount());
+		tokenBucket = new TokenBucket(smsProperties.getMaxMessagesPerSecond(), System.nanoTime());
+	}
+
+	@PreDestroy
+	private void shutDown() throws IOException, InterruptedException
+	{
+		sendExecutor.shutdown();
+		if (!sendExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		{
+			logger.warn("Not all queued text messages were sent before shutdown");
+		}
+		httpClient.close();
+	}
+
 	@Override
 	public void send(String phoneNumber, String messageTemplateName, Map<String, Object> templateParameters)
 	{
@@ -67,55 +128,85 @@ public class PlivoSmsService implements SmsService
 			return;
 		}
 
-		try (CloseableHttpClient httpClient = HttpClientBuilder.create().build())
+		String requestMessageStr = createRequestJson(phoneNumber.replace("+", ""), message);
+		transactionHelper.executeAfterCommit(() -> scheduleSendAttempt(phoneNumber, requestMessageStr, 1, 0));
+	}
+
+	private void scheduleSendAttempt(String phoneNumber, String requestMessageStr, int attempt, long delayMillis)
+	{
+		try
 		{
-			String requestMessageStr = createRequestJson(phoneNumber.replace("+", ""), message);
-			HttpPost httpRequest = createHttpRequest(requestMessageStr);
-			HttpClientContext httpClientContext = createHttpClientContext();
-			HttpResponse httpResponse = httpClient.execute(httpRequest, httpClientContext);
-			HttpEntity entity = httpResponse.getEntity();
+			sendExecutor.schedule(() -> attemptSend(phoneNumber, requestMessageStr, attempt), delayMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException e)
+		{
+			smsMetrics.recordFailure();
+			logger.error("SMS to number '" + phoneNumber + "' could not be queued", e);
+		}
+	}
 
+	private void attemptSend(String phoneNumber, String requestMessageStr, int attempt)
+	{
+		long waitNanos = tokenBucket.tryAcquire(System.nanoTime());
+		if (waitNanos > 0)
+		{
+			scheduleSendAttempt(phoneNumber, requestMessageStr, attempt, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+			return;
+		}
+
+		long startNanos = System.nanoTime();
+		try (CloseableHttpResponse httpResponse = httpClient.execute(createHttpRequest(requestMessageStr)))
+		{
 			int httpResponseCode = httpResponse.getStatusLine().getStatusCode();
-			String httpResponseBody = EntityUtils.toString(entity);
-			if (httpResponseCode != HttpStatus.SC_ACCEPTED)
+			String httpResponseBody = EntityUtils.toString(httpResponse.getEntity());
+			if (httpResponseCode == HttpStatus.SC_ACCEPTED)
 			{
-				throw SmsException.smsSendingFailed(httpResponseCode, httpResponseBody);
+				smsMetrics.recordSent(Duration.ofNanos(System.nanoTime() - startNanos));
+				logger.info("SMS to number '{}' sent succesfully.", phoneNumber);
+				return;
 			}
+			handleFailure(phoneNumber, requestMessageStr, attempt, isRetryable(httpResponseCode),
+					SmsException.smsSendingFailed(httpResponseCode, httpResponseBody));
 		}
 		catch (IOException e)
 		{
-			throw SmsException.smsSendingFailed(e);
+			handleFailure(phoneNumber, requestMessageStr, attempt, true, SmsException.smsSendingFailed(e));
 		}
+	}
 
-		logger.info("SMS sent succesfully.");
+	private static boolean isRetryable(int httpResponseCode)
+	{
+		return httpResponseCode == 429 || httpResponseCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
 	}
 
-	private HttpClientContext createHttpClientContext()
+	private void handleFailure(String phoneNumber, String requestMessageStr, int attempt, boolean isRetryable, SmsException e)
 	{
-		try
+		SmsProperties smsProperties = yonaProperties.getSms();
+		if (!isRetryable || attempt >= smsProperties.getMaxSendAttempts())
 		{
-			SmsProperties smsProperties = yonaProperties.getSms();
-
-			URI uri = getPlivoUrl(smsProperties);
-			CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-			credentialsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()),
-					new UsernamePasswordCredentials(smsProperties.getPlivoAuthId(), smsProperties.getPlivoAuthToken()));
+			smsMetrics.recordFailure();
+			logger.error("Sending SMS to number '" + phoneNumber + "' failed after " + attempt + " attempt(s)", e);
+			return;
+		}
+		long delayMillis = smsProperties.getRetryBaseDelay().toMillis() << (attempt - 1);
+		logger.warn("Sending SMS to number '{}' failed (attempt {}), retrying in {} ms: {}", phoneNumber, attempt, delayMillis,
+				e.getMessage());
+		smsMetrics.recordRetry();
+		scheduleSendAttempt(phoneNumber, requestMessageStr, attempt + 1, delayMillis);
+	}
 
-			HttpClientContext httpClientContext = HttpClientContext.create();
-			httpClientContext.setCredentialsProvider(credentialsProvider);
-			return httpClientContext;
+	private URI getPlivoUrl(SmsProperties smsProperties)
+	{
+		try
+		{
+			return new URI(MessageFormat.format(smsProperties.getPlivoUrl(), smsProperties.getPlivoAuthId()));
 		}
 		catch (URISyntaxException e)
 		{
-			throw SmsException.smsSendingFailed(e);
+			throw YonaException.unexpected(e);
 		}
 	}
 
-	private URI getPlivoUrl(SmsProperties smsProperties) throws URISyntaxException
-	{
-		return new URI(MessageFormat.format(smsProperties.getPlivoUrl(), smsProperties.getPlivoAuthId()));
-	}
-
 	private String createRequestJson(String phoneNumber, String message)
 	{
 		try
@@ -125,7 +216,7 @@ public class PlivoSmsService implements SmsService
 			requestMessage.put("dst", phoneNumber);
 			requestMessage.put("text", message);
 
-			return new ObjectMapper().writeValueAsString(requestMessage);
+			return objectMapper.writeValueAsString(requestMessage);
 		}
 		catch (JsonProcessingException e)
 		{
@@ -135,23 +226,13 @@ public class PlivoSmsService implements SmsService
 
 	private HttpPost createHttpRequest(String jsonStr)
 	{
-		try
-		{
-			SmsProperties smsProperties = yonaProperties.getSms();
-			URI uri = getPlivoUrl(smsProperties);
+		HttpPost httpRequest = new HttpPost(plivoUri);
+		StringEntity requestEntity = new StringEntity(jsonStr, "UTF-8");
 
-			HttpPost httpRequest = new HttpPost(uri);
-			StringEntity requestEntity = new StringEntity(jsonStr, "UTF-8");
+		httpRequest.setEntity(requestEntity);
+		httpRequest.setHeader("Accept", "application/json");
+		httpRequest.setHeader("Content-type", "application/json");
 
-			httpRequest.setEntity(requestEntity);
-			httpRequest.setHeader("Accept", "application/json");
-			httpRequest.setHeader("Content-type", "application/json");
-
-			return httpRequest;
-		}
-		catch (URISyntaxException e)
-		{
-			throw SmsException.smsSendingFailed(e);
-		}
+		return httpRequest;
 	}
 }
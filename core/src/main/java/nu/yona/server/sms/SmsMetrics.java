@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.sms;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.stereotype.Component;
+
+import nu.yona.server.util.LatencyBuckets;
+
+/**
+ * Exposes the SMS sending statistics through the actuator metrics. The send latency is recorded as histogram, see
+ * {@link LatencyBuckets}.
+ */
+@Component
+class SmsMetrics
+{
+	@Autowired
+	private CounterService counterService;
+
+	void recordSent(Duration latency)
+	{
+		counterService.increment("counter.sms.sent");
+		counterService.increment("counter.sms.latency." + LatencyBuckets.getBucketName(latency.toMillis()));
+	}
+
+	void recordRetry()
+	{
+		counterService.increment("counter.sms.retried");
+	}
+
+	void recordFailure()
+	{
+		counterService.increment("counter.sms.failed");
+	}
+}
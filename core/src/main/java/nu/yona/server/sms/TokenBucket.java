@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.sms;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the throughput to a given number of permits per second, allowing bursts up to that same number. The bucket does not
+ * block: if no permit is available, it returns the time to wait, so the caller can reschedule rather than occupy a thread.
+ */
+class TokenBucket
+{
+	private final long nanosPerPermit;
+	private final long maxStoredNanos;
+	private long nextFreeNanos;
+
+	TokenBucket(int permitsPerSecond, long nowNanos)
+	{
+		nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+		maxStoredNanos = nanosPerPermit * permitsPerSecond;
+		nextFreeNanos = nowNanos - maxStoredNanos;
+	}
+
+	/**
+	 * Tries to take a permit.
+	 * 
+	 * @param nowNanos The current time, as returned by {@link System#nanoTime()}
+	 * @return 0 if a permit was taken, otherwise the number of nanoseconds after which a permit will be available
+	 */
+	synchronized long tryAcquire(long nowNanos)
+	{
+		// Never store more permits than the burst size
+		nextFreeNanos = Math.max(nextFreeNanos, nowNanos - maxStoredNanos);
+		long availableAtNanos = nextFreeNanos + nanosPerPermit;
+		if (availableAtNanos > nowNanos)
+		{
+			return availableAtNanos - nowNanos;
+		}
+		nextFreeNanos = availableAtNanos;
+		return 0;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015, 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.subscriptions.entities;
@@ -73,6 +73,11 @@ public class BuddyAnonymized extends EntityWithUuid
 		return new BuddyAnonymized(UUID.randomUUID(), sendingStatus, receivingStatus);
 	}
 
+	public UUID getOwningUserAnonymizedId()
+	{
+		return owningUserAnonymizedId;
+	}
+
 	public UserAnonymized getUserAnonymized()
 	{
 		if (userAnonymizedId == null)
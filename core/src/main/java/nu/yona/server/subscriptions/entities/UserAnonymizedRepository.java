@@ -5,13 +5,19 @@
 package nu.yona.server.subscriptions.entities;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserAnonymizedRepository extends JpaRepository<UserAnonymized, UUID>
 {
 	int countByLastMonitoredActivityDateBetween(LocalDate startDate, LocalDate endDate);
 
 	int countByLastMonitoredActivityDateIsNull();
+
+	@Query("select u.id from UserAnonymized u where u.lastMonitoredActivityDate >= :date")
+	List<UUID> findIdsWithLastMonitoredActivityDateSince(@Param("date") LocalDate date);
 }
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.subscriptions.service;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.UUID;
+
+import nu.yona.server.messaging.service.MessageDestinationDto;
+import nu.yona.server.subscriptions.entities.BuddyAnonymized;
+import nu.yona.server.subscriptions.entities.BuddyAnonymized.Status;
+
+/**
+ * The part of a buddy relationship that is cached as part of the anonymized user. The anonymous destination of the buddy is
+ * only captured when the sending status is accepted, as it is only needed to send goal conflicts and activity information to
+ * the buddy.
+ */
+public class BuddyAnonymizedDto implements Serializable
+{
+	private static final long serialVersionUID = 2471370187391446711L;
+
+	private final UUID id;
+	private final UUID userAnonymizedId;
+	private final Status sendingStatus;
+	private final MessageDestinationDto userAnonymizedDestination;
+
+	public BuddyAnonymizedDto(UUID id, Optional<UUID> userAnonymizedId, Status sendingStatus,
+			Optional<MessageDestinationDto> userAnonymizedDestination)
+	{
+		this.id = id;
+		this.userAnonymizedId = userAnonymizedId.orElse(null);
+		this.sendingStatus = sendingStatus;
+		this.userAnonymizedDestination = userAnonymizedDestination.orElse(null);
+	}
+
+	public static BuddyAnonymizedDto createInstance(BuddyAnonymized entity)
+	{
+		Optional<MessageDestinationDto> userAnonymizedDestination = (entity.getSendingStatus() == Status.ACCEPTED)
+				? Optional.of(MessageDestinationDto.createInstance(entity.getUserAnonymized().getAnonymousDestination()))
+				: Optional.empty();
+		return new BuddyAnonymizedDto(entity.getId(), entity.getUserAnonymizedId(), entity.getSendingStatus(),
+				userAnonymizedDestination);
+	}
+
+	public UUID getId()
+	{
+		return id;
+	}
+
+	public Optional<UUID> getUserAnonymizedId()
+	{
+		return Optional.ofNullable(userAnonymizedId);
+	}
+
+	public Status getSendingStatus()
+	{
+		return sendingStatus;
+	}
+
+	public Optional<MessageDestinationDto> getUserAnonymizedDestination()
+	{
+		return Optional.ofNullable(userAnonymizedDestination);
+	}
+}
@@ -102,9 +102,18 @@ public class BuddyDto
 	}
 
 	public static BuddyDto createInstance(Buddy buddyEntity)
+	{
+		return createInstance(buddyEntity, getlastMonitoredActivityDate(buddyEntity));
+	}
+
+	/*
+	 * For callers that already have the anonymized buddy user, so its entity does not need to be loaded to get the last monitored
+	 * activity date.
+	 */
+	static BuddyDto createInstance(Buddy buddyEntity, Optional<LocalDate> lastMonitoredActivityDate)
 	{
 		return new BuddyDto(buddyEntity.getId(), UserDto.createInstance(buddyEntity.getUser()), buddyEntity.getNickname(),
-				getBuddyUserAnonymizedId(buddyEntity), getlastMonitoredActivityDate(buddyEntity), buddyEntity.getSendingStatus(),
+				getBuddyUserAnonymizedId(buddyEntity), lastMonitoredActivityDate, buddyEntity.getSendingStatus(),
 				buddyEntity.getReceivingStatus(), buddyEntity.getLastStatusChangeTime());
 	}
 
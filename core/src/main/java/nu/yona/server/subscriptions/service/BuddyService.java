@@ -7,6 +7,7 @@ package nu.yona.server.subscriptions.service;
 import java.io.UnsupportedEncodingException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -101,6 +102,31 @@ public class BuddyService
 		return result;
 	}
 
+	/**
+	 * Returns the buddies with the given IDs. The buddy entities are loaded with one query and the anonymized buddy users are
+	 * fetched from the cache in one operation.
+	 */
+	public Set<BuddyDto> getBuddies(Set<UUID> buddyIds)
+	{
+		Set<Buddy> buddyEntities = getBuddyEntities(buddyIds);
+		Set<UUID> buddyUserAnonymizedIds = buddyEntities.stream().filter(BuddyService::canIncludePrivateData)
+				.map(this::getUserAnonymizedIdForBuddy).collect(Collectors.toSet());
+		Map<UUID, UserAnonymizedDto> buddyUsersAnonymized = userAnonymizedService.getUsersAnonymized(buddyUserAnonymizedIds);
+		return buddyEntities.stream().map(b -> createBuddyDto(b, buddyUsersAnonymized)).collect(Collectors.toSet());
+	}
+
+	private BuddyDto createBuddyDto(Buddy buddyEntity, Map<UUID, UserAnonymizedDto> buddyUsersAnonymized)
+	{
+		if (!canIncludePrivateData(buddyEntity))
+		{
+			return BuddyDto.createInstance(buddyEntity);
+		}
+		UserAnonymizedDto buddyUserAnonymized = buddyUsersAnonymized.get(getUserAnonymizedIdForBuddy(buddyEntity));
+		BuddyDto result = BuddyDto.createInstance(buddyEntity, buddyUserAnonymized.getLastMonitoredActivityDate());
+		result.setGoals(buddyUserAnonymized.getGoals().stream().collect(Collectors.toSet()));
+		return result;
+	}
+
 	static boolean canIncludePrivateData(Buddy buddyEntity)
 	{
 		return (buddyEntity.getReceivingStatus() == Status.ACCEPTED) || (buddyEntity.getSendingStatus() == Status.ACCEPTED);
@@ -384,11 +410,7 @@ public class BuddyService
 		}
 		buddy.setUserAnonymizedId(userAnonymizedId);
 		buddy.setNickName(nickname);
-	}
-
-	public Set<BuddyDto> getBuddies(Set<UUID> buddyIds)
-	{
-		return buddyIds.stream().map(id -> getBuddy(id)).collect(Collectors.toSet());
+		userAnonymizedService.evictUserAnonymized(buddy.getBuddyAnonymized().getOwningUserAnonymizedId());
 	}
 
 	private Set<Buddy> getBuddyEntitiesOfUser(UUID forUserId)
@@ -399,7 +421,17 @@ public class BuddyService
 
 	private Set<Buddy> getBuddyEntities(Set<UUID> buddyIds)
 	{
-		return buddyIds.stream().map(id -> getEntityById(id)).collect(Collectors.toSet());
+		Set<Buddy> buddyEntities = new HashSet<>();
+		Buddy.getRepository().findAll(buddyIds).forEach(buddyEntities::add);
+		if (buddyEntities.size() != buddyIds.size())
+		{
+			Set<UUID> foundIds = buddyEntities.stream().map(Buddy::getId).collect(Collectors.toSet());
+			throw BuddyNotFoundException.notFound(buddyIds.stream().filter(id -> !foundIds.contains(id)).findAny().get());
+		}
+		// Load the anonymized buddies with one query as well, so the buddy entities find them in the persistence context
+		BuddyAnonymized.getRepository()
+				.findAll(buddyEntities.stream().map(Buddy::getBuddyAnonymizedId).collect(Collectors.toSet()));
+		return buddyEntities;
 	}
 
 	private void removeMessagesSentByBuddy(User user, Buddy buddy)
@@ -451,10 +483,12 @@ public class BuddyService
 
 	private void disconnectBuddyIfConnected(UserAnonymizedDto buddyUserAnonymized, UUID userAnonymizedId)
 	{
-		Optional<BuddyAnonymized> buddyAnonymized = buddyUserAnonymized.getBuddyAnonymized(userAnonymizedId);
-		buddyAnonymized.ifPresent(ba -> {
+		Optional<BuddyAnonymizedDto> buddyAnonymized = buddyUserAnonymized.getBuddyAnonymized(userAnonymizedId);
+		buddyAnonymized.ifPresent(bad -> {
+			BuddyAnonymized ba = BuddyAnonymized.getRepository().findOne(bad.getId());
 			ba.setDisconnected();
 			BuddyAnonymized.getRepository().save(ba);
+			userAnonymizedService.evictUserAnonymized(buddyUserAnonymized.getId());
 		});
 		// Else: user who requested buddy relationship didn't process the accept message yet
 	}
@@ -1,9 +1,10 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.subscriptions.service;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -12,15 +13,22 @@ import java.util.stream.Collectors;
 
 import nu.yona.server.goals.service.GoalDto;
 
+/**
+ * Maps goal IDs to the user or buddy they belong to. An instance is created once per request and is used for all messages or
+ * activities in the response, so it also retains the buddies of the user. {@link UserPrivateDto#getBuddies()} loads them again
+ * on every call.
+ */
 public class GoalIdMapping
 {
 	private final UserDto user;
+	private final Set<BuddyDto> buddies;
 	private final Set<UUID> userGoalIds;
 	private final Map<UUID, UUID> goalIdToBuddyIdmapping;
 
-	private GoalIdMapping(UserDto user, Set<UUID> userGoalIds, Map<UUID, UUID> goalIdToBuddyIdmapping)
+	private GoalIdMapping(UserDto user, Set<BuddyDto> buddies, Set<UUID> userGoalIds, Map<UUID, UUID> goalIdToBuddyIdmapping)
 	{
 		this.user = user;
+		this.buddies = buddies;
 		this.userGoalIds = userGoalIds;
 		this.goalIdToBuddyIdmapping = goalIdToBuddyIdmapping;
 	}
@@ -35,6 +43,11 @@ public class GoalIdMapping
 		return user.getId();
 	}
 
+	public Set<BuddyDto> getBuddies()
+	{
+		return Collections.unmodifiableSet(buddies);
+	}
+
 	public boolean isUserGoal(UUID goalId)
 	{
 		return userGoalIds.contains(goalId);
@@ -53,9 +66,9 @@ public class GoalIdMapping
 	public static GoalIdMapping createInstance(UserDto user)
 	{
 		Set<UUID> userGoalIds = user.getPrivateData().getGoals().stream().map(GoalDto::getGoalId).collect(Collectors.toSet());
+		Set<BuddyDto> buddies = user.getPrivateData().getBuddies();
 		Map<UUID, UUID> goalIdToBuddyIdmapping = new HashMap<>();
-		user.getPrivateData().getBuddies()
-				.forEach(b -> b.getGoals().forEach(g -> goalIdToBuddyIdmapping.put(g.getGoalId(), b.getId())));
-		return new GoalIdMapping(user, userGoalIds, goalIdToBuddyIdmapping);
+		buddies.forEach(b -> b.getGoals().forEach(g -> goalIdToBuddyIdmapping.put(g.getGoalId(), b.getId())));
+		return new GoalIdMapping(user, buddies, userGoalIds, goalIdToBuddyIdmapping);
 	}
 }
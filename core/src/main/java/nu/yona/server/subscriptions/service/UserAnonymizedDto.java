@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.subscriptions.service;
 
@@ -8,17 +8,22 @@ import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import nu.yona.server.goals.entities.ActivityCategory;
 import nu.yona.server.goals.entities.Goal;
 import nu.yona.server.goals.service.GoalDto;
 import nu.yona.server.messaging.service.MessageDestinationDto;
-import nu.yona.server.subscriptions.entities.BuddyAnonymized;
 import nu.yona.server.subscriptions.entities.BuddyAnonymized.Status;
 import nu.yona.server.subscriptions.entities.UserAnonymized;
 
@@ -31,25 +36,73 @@ public class UserAnonymizedDto implements Serializable
 	private final LocalDate lastMonitoredActivityDate;
 	private final Set<GoalDto> goals;
 	private final MessageDestinationDto anonymousMessageDestination;
-	private final Set<UUID> buddyAnonymizedIds;
+	private final Set<BuddyAnonymizedDto> buddiesAnonymized;
+	private final Map<UUID, UUID> previousGoalVersionIds;
+
+	// Indexes on the goals, built once so goal lookups (e.g. for every activity in the analysis engine) are hash lookups
+	private final Map<UUID, GoalDto> goalsById;
+	private final Map<UUID, Set<GoalDto>> goalsByActivityCategoryId;
+	private final Map<UUID, Set<GoalDto>> activeGoalsByActivityCategoryId;
+	private final Map<UUID, List<GoalDto>> goalHistoriesById;
 
 	private static final ZoneId DEFAULT_TIME_ZONE = ZoneId.of("Europe/Amsterdam");
 
 	public UserAnonymizedDto(UUID id, Optional<LocalDate> lastMonitoredActivityDate, Set<GoalDto> goals,
-			MessageDestinationDto anonymousMessageDestination, Set<UUID> buddyAnonymizedIds)
+			MessageDestinationDto anonymousMessageDestination, Set<BuddyAnonymizedDto> buddiesAnonymized)
+	{
+		this(id, lastMonitoredActivityDate, goals, Collections.emptyMap(), anonymousMessageDestination, buddiesAnonymized);
+	}
+
+	/**
+	 * @param previousGoalVersionIds Maps the ID of every goal that has a previous version to the ID of that previous version
+	 */
+	public UserAnonymizedDto(UUID id, Optional<LocalDate> lastMonitoredActivityDate, Set<GoalDto> goals,
+			Map<UUID, UUID> previousGoalVersionIds, MessageDestinationDto anonymousMessageDestination,
+			Set<BuddyAnonymizedDto> buddiesAnonymized)
 	{
 		this.id = id;
 		this.lastMonitoredActivityDate = lastMonitoredActivityDate.orElse(null);
 		this.goals = new HashSet<>(goals);
+		this.previousGoalVersionIds = new HashMap<>(previousGoalVersionIds);
 		this.anonymousMessageDestination = anonymousMessageDestination;
-		this.buddyAnonymizedIds = buddyAnonymizedIds;
+		this.buddiesAnonymized = new HashSet<>(buddiesAnonymized);
+
+		this.goalsById = Collections
+				.unmodifiableMap(goals.stream().collect(Collectors.toMap(GoalDto::getGoalId, Function.identity())));
+		this.goalsByActivityCategoryId = groupByActivityCategoryId(goals);
+		this.activeGoalsByActivityCategoryId = groupByActivityCategoryId(
+				goals.stream().filter(g -> !g.isHistoryItem()).collect(Collectors.toSet()));
+		this.goalHistoriesById = Collections.unmodifiableMap(goals.stream()
+				.collect(Collectors.toMap(GoalDto::getGoalId, g -> Collections.unmodifiableList(buildGoalHistory(g)))));
 	}
 
 	public static UserAnonymizedDto createInstance(UserAnonymized entity)
 	{
-		return new UserAnonymizedDto(entity.getId(), entity.getLastMonitoredActivityDate(), getGoalsIncludingHistoryItems(entity),
-				MessageDestinationDto.createInstance(entity.getAnonymousDestination()), entity.getBuddiesAnonymized().stream()
-						.map(buddyAnonymized -> buddyAnonymized.getId()).collect(Collectors.toSet()));
+		Set<Goal> allGoals = getGoalEntitiesIncludingHistoryItems(entity);
+		return new UserAnonymizedDto(entity.getId(), entity.getLastMonitoredActivityDate(),
+				allGoals.stream().map(g -> GoalDto.createInstance(g)).collect(Collectors.toSet()),
+				getPreviousGoalVersionIds(allGoals), MessageDestinationDto.createInstance(entity.getAnonymousDestination()),
+				entity.getBuddiesAnonymized().stream().map(BuddyAnonymizedDto::createInstance).collect(Collectors.toSet()));
+	}
+
+	private static Map<UUID, Set<GoalDto>> groupByActivityCategoryId(Set<GoalDto> goals)
+	{
+		Map<UUID, Set<GoalDto>> goalsByActivityCategoryId = goals.stream()
+				.collect(Collectors.groupingBy(GoalDto::getActivityCategoryId, Collectors.toSet()));
+		goalsByActivityCategoryId.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+		return Collections.unmodifiableMap(goalsByActivityCategoryId);
+	}
+
+	private List<GoalDto> buildGoalHistory(GoalDto goal)
+	{
+		List<GoalDto> history = new ArrayList<>();
+		Optional<GoalDto> version = Optional.of(goal);
+		while (version.isPresent())
+		{
+			history.add(version.get());
+			version = Optional.ofNullable(previousGoalVersionIds.get(version.get().getGoalId())).map(goalsById::get);
+		}
+		return history;
 	}
 
 	public UUID getId()
@@ -67,10 +120,44 @@ public class UserAnonymizedDto implements Serializable
 		return goals;
 	}
 
+	/**
+	 * Returns the goals for the given activity category, including the history items.
+	 */
 	public Set<GoalDto> getGoalsForActivityCategory(ActivityCategory activityCategory)
 	{
-		return getGoals().stream().filter(g -> g.getActivityCategoryId().equals(activityCategory.getId()))
-				.collect(Collectors.toSet());
+		return goalsByActivityCategoryId.getOrDefault(activityCategory.getId(), Collections.emptySet());
+	}
+
+	/**
+	 * Returns the active goals (so no history items) for the given activity category.
+	 */
+	public Set<GoalDto> getActiveGoalsForActivityCategoryId(UUID activityCategoryId)
+	{
+		return activeGoalsByActivityCategoryId.getOrDefault(activityCategoryId, Collections.emptySet());
+	}
+
+	/**
+	 * Returns the goal with the given ID. This can be a history item.
+	 */
+	public Optional<GoalDto> getGoal(UUID goalId)
+	{
+		return Optional.ofNullable(goalsById.get(goalId));
+	}
+
+	/**
+	 * Returns the given goal, followed by its previous versions, newest first. Empty if the user does not have this goal.
+	 */
+	public List<GoalDto> getGoalHistory(UUID goalId)
+	{
+		return goalHistoriesById.getOrDefault(goalId, Collections.emptyList());
+	}
+
+	/**
+	 * Maps the ID of every goal that has a previous version to the ID of that previous version.
+	 */
+	public Map<UUID, UUID> getPreviousGoalVersionIds()
+	{
+		return Collections.unmodifiableMap(previousGoalVersionIds);
 	}
 
 	public ZoneId getTimeZone()
@@ -83,17 +170,26 @@ public class UserAnonymizedDto implements Serializable
 		return anonymousMessageDestination;
 	}
 
+	public Set<UUID> getBuddyAnonymizedIds()
+	{
+		return buddiesAnonymized.stream().map(BuddyAnonymizedDto::getId).collect(Collectors.toSet());
+	}
+
+	public Set<BuddyAnonymizedDto> getBuddiesAnonymized()
+	{
+		return Collections.unmodifiableSet(buddiesAnonymized);
+	}
+
 	public Set<MessageDestinationDto> getBuddyDestinations()
 	{
-		return buddyAnonymizedIds.stream().map(id -> BuddyAnonymized.getRepository().findOne(id))
-				.filter(ba -> ba.getSendingStatus() == Status.ACCEPTED)
-				.map(ba -> MessageDestinationDto.createInstance(ba.getUserAnonymized().getAnonymousDestination()))
+		return buddiesAnonymized.stream().filter(ba -> ba.getSendingStatus() == Status.ACCEPTED)
+				.map(BuddyAnonymizedDto::getUserAnonymizedDestination).filter(Optional::isPresent).map(Optional::get)
 				.collect(Collectors.toSet());
 	}
 
-	public Optional<BuddyAnonymized> getBuddyAnonymized(UUID fromUserAnonymizedId)
+	public Optional<BuddyAnonymizedDto> getBuddyAnonymized(UUID fromUserAnonymizedId)
 	{
-		return buddyAnonymizedIds.stream().map(id -> BuddyAnonymized.getRepository().findOne(id))
+		return buddiesAnonymized.stream()
 				.filter(ba -> ba.getUserAnonymizedId().filter(id -> id.equals(fromUserAnonymizedId)).isPresent()).findAny();
 	}
 
@@ -105,16 +201,30 @@ public class UserAnonymizedDto implements Serializable
 
 	private GoalDto getOldestVersionOfGoal(GoalDto goal)
 	{
-		return goal;
+		List<GoalDto> history = getGoalHistory(goal.getGoalId());
+		return history.get(history.size() - 1);
 	}
 
 	static Set<GoalDto> getGoalsIncludingHistoryItems(UserAnonymized userAnonymizedEntity)
+	{
+		return getGoalEntitiesIncludingHistoryItems(userAnonymizedEntity).stream().map(g -> GoalDto.createInstance(g))
+				.collect(Collectors.toSet());
+	}
+
+	private static Set<Goal> getGoalEntitiesIncludingHistoryItems(UserAnonymized userAnonymizedEntity)
 	{
 		Set<Goal> activeGoals = userAnonymizedEntity.getGoals();
 		Set<Goal> historyItems = getGoalHistoryItems(activeGoals);
 		Set<Goal> allGoals = new HashSet<>(activeGoals);
 		allGoals.addAll(historyItems);
-		return allGoals.stream().map(g -> GoalDto.createInstance(g)).collect(Collectors.toSet());
+		return allGoals;
+	}
+
+	private static Map<UUID, UUID> getPreviousGoalVersionIds(Set<Goal> goals)
+	{
+		Map<UUID, UUID> previousGoalVersionIds = new HashMap<>();
+		goals.forEach(g -> g.getPreviousVersionOfThisGoal().ifPresent(p -> previousGoalVersionIds.put(g.getId(), p.getId())));
+		return previousGoalVersionIds;
 	}
 
 	private static Set<Goal> getGoalHistoryItems(Set<Goal> activeGoals)
@@ -133,6 +243,6 @@ public class UserAnonymizedDto implements Serializable
 
 	public boolean hasAnyBuddies()
 	{
-		return !buddyAnonymizedIds.isEmpty();
+		return !buddiesAnonymized.isEmpty();
 	}
 }
@@ -4,34 +4,53 @@
  *******************************************************************************/
 package nu.yona.server.subscriptions.service;
 
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import com.hazelcast.core.IMap;
+
 import nu.yona.server.exceptions.InvalidDataException;
 import nu.yona.server.subscriptions.entities.UserAnonymized;
 import nu.yona.server.subscriptions.entities.UserAnonymizedRepository;
 
-@CacheConfig(cacheNames = "usersAnonymized")
+@CacheConfig(cacheNames = UserAnonymizedService.CACHE_NAME)
 @Service
 public class UserAnonymizedService
 {
+	public static final String CACHE_NAME = "usersAnonymized";
+
 	@Autowired(required = false)
 	private UserAnonymizedRepository userAnonymizedRepository;
 
+	@Autowired
+	private CacheManager cacheManager;
+
 	public Set<UserAnonymizedDto> getAllUsersAnonymized()
 	{
 		return userAnonymizedRepository.findAll().stream().map(entity -> UserAnonymizedDto.createInstance(entity))
 				.collect(Collectors.toSet());
 	}
 
+	public List<UUID> getIdsOfUsersAnonymizedWithActivitySince(LocalDate date)
+	{
+		return userAnonymizedRepository.findIdsWithLastMonitoredActivityDateSince(date);
+	}
+
 	@Cacheable
 	public UserAnonymizedDto getUserAnonymized(UUID userAnonymizedId)
 	{
@@ -43,6 +62,48 @@ public class UserAnonymizedService
 		return UserAnonymizedDto.createInstance(entity);
 	}
 
+	/**
+	 * Returns the anonymized users with the given IDs, fetching all cached ones in a single cache operation. The ones that are not
+	 * cached yet are loaded with a single query and added to the cache.
+	 */
+	public Map<UUID, UserAnonymizedDto> getUsersAnonymized(Set<UUID> userAnonymizedIds)
+	{
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		Map<UUID, UserAnonymizedDto> usersAnonymized = new HashMap<>(getAllFromCache(cache, userAnonymizedIds));
+		Set<UUID> missingIds = userAnonymizedIds.stream().filter(id -> !usersAnonymized.containsKey(id))
+				.collect(Collectors.toSet());
+		if (missingIds.isEmpty())
+		{
+			return usersAnonymized;
+		}
+		for (UserAnonymized entity : userAnonymizedRepository.findAll(missingIds))
+		{
+			UserAnonymizedDto userAnonymized = UserAnonymizedDto.createInstance(entity);
+			cache.put(entity.getId(), userAnonymized);
+			usersAnonymized.put(entity.getId(), userAnonymized);
+		}
+		Optional<UUID> notFoundId = missingIds.stream().filter(id -> !usersAnonymized.containsKey(id)).findAny();
+		if (notFoundId.isPresent())
+		{
+			throw InvalidDataException.userAnonymizedIdNotFound(notFoundId.get());
+		}
+		return usersAnonymized;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<UUID, UserAnonymizedDto> getAllFromCache(Cache cache, Set<UUID> userAnonymizedIds)
+	{
+		Object nativeCache = cache.getNativeCache();
+		if (nativeCache instanceof IMap)
+		{
+			return ((IMap<UUID, UserAnonymizedDto>) nativeCache).getAll(userAnonymizedIds);
+		}
+		Map<UUID, UserAnonymizedDto> usersAnonymized = new HashMap<>();
+		userAnonymizedIds.forEach(id -> Optional.ofNullable(cache.get(id, UserAnonymizedDto.class))
+				.ifPresent(userAnonymized -> usersAnonymized.put(id, userAnonymized)));
+		return usersAnonymized;
+	}
+
 	/*
 	 * Prefer to use other method, because this one is not cached.
 	 */
@@ -58,12 +119,31 @@ public class UserAnonymizedService
 		return UserAnonymizedDto.createInstance(savedEntity);
 	}
 
-	@CacheEvict(key = "#userAnonymizedId")
+	@CacheEvict(key = "#entity.id")
 	public UserAnonymized updateUserAnonymized(UserAnonymized entity)
 	{
 		return userAnonymizedRepository.saveAndFlush(entity);
 	}
 
+	/*
+	 * Saves the entity but leaves the cached DTO in place. Only use this if the changes are not reflected in the DTO, like added
+	 * activities or messages. This prevents that the analysis engine evicts the DTO on every activity it registers.
+	 */
+	public UserAnonymized updateUserAnonymizedKeepingCachedDto(UserAnonymized entity)
+	{
+		return userAnonymizedRepository.saveAndFlush(entity);
+	}
+
+	/*
+	 * Evicts the cached DTO after a change that is reflected in the DTO but not saved through this service, like a change of the
+	 * status of a buddy.
+	 */
+	@CacheEvict(key = "#userAnonymizedId")
+	public void evictUserAnonymized(UUID userAnonymizedId)
+	{
+		// The annotation does the work
+	}
+
 	@CacheEvict(key = "#userAnonymizedId")
 	public void deleteUserAnonymized(UUID userAnonymizedId)
 	{
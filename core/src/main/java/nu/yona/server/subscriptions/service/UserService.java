@@ -130,20 +130,26 @@ public class UserService
 		return UserDto.createInstance(getUserEntityById(id));
 	}
 
+	/**
+	 * Returns the user with its decrypted private data. The DTO is memoized in the current crypto session, so a request loads and
+	 * decrypts the user only once, unless it writes to the database in between.
+	 */
 	@Transactional
 	public UserDto getPrivateUser(UUID id)
 	{
-		User user = getUserEntityById(id);
-		handleBuddyUsersRemovedWhileOffline(user);
-		return createUserDtoWithPrivateData(user);
+		return CryptoSession.getCurrent().getMemoized(UserDto.class, id, () -> {
+			User user = getUserEntityById(id);
+			handleBuddyUsersRemovedWhileOffline(user);
+			return createUserDtoWithPrivateData(user);
+		});
 	}
 
 	@Transactional
 	public UserDto getPrivateValidatedUser(UUID id)
 	{
-		User validatedUser = getValidatedUserbyId(id);
-		handleBuddyUsersRemovedWhileOffline(validatedUser);
-		return createUserDtoWithPrivateData(validatedUser);
+		UserDto validatedUser = getPrivateUser(id);
+		validatedUser.assertMobileNumberConfirmed();
+		return validatedUser;
 	}
 
 	@Transactional
@@ -208,8 +214,7 @@ public class UserService
 
 	UserDto createUserDtoWithPrivateData(User user)
 	{
-		return UserDto.createInstanceWithPrivateData(user,
-				(buddyIds) -> buddyIds.stream().map((bid) -> buddyService.getBuddy(bid)).collect(Collectors.toSet()));
+		return UserDto.createInstanceWithPrivateData(user, buddyService::getBuddies);
 	}
 
 	private void addMandatoryGoals(User userEntity)
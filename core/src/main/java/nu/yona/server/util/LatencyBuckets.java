@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.util;
+
+/**
+ * The actuator metrics of Spring Boot have no histogram type, so latency histograms are recorded as one counter per latency
+ * bucket. This class determines the bucket name for a latency.
+ */
+public class LatencyBuckets
+{
+	private static final long[] UPPER_BOUNDS_MILLIS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+	private static final String[] BUCKET_NAMES = createBucketNames();
+	public static final int BUCKET_COUNT = BUCKET_NAMES.length;
+
+	private LatencyBuckets()
+	{
+		// No instances
+	}
+
+	private static String[] createBucketNames()
+	{
+		String[] names = new String[UPPER_BOUNDS_MILLIS.length + 1];
+		for (int i = 0; i < UPPER_BOUNDS_MILLIS.length; i++)
+		{
+			names[i] = "upTo" + UPPER_BOUNDS_MILLIS[i] + "ms";
+		}
+		names[UPPER_BOUNDS_MILLIS.length] = "over" + UPPER_BOUNDS_MILLIS[UPPER_BOUNDS_MILLIS.length - 1] + "ms";
+		return names;
+	}
+
+	public static String getBucketName(long latencyMillis)
+	{
+		return getBucketNameOfIndex(getBucketIndex(latencyMillis));
+	}
+
+	public static String getBucketNameOfIndex(int bucketIndex)
+	{
+		return BUCKET_NAMES[bucketIndex];
+	}
+
+	/**
+	 * @return The index of the bucket of the given latency, from 0 (inclusive) to {@link #BUCKET_COUNT} (exclusive)
+	 */
+	public static int getBucketIndex(long latencyMillis)
+	{
+		for (int i = 0; i < UPPER_BOUNDS_MILLIS.length; i++)
+		{
+			if (latencyMillis <= UPPER_BOUNDS_MILLIS[i])
+			{
+				return i;
+			}
+		}
+		return UPPER_BOUNDS_MILLIS.length;
+	}
+}
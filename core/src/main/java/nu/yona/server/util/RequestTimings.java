@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the time spent in the phases of the request that is handled by the current thread, and the number of database
+ * operations (see yona.monitoring.queryCountingEnabled). The timings are started and stopped by the RequestTimingFilter. Outside
+ * a request, recording a phase time or count is a no-op. Phases may overlap, e.g. starting the crypto session includes a
+ * database query.
+ */
+public class RequestTimings
+{
+	public enum Phase
+	{
+		CRYPTO_SESSION_START("cryptoSessionStart"), DATABASE("database"), SERIALIZATION("serialization");
+
+		private final String displayName;
+
+		Phase(String displayName)
+		{
+			this.displayName = displayName;
+		}
+	}
+
+	public enum Counter
+	{
+		JDBC_STATEMENTS("jdbcStatements", "X-Yona-Jdbc-Statements"), ENTITY_LOADS("entityLoads",
+				"X-Yona-Entity-Loads"), COLLECTION_FETCHES("collectionFetches", "X-Yona-Collection-Fetches");
+
+		private final String displayName;
+		private final String headerName;
+
+		Counter(String displayName, String headerName)
+		{
+			this.displayName = displayName;
+			this.headerName = headerName;
+		}
+
+		public String getDisplayName()
+		{
+			return displayName;
+		}
+
+		public String getHeaderName()
+		{
+			return headerName;
+		}
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final Counter[] COUNTERS = Counter.values();
+	private static final ThreadLocal<RequestTimings> current = new ThreadLocal<>();
+
+	private final long startNanos;
+	private final long[] phaseNanos = new long[PHASES.length];
+	private final int[] counts = new int[COUNTERS.length];
+	private long serializationStartNanos;
+
+	private RequestTimings(long startNanos)
+	{
+		this.startNanos = startNanos;
+	}
+
+	public static RequestTimings start()
+	{
+		RequestTimings timings = new RequestTimings(System.nanoTime());
+		current.set(timings);
+		return timings;
+	}
+
+	/**
+	 * Stops collecting timings for the current thread.
+	 * 
+	 * @return The elapsed time since the start, in nanoseconds
+	 */
+	public long stop()
+	{
+		current.remove();
+		long nowNanos = System.nanoTime();
+		if (serializationStartNanos != 0)
+		{
+			phaseNanos[Phase.SERIALIZATION.ordinal()] += nowNanos - serializationStartNanos;
+		}
+		return nowNanos - startNanos;
+	}
+
+	public static boolean isActive()
+	{
+		return current.get() != null;
+	}
+
+	public static void addPhaseTime(Phase phase, long nanos)
+	{
+		RequestTimings timings = current.get();
+		if (timings != null)
+		{
+			timings.phaseNanos[phase.ordinal()] += nanos;
+		}
+	}
+
+	public static void increment(Counter counter)
+	{
+		RequestTimings timings = current.get();
+		if (timings != null)
+		{
+			timings.counts[counter.ordinal()]++;
+		}
+	}
+
+	/**
+	 * @return The counts of the current request, or null if there is no current request
+	 */
+	public static RequestTimings getCurrent()
+	{
+		return current.get();
+	}
+
+	/**
+	 * Marks the start of the serialization of the response body. The serialization is assumed to last until the timings are
+	 * stopped.
+	 */
+	public static void markSerializationStart()
+	{
+		RequestTimings timings = current.get();
+		if (timings != null)
+		{
+			timings.serializationStartNanos = System.nanoTime();
+		}
+	}
+
+	public long getPhaseNanos(Phase phase)
+	{
+		return phaseNanos[phase.ordinal()];
+	}
+
+	public int getCount(Counter counter)
+	{
+		return counts[counter.ordinal()];
+	}
+
+	public String getBreakdown()
+	{
+		StringBuilder breakdown = new StringBuilder();
+		for (Phase phase : PHASES)
+		{
+			if (breakdown.length() > 0)
+			{
+				breakdown.append(", ");
+			}
+			breakdown.append(phase.displayName).append('=').append(TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()]))
+					.append("ms");
+		}
+		for (Counter counter : COUNTERS)
+		{
+			breakdown.append(", ").append(counter.displayName).append('=').append(counts[counter.ordinal()]);
+		}
+		return breakdown.toString();
+	}
+}
@@ -1,6 +1,6 @@
 /*******************************************************************************
- * Copyright (c) 2016 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  *******************************************************************************/
 package nu.yona.server.util;
 
@@ -10,6 +10,8 @@ import javax.transaction.Transactional;
 import javax.transaction.Transactional.TxType;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /*
  * Triggers the use of new subtransactions. See
@@ -29,4 +31,26 @@ public class TransactionHelper
 	{
 		runnable.run();
 	}
+
+	/**
+	 * Executes the given runnable once the current transaction is committed, or right away if there is no transaction. If the
+	 * transaction is rolled back, the runnable is not executed.
+	 * 
+	 * @param runnable The runnable to execute
+	 */
+	public void executeAfterCommit(Runnable runnable)
+	{
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			runnable.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit()
+			{
+				runnable.run();
+			}
+		});
+	}
 }
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.entities;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import nu.yona.server.crypto.pubkey.PublicKeyUtil;
+import nu.yona.server.goals.entities.ActivityCategory;
+import nu.yona.server.goals.entities.BudgetGoal;
+import nu.yona.server.goals.entities.Goal;
+import nu.yona.server.messaging.entities.MessageDestination;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+import nu.yona.server.util.TimeUtil;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = ActivityRepositoryTest.Configuration.class)
+@TestPropertySource(properties = { "spring.jpa.database-platform=org.hibernate.dialect.HSQLDialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop" })
+public class ActivityRepositoryTest
+{
+	private static final ZoneId AMSTERDAM = ZoneId.of("Europe/Amsterdam");
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ActivityRepository repository;
+
+	private UserAnonymized userAnonymized;
+	private Goal goal;
+
+	@Before
+	public void setUp()
+	{
+		ActivityCategory activityCategory = entityManager.persist(ActivityCategory.createInstance(UUID.randomUUID(),
+				Collections.singletonMap(Locale.US, "gambling"), false, new HashSet<>(), new HashSet<>(), new HashMap<>()));
+		goal = entityManager.persist(BudgetGoal.createInstance(TimeUtil.utcNow(), activityCategory, 60));
+		MessageDestination anonymousDestination = entityManager
+				.persist(MessageDestination.createInstance(PublicKeyUtil.generateKeyPair().getPublic()));
+		userAnonymized = entityManager
+				.persist(UserAnonymized.createInstance(anonymousDestination, new HashSet<>(Collections.singleton(goal))));
+	}
+
+	@Test
+	public void testFindLatestNoActivities()
+	{
+		assertThat(findLatest(1), empty());
+	}
+
+	@Test
+	public void testFindLatestLaterDayFirst()
+	{
+		LocalDate today = LocalDate.now(AMSTERDAM);
+		Activity todaysActivity = persistActivity(persistDayActivity(today), today.atTime(9, 0));
+		Activity yesterdaysActivity = persistActivity(persistDayActivity(today.minusDays(1)), today.minusDays(1).atTime(20, 0));
+
+		assertThat(findLatest(1), contains(todaysActivity));
+		assertThat(findLatest(2), contains(todaysActivity, yesterdaysActivity));
+	}
+
+	@Test
+	public void testFindLatestSameDayHighestIdFirst()
+	{
+		LocalDate today = LocalDate.now(AMSTERDAM);
+		DayActivity dayActivity = persistDayActivity(today);
+		Activity firstActivity = persistActivity(dayActivity, today.atTime(9, 0));
+		Activity secondActivity = persistActivity(dayActivity, today.atTime(10, 0));
+
+		assertThat(findLatest(1), contains(secondActivity));
+		assertThat(findLatest(2), contains(secondActivity, firstActivity));
+	}
+
+	@Test
+	public void testFindLatestOtherGoalIgnored()
+	{
+		LocalDate today = LocalDate.now(AMSTERDAM);
+		Activity activity = persistActivity(persistDayActivity(today), today.atTime(9, 0));
+		Goal otherGoal = entityManager
+				.persist(BudgetGoal.createInstance(TimeUtil.utcNow(), goal.getActivityCategory(), 30));
+		persistActivity(entityManager.persist(DayActivity.createInstance(userAnonymized, otherGoal, AMSTERDAM, today)),
+				today.atTime(11, 0));
+
+		assertThat(findLatest(2), contains(activity));
+	}
+
+	private List<Activity> findLatest(int count)
+	{
+		entityManager.flush();
+		entityManager.clear();
+		return repository.findLatest(userAnonymized.getId(), goal.getId(), new PageRequest(0, count));
+	}
+
+	private DayActivity persistDayActivity(LocalDate date)
+	{
+		return entityManager.persist(DayActivity.createInstance(userAnonymized, goal, AMSTERDAM, date));
+	}
+
+	private Activity persistActivity(DayActivity dayActivity, LocalDateTime startTime)
+	{
+		Activity activity = Activity.createInstance(AMSTERDAM, startTime, startTime.plusMinutes(10));
+		dayActivity.addActivity(activity);
+		return entityManager.persist(activity);
+	}
+
+	@EnableAutoConfiguration
+	@EntityScan("nu.yona.server")
+	@EnableJpaRepositories(basePackageClasses = ActivityRepository.class)
+	static class Configuration
+	{
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.analysis.service;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.service.IntervalActivityDto.LevelOfDetail;
+import nu.yona.server.goals.entities.ActivityCategory;
+import nu.yona.server.goals.entities.BudgetGoal;
+import nu.yona.server.messaging.service.MessageDto;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+
+public class DayActivityDtoTest
+{
+	private static final LocalDateTime CREATION_TIME = LocalDateTime.of(2017, 3, 1, 20, 15);
+
+	private DayActivity dayActivity;
+
+	@Before
+	public void setUp()
+	{
+		ActivityCategory activityCategory = ActivityCategory.createInstance(UUID.randomUUID(),
+				Collections.singletonMap(Locale.US, "gambling"), false, new HashSet<>(), new HashSet<>(),
+				Collections.singletonMap(Locale.US, "Descr"));
+		BudgetGoal goal = BudgetGoal.createInstance(LocalDateTime.of(2017, 1, 1, 0, 0), activityCategory, 60);
+		dayActivity = DayActivity.createInstance(mock(UserAnonymized.class), goal, ZoneId.of("Europe/Amsterdam"),
+				LocalDate.of(2017, 3, 1));
+	}
+
+	@Test
+	public void testFingerprintStableForSameMessages()
+	{
+		assertThat(getFingerprint(createMessage(1, CREATION_TIME), createMessage(2, CREATION_TIME)),
+				equalTo(getFingerprint(createMessage(2, CREATION_TIME), createMessage(1, CREATION_TIME))));
+	}
+
+	@Test
+	public void testFingerprintChangesWhenMessageReplaced()
+	{
+		assertThat(getFingerprint(createMessage(1, CREATION_TIME), createMessage(2, CREATION_TIME)),
+				not(equalTo(getFingerprint(createMessage(1, CREATION_TIME), createMessage(3, CREATION_TIME)))));
+	}
+
+	@Test
+	public void testFingerprintChangesWithCreationTime()
+	{
+		assertThat(getFingerprint(createMessage(1, CREATION_TIME)),
+				not(equalTo(getFingerprint(createMessage(1, CREATION_TIME.plusMinutes(1))))));
+	}
+
+	private String getFingerprint(MessageDto... messages)
+	{
+		DayActivityDto dayActivityDto = DayActivityDto.createInstance(dayActivity, LevelOfDetail.DayDetail);
+		ReflectionTestUtils.setField(dayActivityDto, "messages", new HashSet<>(Arrays.asList(messages)));
+		return dayActivityDto.getContentFingerprint();
+	}
+
+	private static MessageDto createMessage(long id, LocalDateTime creationTime)
+	{
+		MessageDto message = mock(MessageDto.class);
+		when(message.getMessageId()).thenReturn(id);
+		when(message.getCreationTime()).thenReturn(creationTime);
+		return message;
+	}
+}
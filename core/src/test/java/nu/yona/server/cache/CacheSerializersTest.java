@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.cache;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+
+import nu.yona.server.goals.service.BudgetGoalDto;
+import nu.yona.server.goals.service.GoalDto;
+import nu.yona.server.goals.service.TimeZoneGoalDto;
+import nu.yona.server.messaging.service.MessageDestinationDto;
+import nu.yona.server.subscriptions.entities.BuddyAnonymized.Status;
+import nu.yona.server.subscriptions.service.BuddyAnonymizedDto;
+import nu.yona.server.subscriptions.service.UserAnonymizedDto;
+
+public class CacheSerializersTest
+{
+	private SerializationService serializationService;
+
+	@Before
+	public void setUp()
+	{
+		SerializationConfig serializationConfig = new SerializationConfig();
+		CacheSerializers.register(serializationConfig);
+		serializationService = new DefaultSerializationServiceBuilder().setConfig(serializationConfig).build();
+	}
+
+	@Test
+	public void testUserAnonymizedRoundTrip()
+	{
+		LocalDateTime creationTime = LocalDateTime.of(2017, 3, 14, 15, 9, 26, 535000000);
+		BudgetGoalDto budgetGoal = new BudgetGoalDto(UUID.randomUUID(), UUID.randomUUID(), 60, creationTime,
+				Optional.of(creationTime.plusDays(1)), true);
+		TimeZoneGoalDto timeZoneGoal = new TimeZoneGoalDto(UUID.randomUUID(), UUID.randomUUID(),
+				Arrays.asList("08:00-12:00", "20:00-22:00"), creationTime, Optional.empty(), Arrays.asList(32, 33, 80));
+		MessageDestinationDto buddyDestination = new MessageDestinationDto(UUID.randomUUID());
+		BuddyAnonymizedDto acceptedBuddy = new BuddyAnonymizedDto(UUID.randomUUID(), Optional.of(UUID.randomUUID()),
+				Status.ACCEPTED, Optional.of(buddyDestination));
+		BuddyAnonymizedDto requestedBuddy = new BuddyAnonymizedDto(UUID.randomUUID(), Optional.empty(), Status.REQUESTED,
+				Optional.empty());
+		UserAnonymizedDto original = new UserAnonymizedDto(UUID.randomUUID(), Optional.of(LocalDate.of(2017, 3, 15)),
+				new HashSet<>(Arrays.asList(budgetGoal, timeZoneGoal)), new MessageDestinationDto(UUID.randomUUID()),
+				new HashSet<>(Arrays.asList(acceptedBuddy, requestedBuddy)));
+
+		UserAnonymizedDto copy = serializationService.toObject(serializationService.toData(original));
+
+		assertThat(copy.getId(), equalTo(original.getId()));
+		assertThat(copy.getLastMonitoredActivityDate(), equalTo(original.getLastMonitoredActivityDate()));
+		assertThat(copy.getAnonymousDestination().getId(), equalTo(original.getAnonymousDestination().getId()));
+		assertThat(copy.getBuddyAnonymizedIds(), equalTo(original.getBuddyAnonymizedIds()));
+		assertThat(copy.getBuddyDestinations().size(), equalTo(1));
+		assertThat(copy.getBuddyDestinations().iterator().next().getId(), equalTo(buddyDestination.getId()));
+		assertThat(copy.getBuddyAnonymized(acceptedBuddy.getUserAnonymizedId().get()).get().getId(),
+				equalTo(acceptedBuddy.getId()));
+		Map<UUID, GoalDto> copiedGoals = copy.getGoals().stream()
+				.collect(Collectors.toMap(GoalDto::getGoalId, Function.identity()));
+		assertThat(copiedGoals.size(), equalTo(2));
+
+		GoalDto copiedBudgetGoal = copiedGoals.get(budgetGoal.getGoalId());
+		assertThat(copiedBudgetGoal, instanceOf(BudgetGoalDto.class));
+		assertThat(copiedBudgetGoal.getActivityCategoryId(), equalTo(budgetGoal.getActivityCategoryId()));
+		assertThat(((BudgetGoalDto) copiedBudgetGoal).getMaxDurationMinutes(), equalTo(60));
+		assertThat(copiedBudgetGoal.getCreationTime(), equalTo(budgetGoal.getCreationTime()));
+		assertThat(copiedBudgetGoal.getEndTime(), equalTo(budgetGoal.getEndTime()));
+		assertThat(copiedBudgetGoal.isMandatory(), equalTo(true));
+
+		GoalDto copiedTimeZoneGoal = copiedGoals.get(timeZoneGoal.getGoalId());
+		assertThat(copiedTimeZoneGoal, instanceOf(TimeZoneGoalDto.class));
+		assertThat(((TimeZoneGoalDto) copiedTimeZoneGoal).getZones(), equalTo(timeZoneGoal.getZones()));
+		assertThat(((TimeZoneGoalDto) copiedTimeZoneGoal).getSpreadCells(), equalTo(timeZoneGoal.getSpreadCells()));
+		assertThat(copiedTimeZoneGoal.getEndTime(), equalTo(Optional.empty()));
+	}
+
+	@Test
+	public void testUserAnonymizedWithGoalHistoryRoundTrip()
+	{
+		UUID activityCategoryId = UUID.randomUUID();
+		LocalDateTime creationTime = LocalDateTime.of(2017, 3, 14, 15, 9, 26);
+		BudgetGoalDto oldestGoal = new BudgetGoalDto(UUID.randomUUID(), activityCategoryId, 60, creationTime,
+				Optional.of(creationTime.plusDays(1)), false);
+		BudgetGoalDto previousGoal = new BudgetGoalDto(UUID.randomUUID(), activityCategoryId, 30, creationTime.plusDays(1),
+				Optional.of(creationTime.plusDays(2)), false);
+		BudgetGoalDto activeGoal = new BudgetGoalDto(UUID.randomUUID(), activityCategoryId, 0, creationTime.plusDays(2),
+				Optional.empty(), false);
+		Map<UUID, UUID> previousGoalVersionIds = new HashMap<>();
+		previousGoalVersionIds.put(activeGoal.getGoalId(), previousGoal.getGoalId());
+		previousGoalVersionIds.put(previousGoal.getGoalId(), oldestGoal.getGoalId());
+		UserAnonymizedDto original = new UserAnonymizedDto(UUID.randomUUID(), Optional.empty(),
+				new HashSet<>(Arrays.asList(oldestGoal, previousGoal, activeGoal)), previousGoalVersionIds,
+				new MessageDestinationDto(UUID.randomUUID()), Collections.emptySet());
+
+		UserAnonymizedDto copy = serializationService.toObject(serializationService.toData(original));
+
+		assertThat(copy.getPreviousGoalVersionIds(), equalTo(previousGoalVersionIds));
+		assertThat(copy.getGoalHistory(activeGoal.getGoalId()).stream().map(GoalDto::getGoalId).collect(Collectors.toList()),
+				contains(activeGoal.getGoalId(), previousGoal.getGoalId(), oldestGoal.getGoalId()));
+		assertThat(copy.getActiveGoalsForActivityCategoryId(activityCategoryId).size(), equalTo(1));
+		assertThat(copy.getActiveGoalsForActivityCategoryId(activityCategoryId).iterator().next().getGoalId(),
+				equalTo(activeGoal.getGoalId()));
+		assertThat(copy.getGoal(oldestGoal.getGoalId()).isPresent(), equalTo(true));
+		assertThat(copy.getOldestGoalCreationTime(), equalTo(Optional.of(creationTime)));
+	}
+
+	@Test
+	public void testUserAnonymizedWithoutActivityRoundTrip()
+	{
+		UserAnonymizedDto original = new UserAnonymizedDto(UUID.randomUUID(), Optional.empty(), Collections.emptySet(),
+				new MessageDestinationDto(UUID.randomUUID()), Collections.emptySet());
+
+		UserAnonymizedDto copy = serializationService.toObject(serializationService.toData(original));
+
+		assertThat(copy.getLastMonitoredActivityDate(), equalTo(Optional.empty()));
+		assertThat(copy.getGoals().isEmpty(), equalTo(true));
+	}
+}
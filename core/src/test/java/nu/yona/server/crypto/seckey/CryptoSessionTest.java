@@ -15,6 +15,7 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -71,6 +72,24 @@ public class CryptoSessionTest
 		assertThat(uuid, equalTo(dataContainer.uuid));
 	}
 
+	@Test
+	public void testMemoizedValues()
+	{
+		UUID id = UUID.randomUUID();
+		AtomicInteger supplierCalls = new AtomicInteger();
+		try (CryptoSession cryptoSession = CryptoSession.start(Optional.of(PASSWORD1), () -> true))
+		{
+			String first = cryptoSession.getMemoized(String.class, id, () -> PLAINTEXT1 + supplierCalls.incrementAndGet());
+			String second = cryptoSession.getMemoized(String.class, id, () -> PLAINTEXT1 + supplierCalls.incrementAndGet());
+			assertThat(second, equalTo(first));
+			assertThat(supplierCalls.get(), equalTo(1));
+
+			CryptoSession.clearMemoizedValues();
+			cryptoSession.getMemoized(String.class, id, () -> PLAINTEXT1 + supplierCalls.incrementAndGet());
+			assertThat(supplierCalls.get(), equalTo(2));
+		}
+	}
+
 	@Test(expected = CryptoException.class)
 	public void testCryptoVariantNumber()
 	{
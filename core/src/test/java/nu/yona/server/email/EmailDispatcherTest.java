@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.email;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import nu.yona.server.email.EmailDispatcher.EmailMessage;
+import nu.yona.server.properties.YonaProperties;
+
+public class EmailDispatcherTest
+{
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	private final YonaProperties yonaProperties = new YonaProperties();
+	private final JavaMailSender mockMailSender = mock(JavaMailSender.class);
+	private final CounterService mockCounterService = mock(CounterService.class);
+	private final GaugeService mockGaugeService = mock(GaugeService.class);
+	private final List<List<String>> sentBatches = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch sendAllowed = new CountDownLatch(1);
+	private final EmailDispatcher dispatcher = new EmailDispatcher();
+
+	@Before
+	public void setUp() throws Exception
+	{
+		yonaProperties.getEmail().setSenderAddress("noreply@yona.nu");
+		when(mockMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+		doAnswer(invocation -> {
+			List<String> subjects = new ArrayList<>();
+			for (Object mimeMessage : invocation.getArguments())
+			{
+				subjects.add(((MimeMessage) mimeMessage).getSubject());
+			}
+			sentBatches.add(subjects);
+			sendAllowed.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			return null;
+		}).when(mockMailSender).send(Matchers.<MimeMessage[]> anyVararg());
+		ReflectionTestUtils.setField(dispatcher, "yonaProperties", yonaProperties);
+		ReflectionTestUtils.setField(dispatcher, "mailSender", mockMailSender);
+		ReflectionTestUtils.setField(dispatcher, "counterService", mockCounterService);
+		ReflectionTestUtils.setField(dispatcher, "gaugeService", mockGaugeService);
+	}
+
+	@After
+	public void tearDown()
+	{
+		sendAllowed.countDown();
+	}
+
+	@Test
+	public void testMessageSentOnDispatcherThread() throws Exception
+	{
+		sendAllowed.countDown();
+		start();
+
+		dispatcher.dispatch(createMessage("subject1"));
+		stop();
+
+		verify(mockCounterService).increment("counter.email.sent");
+		assertThat(sentBatches.size(), equalTo(1));
+		assertThat(sentBatches.get(0), equalTo(Collections.singletonList("subject1")));
+	}
+
+	@Test
+	public void testQueuedMessagesSentInOneBatch() throws Exception
+	{
+		start();
+		dispatcher.dispatch(createMessage("subject1"));
+		awaitBatchCount(1);
+
+		// The dispatcher thread is blocked in sending the first message, so these are queued
+		dispatcher.dispatch(createMessage("subject2"));
+		dispatcher.dispatch(createMessage("subject3"));
+		sendAllowed.countDown();
+		stop();
+
+		verify(mockCounterService, times(3)).increment("counter.email.sent");
+		assertThat(sentBatches.size(), equalTo(2));
+		assertThat(sentBatches.get(1), equalTo(Arrays.asList("subject2", "subject3")));
+	}
+
+	@Test
+	public void testFullQueueSendsSynchronously() throws Exception
+	{
+		yonaProperties.getEmail().setDispatcherQueueCapacity(1);
+		start();
+		dispatcher.dispatch(createMessage("subject1"));
+		awaitBatchCount(1);
+		dispatcher.dispatch(createMessage("subject2"));
+		sendAllowed.countDown();
+
+		dispatcher.dispatch(createMessage("subject3"));
+		stop();
+
+		verify(mockCounterService).increment("counter.email.sentSynchronously");
+		verify(mockCounterService, times(3)).increment("counter.email.sent");
+	}
+
+	@Test
+	public void testQueuedMessagesSentOnStop() throws Exception
+	{
+		start();
+		dispatcher.dispatch(createMessage("subject1"));
+		awaitBatchCount(1);
+		dispatcher.dispatch(createMessage("subject2"));
+		sendAllowed.countDown();
+
+		stop();
+
+		verify(mockCounterService, times(2)).increment("counter.email.sent");
+	}
+
+	@Test
+	public void testFailedMessagesCounted() throws Exception
+	{
+		doThrow(new MailSendException("Simulated failure")).when(mockMailSender).send(Matchers.<MimeMessage[]> anyVararg());
+		start();
+
+		dispatcher.dispatch(createMessage("subject1"));
+		stop();
+
+		verify(mockCounterService).increment("counter.email.failed");
+		verify(mockCounterService, never()).increment("counter.email.sent");
+	}
+
+	private void start()
+	{
+		ReflectionTestUtils.invokeMethod(dispatcher, "start");
+	}
+
+	/**
+	 * Stops the dispatcher, which waits for the dispatcher thread to send the queued messages.
+	 */
+	private void stop()
+	{
+		ReflectionTestUtils.invokeMethod(dispatcher, "stop");
+	}
+
+	private void awaitBatchCount(int count) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (sentBatches.size() < count && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		assertThat(sentBatches.size(), equalTo(count));
+	}
+
+	private static EmailMessage createMessage(String subject) throws Exception
+	{
+		return new EmailMessage("Sender", new InternetAddress("john@doe.net"), subject, "<p>Body</p>");
+	}
+}
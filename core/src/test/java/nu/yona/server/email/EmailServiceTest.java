@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.email;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+
+import javax.mail.internet.InternetAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import nu.yona.server.email.EmailDispatcher.EmailMessage;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.TransactionHelper;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmailServiceTest
+{
+	@Spy
+	private YonaProperties yonaProperties = new YonaProperties();
+
+	@Mock
+	private EmailDispatcher mockEmailDispatcher;
+
+	@Spy
+	private TransactionHelper transactionHelper = new TransactionHelper();
+
+	@InjectMocks
+	private final EmailService service = new EmailService();
+
+	@Before
+	public void setUp()
+	{
+		yonaProperties.getEmail().setEnabled(true);
+		ReflectionTestUtils.setField(service, "emailTemplateEngine", createTemplateEngine());
+	}
+
+	@After
+	public void tearDown()
+	{
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void testDispatchedRightAwayWithoutTransaction() throws Exception
+	{
+		sendEmail();
+
+		ArgumentCaptor<EmailMessage> message = ArgumentCaptor.forClass(EmailMessage.class);
+		verify(mockEmailDispatcher).dispatch(message.capture());
+		assertThat(ReflectionTestUtils.getField(message.getValue(), "subjectText"), equalTo("subject.txt"));
+		assertThat(ReflectionTestUtils.getField(message.getValue(), "bodyText"), equalTo("body.html"));
+	}
+
+	@Test
+	public void testDispatchedAfterCommit() throws Exception
+	{
+		TransactionSynchronizationManager.initSynchronization();
+
+		sendEmail();
+
+		verify(mockEmailDispatcher, never()).dispatch(any());
+		TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+		verify(mockEmailDispatcher).dispatch(any());
+	}
+
+	@Test
+	public void testNotDispatchedAfterRollback() throws Exception
+	{
+		TransactionSynchronizationManager.initSynchronization();
+
+		sendEmail();
+
+		TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+				TransactionSynchronization.STATUS_ROLLED_BACK);
+		verify(mockEmailDispatcher, never()).dispatch(any());
+	}
+
+	@Test
+	public void testNotDispatchedWhenDisabled() throws Exception
+	{
+		yonaProperties.getEmail().setEnabled(false);
+
+		sendEmail();
+
+		verify(mockEmailDispatcher, never()).dispatch(any());
+	}
+
+	/**
+	 * Creates a template engine that takes the template name as template, so the rendered text equals the template name.
+	 */
+	private static TemplateEngine createTemplateEngine()
+	{
+		StringTemplateResolver templateResolver = new StringTemplateResolver();
+		templateResolver.setTemplateMode(TemplateMode.TEXT);
+		SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+		templateEngine.setTemplateResolver(templateResolver);
+		return templateEngine;
+	}
+
+	private void sendEmail() throws Exception
+	{
+		service.sendEmail("Sender", new InternetAddress("john@doe.net"), "subject", "body", Collections.emptyMap());
+	}
+}
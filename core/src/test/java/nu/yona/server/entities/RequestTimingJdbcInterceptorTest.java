@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.entities;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+import nu.yona.server.util.RequestTimings.Phase;
+
+public class RequestTimingJdbcInterceptorTest
+{
+	private static final long EXECUTION_MILLIS = 5;
+
+	private final RequestTimingJdbcInterceptor interceptor = new RequestTimingJdbcInterceptor();
+
+	@After
+	public void tearDown()
+	{
+		RequestTimings timings = RequestTimings.getCurrent();
+		if (timings != null)
+		{
+			timings.stop();
+		}
+	}
+
+	@Test
+	public void testStatementOutsideRequestNotWrapped() throws Exception
+	{
+		Statement statement = createStatement();
+
+		assertThat(interceptor.createStatement(null, getCreateStatementMethod(), null, statement, 0), sameInstance(statement));
+	}
+
+	@Test
+	public void testExecutedStatementsCountedAndTimed() throws Exception
+	{
+		RequestTimings timings = RequestTimings.start();
+		Statement statement = createStatement();
+		Statement wrappedStatement = (Statement) interceptor.createStatement(null, getCreateStatementMethod(), null, statement, 0);
+
+		wrappedStatement.setFetchSize(10);
+		wrappedStatement.executeQuery("select 1");
+		wrappedStatement.executeUpdate("update t set c = 1");
+		timings.stop();
+
+		assertThat(wrappedStatement, not(sameInstance(statement)));
+		assertThat(timings.getCount(Counter.JDBC_STATEMENTS), equalTo(2));
+		assertThat(timings.getPhaseNanos(Phase.DATABASE), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(2 * EXECUTION_MILLIS)));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testStatementExceptionPropagated() throws Exception
+	{
+		RequestTimings.start();
+		Statement wrappedStatement = (Statement) interceptor.createStatement(null, getCreateStatementMethod(), null,
+				createStatement(), 0);
+
+		wrappedStatement.execute("fail");
+	}
+
+	private static Method getCreateStatementMethod() throws NoSuchMethodException
+	{
+		return Connection.class.getMethod("createStatement");
+	}
+
+	private static Statement createStatement()
+	{
+		return (Statement) Proxy.newProxyInstance(RequestTimingJdbcInterceptorTest.class.getClassLoader(),
+				new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+					if (method.getName().startsWith("execute"))
+					{
+						if ("fail".equals(args[0]))
+						{
+							throw new SQLException("Simulated failure");
+						}
+						Thread.sleep(EXECUTION_MILLIS);
+					}
+					return method.getReturnType() == int.class ? Integer.valueOf(0) : null;
+				});
+	}
+}
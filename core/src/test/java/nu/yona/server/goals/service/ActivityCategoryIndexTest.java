@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.goals.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nu.yona.server.Translator;
+
+public class ActivityCategoryIndexTest
+{
+	private ActivityCategoryDto gambling;
+	private ActivityCategoryDto news;
+	private ActivityCategoryDto social;
+	private Set<ActivityCategoryDto> activityCategories;
+	private ActivityCategoryIndex index;
+
+	@Before
+	public void setUp()
+	{
+		gambling = createActivityCategory("gambling", Arrays.asList("poker", "lotto"), Arrays.asList("Poker App"));
+		news = createActivityCategory("news", Arrays.asList("refdag", "bbc"), Arrays.asList("Facebook"));
+		social = createActivityCategory("social", Arrays.asList("facebook", "bbc"), Arrays.asList("Facebook", "Twitter"));
+		activityCategories = new HashSet<>(Arrays.asList(gambling, news, social));
+		index = ActivityCategoryIndex.createInstance(activityCategories);
+	}
+
+	@Test
+	public void testMatchingApp()
+	{
+		assertThat(index.getMatchingCategoriesForApp("Facebook"), containsInAnyOrder(news, social));
+		assertThat(index.getMatchingCategoriesForApp("Poker App"), containsInAnyOrder(gambling));
+	}
+
+	@Test
+	public void testUnknownApp()
+	{
+		assertThat(index.getMatchingCategoriesForApp("Unknown"), empty());
+	}
+
+	@Test
+	public void testSingleSmoothwallCategory()
+	{
+		assertThat(index.getMatchingCategoriesForSmoothwallCategories(Collections.singleton("bbc")),
+				containsInAnyOrder(news, social));
+	}
+
+	@Test
+	public void testMultipleSmoothwallCategories()
+	{
+		assertThat(index.getMatchingCategoriesForSmoothwallCategories(new HashSet<>(Arrays.asList("lotto", "facebook", "other"))),
+				containsInAnyOrder(gambling, social));
+	}
+
+	@Test
+	public void testNoSmoothwallCategories()
+	{
+		assertThat(index.getMatchingCategoriesForSmoothwallCategories(Collections.emptySet()), empty());
+	}
+
+	@Test
+	public void testIsBuiltFromSameInstanceOnly()
+	{
+		assertThat(index.isBuiltFrom(activityCategories), equalTo(true));
+		assertThat(index.isBuiltFrom(new HashSet<>(activityCategories)), equalTo(false));
+	}
+
+	private static ActivityCategoryDto createActivityCategory(String name, List<String> smoothwallCategories,
+			List<String> applications)
+	{
+		Map<Locale, String> localizableName = Collections.singletonMap(Translator.EN_US_LOCALE, name);
+		return new ActivityCategoryDto(UUID.randomUUID(), localizableName, false, new HashSet<>(smoothwallCategories),
+				new HashSet<>(applications), localizableName);
+	}
+}
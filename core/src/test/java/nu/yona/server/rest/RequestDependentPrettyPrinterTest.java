@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.rest;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class RequestDependentPrettyPrinterTest
+{
+	private static final String COMPACT_JSON = "{\"a\":{\"b\":1}}";
+
+	@After
+	public void tearDown()
+	{
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	public void testNoRequestCompact() throws JsonProcessingException
+	{
+		assertThat(write(false), equalTo(COMPACT_JSON));
+	}
+
+	@Test
+	public void testNoRequestPrettyPrintByDefaultIndented() throws JsonProcessingException
+	{
+		assertThat(write(true), containsString("\n"));
+	}
+
+	@Test
+	public void testRequestWithoutParameterCompact() throws JsonProcessingException
+	{
+		setUpRequest(null);
+		assertThat(write(false), equalTo(COMPACT_JSON));
+	}
+
+	@Test
+	public void testRequestWithPrettyTrueIndented() throws JsonProcessingException
+	{
+		setUpRequest("true");
+		assertThat(write(false), containsString("\n"));
+	}
+
+	@Test
+	public void testRequestWithPrettyFalsePrettyPrintByDefaultCompact() throws JsonProcessingException
+	{
+		setUpRequest("false");
+		assertThat(write(true), equalTo(COMPACT_JSON));
+	}
+
+	@Test
+	public void testRequestWithPrettyPrintHeaderTrueIndented() throws JsonProcessingException
+	{
+		setUpRequest(null, "true");
+		assertThat(write(false), containsString("\n"));
+	}
+
+	@Test
+	public void testRequestWithPrettyPrintHeaderFalsePrettyPrintByDefaultCompact() throws JsonProcessingException
+	{
+		setUpRequest(null, "false");
+		assertThat(write(true), equalTo(COMPACT_JSON));
+	}
+
+	@Test
+	public void testRequestWithPrettyFalseAndPrettyPrintHeaderTrueCompact() throws JsonProcessingException
+	{
+		setUpRequest("false", "true");
+		assertThat(write(false), equalTo(COMPACT_JSON));
+	}
+
+	private void setUpRequest(String prettyParameter)
+	{
+		setUpRequest(prettyParameter, null);
+	}
+
+	private void setUpRequest(String prettyParameter, String prettyPrintHeader)
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		if (prettyParameter != null)
+		{
+			request.setParameter(RequestDependentPrettyPrinter.PRETTY_PRINT_PARAMETER, prettyParameter);
+		}
+		if (prettyPrintHeader != null)
+		{
+			request.addHeader(RequestDependentPrettyPrinter.PRETTY_PRINT_HEADER, prettyPrintHeader);
+		}
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	private String write(boolean isPrettyPrintByDefault) throws JsonProcessingException
+	{
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.enable(SerializationFeature.INDENT_OUTPUT);
+		mapper.setDefaultPrettyPrinter(new RequestDependentPrettyPrinter(isPrettyPrintByDefault));
+		return mapper.writer().writeValueAsString(Collections.singletonMap("a", Collections.singletonMap("b", 1)));
+	}
+}
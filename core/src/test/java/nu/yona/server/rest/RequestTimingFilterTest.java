@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.rest;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import nu.yona.server.properties.MonitoringProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.rest.RequestTimingFilter.EndpointMetricNames;
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequestTimingFilterTest
+{
+	private static final String DAY_ACTIVITIES_URI_TEMPLATE = "/users/{userId}/activity/days/";
+
+	private final MonitoringProperties monitoringProperties = new MonitoringProperties();
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+
+	@Mock
+	private CounterService mockCounterService;
+
+	@Mock
+	private GaugeService mockGaugeService;
+
+	@InjectMocks
+	private final RequestTimingFilter filter = new RequestTimingFilter();
+
+	@Before
+	public void setUp()
+	{
+		when(mockYonaProperties.getMonitoring()).thenReturn(monitoringProperties);
+	}
+
+	@Test
+	public void testLatencyCounterNamedAfterMethodUriTemplateAndStatusSeries() throws Exception
+	{
+		doFilter("GET", DAY_ACTIVITIES_URI_TEMPLATE, 200, 0);
+
+		assertThat(captureCounterName(), startsWith("counter.request.GET.users.userId.activity.days.2xx.upTo"));
+	}
+
+	@Test
+	public void testUnmappedRequestCountedAsUnmapped() throws Exception
+	{
+		doFilter("POST", null, 404, 0);
+
+		assertThat(captureCounterName(), startsWith("counter.request.POST.unmapped.4xx.upTo"));
+	}
+
+	@Test
+	public void testNothingRecordedWhenDisabled() throws Exception
+	{
+		monitoringProperties.setRequestTimingEnabled(false);
+
+		doFilter("GET", DAY_ACTIVITIES_URI_TEMPLATE, 200, 0);
+
+		verify(mockCounterService, never()).increment(anyString());
+		verify(mockGaugeService, never()).submit(anyString(), anyDouble());
+	}
+
+	@Test
+	public void testQueryCountsSubmittedAsGauges() throws Exception
+	{
+		monitoringProperties.setQueryCountingEnabled(true);
+
+		doFilter("GET", DAY_ACTIVITIES_URI_TEMPLATE, 200, 3);
+
+		verify(mockGaugeService).submit("gauge.request.GET.users.userId.activity.days.jdbcStatements", 3);
+		verify(mockGaugeService).submit("gauge.request.GET.users.userId.activity.days.entityLoads", 0);
+		verify(mockGaugeService).submit("gauge.request.GET.users.userId.activity.days.collectionFetches", 0);
+		verify(mockCounterService, never()).increment("counter.request.GET.users.userId.activity.days.statementBudgetExceeded");
+	}
+
+	@Test
+	public void testStatementBudgetExceededCounted() throws Exception
+	{
+		monitoringProperties.setQueryCountingEnabled(true);
+		monitoringProperties.setStatementBudget(2);
+
+		doFilter("GET", DAY_ACTIVITIES_URI_TEMPLATE, 200, 3);
+
+		verify(mockCounterService).increment("counter.request.GET.users.userId.activity.days.statementBudgetExceeded");
+	}
+
+	@Test
+	public void testEndpointMetricNamesCreatedOnce()
+	{
+		EndpointMetricNames metricNames = new EndpointMetricNames("PUT.users.userId");
+
+		assertThat(metricNames.getLatencyCounterName(204, 7), equalTo("counter.request.PUT.users.userId.2xx.upTo10ms"));
+		assertThat(metricNames.getLatencyCounterName(503, 6000), equalTo("counter.request.PUT.users.userId.5xx.over5000ms"));
+		assertThat(metricNames.getLatencyCounterName(503, 6000), sameInstance(metricNames.getLatencyCounterName(503, 6000)));
+		assertThat(metricNames.getQueryCountGaugeName(Counter.ENTITY_LOADS),
+				equalTo("gauge.request.PUT.users.userId.entityLoads"));
+		assertThat(metricNames.getStatementBudgetExceededCounterName(),
+				equalTo("counter.request.PUT.users.userId.statementBudgetExceeded"));
+	}
+
+	private void doFilter(String method, String uriTemplate, int status, int statementCount)
+			throws IOException, ServletException
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/some/uri");
+		if (uriTemplate != null)
+		{
+			request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, uriTemplate);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain chain = (req, res) -> {
+			for (int i = 0; i < statementCount; i++)
+			{
+				RequestTimings.increment(Counter.JDBC_STATEMENTS);
+			}
+			((MockHttpServletResponse) res).setStatus(status);
+		};
+		filter.doFilter(request, response, chain);
+	}
+
+	private String captureCounterName()
+	{
+		ArgumentCaptor<String> counterName = ArgumentCaptor.forClass(String.class);
+		verify(mockCounterService).increment(counterName.capture());
+		return counterName.getValue();
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.rest;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import nu.yona.server.properties.MonitoringProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.RequestTimings;
+import nu.yona.server.util.RequestTimings.Counter;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequestTimingResponseBodyAdviceTest
+{
+	private final MonitoringProperties monitoringProperties = new MonitoringProperties();
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+
+	@InjectMocks
+	private final RequestTimingResponseBodyAdvice advice = new RequestTimingResponseBodyAdvice();
+
+	@Before
+	public void setUp()
+	{
+		when(mockYonaProperties.getMonitoring()).thenReturn(monitoringProperties);
+	}
+
+	@After
+	public void tearDown()
+	{
+		RequestTimings timings = RequestTimings.getCurrent();
+		if (timings != null)
+		{
+			timings.stop();
+		}
+	}
+
+	@Test
+	public void testQueryCountHeadersSetWhenEnabled()
+	{
+		monitoringProperties.setQueryCountHeadersEnabled(true);
+		RequestTimings.start();
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+		RequestTimings.increment(Counter.ENTITY_LOADS);
+
+		HttpHeaders headers = writeBody();
+
+		assertThat(headers.getFirst("X-Yona-Jdbc-Statements"), equalTo("2"));
+		assertThat(headers.getFirst("X-Yona-Entity-Loads"), equalTo("1"));
+		assertThat(headers.getFirst("X-Yona-Collection-Fetches"), equalTo("0"));
+	}
+
+	@Test
+	public void testQueryCountHeadersNotSetWhenDisabled()
+	{
+		RequestTimings.start();
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+
+		HttpHeaders headers = writeBody();
+
+		assertThat(headers.getFirst("X-Yona-Jdbc-Statements"), nullValue());
+	}
+
+	@Test
+	public void testQueryCountHeadersNotSetOutsideTimedRequest()
+	{
+		monitoringProperties.setQueryCountHeadersEnabled(true);
+
+		HttpHeaders headers = writeBody();
+
+		assertThat(headers.getFirst("X-Yona-Jdbc-Statements"), nullValue());
+	}
+
+	private HttpHeaders writeBody()
+	{
+		ServletServerHttpResponse response = new ServletServerHttpResponse(new MockHttpServletResponse());
+		Object body = new Object();
+		assertThat(advice.beforeBodyWrite(body, null, MediaType.APPLICATION_JSON, null,
+				new ServletServerHttpRequest(new MockHttpServletRequest()), response), equalTo(body));
+		return response.getHeaders();
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.sms;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TokenBucketTest
+{
+	private static final long START_NANOS = 1000L;
+	private static final long NANOS_PER_PERMIT = TimeUnit.MILLISECONDS.toNanos(200);
+
+	@Test
+	public void testBurstWithinCapacity()
+	{
+		TokenBucket bucket = new TokenBucket(5, START_NANOS);
+
+		for (int i = 0; i < 5; i++)
+		{
+			assertThat(bucket.tryAcquire(START_NANOS), equalTo(0L));
+		}
+	}
+
+	@Test
+	public void testBurstBeyondCapacity()
+	{
+		TokenBucket bucket = new TokenBucket(5, START_NANOS);
+		for (int i = 0; i < 5; i++)
+		{
+			bucket.tryAcquire(START_NANOS);
+		}
+
+		assertThat(bucket.tryAcquire(START_NANOS), equalTo(NANOS_PER_PERMIT));
+		assertThat(bucket.tryAcquire(START_NANOS + NANOS_PER_PERMIT / 2), equalTo(NANOS_PER_PERMIT / 2));
+		assertThat(bucket.tryAcquire(START_NANOS + NANOS_PER_PERMIT), equalTo(0L));
+	}
+
+	@Test
+	public void testBurstAfterLongIdleLimitedToCapacity()
+	{
+		TokenBucket bucket = new TokenBucket(5, START_NANOS);
+		long muchLater = START_NANOS + TimeUnit.MINUTES.toNanos(1);
+
+		for (int i = 0; i < 5; i++)
+		{
+			assertThat(bucket.tryAcquire(muchLater), equalTo(0L));
+		}
+		assertThat(bucket.tryAcquire(muchLater), equalTo(NANOS_PER_PERMIT));
+	}
+}
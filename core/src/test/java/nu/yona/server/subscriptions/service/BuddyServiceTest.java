@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.subscriptions.service;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.repository.Repository;
+import org.springframework.http.HttpStatus;
+
+import nu.yona.server.subscriptions.entities.Buddy;
+import nu.yona.server.subscriptions.entities.BuddyRepository;
+import nu.yona.server.test.util.JUnitUtil;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BuddyServiceTest
+{
+	@Mock
+	private BuddyRepository mockBuddyRepository;
+
+	@Mock
+	private UserAnonymizedService mockUserAnonymizedService;
+
+	@InjectMocks
+	private final BuddyService service = new BuddyService();
+
+	@Before
+	public void setUp()
+	{
+		Map<Class<?>, Repository<?, ?>> repositoriesMap = new HashMap<>();
+		repositoriesMap.put(Buddy.class, mockBuddyRepository);
+		JUnitUtil.setUpRepositoryProviderMock(repositoriesMap);
+	}
+
+	@Test
+	public void testGetBuddiesUnknownId()
+	{
+		UUID buddyId = UUID.randomUUID();
+		UUID unknownBuddyId = UUID.randomUUID();
+		Buddy buddy = mock(Buddy.class);
+		when(buddy.getId()).thenReturn(buddyId);
+		Set<UUID> buddyIds = new HashSet<>(Arrays.asList(buddyId, unknownBuddyId));
+		when(mockBuddyRepository.findAll(buddyIds)).thenReturn(Collections.singletonList(buddy));
+
+		try
+		{
+			service.getBuddies(buddyIds);
+			fail("Expected an exception for the unknown buddy ID");
+		}
+		catch (BuddyNotFoundException e)
+		{
+			assertThat(e.getStatusCode(), equalTo(HttpStatus.NOT_FOUND));
+			assertThat(e.getMessageId(), equalTo("error.buddy.not.found"));
+			assertThat(e.getParameters(), arrayContaining((Object) unknownBuddyId));
+		}
+		verify(mockUserAnonymizedService, never()).getUsersAnonymized(anySetOf(UUID.class));
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.subscriptions.service;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import com.hazelcast.core.IMap;
+
+import nu.yona.server.crypto.pubkey.PublicKeyUtil;
+import nu.yona.server.exceptions.InvalidDataException;
+import nu.yona.server.messaging.entities.MessageDestination;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+import nu.yona.server.subscriptions.entities.UserAnonymizedRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserAnonymizedServiceTest
+{
+	private final Cache cache = new ConcurrentMapCache(UserAnonymizedService.CACHE_NAME);
+
+	@Mock
+	private CacheManager mockCacheManager;
+
+	@Mock
+	private UserAnonymizedRepository mockUserAnonymizedRepository;
+
+	@InjectMocks
+	private final UserAnonymizedService service = new UserAnonymizedService();
+
+	private UserAnonymized john;
+	private UserAnonymized bob;
+
+	@Before
+	public void setUp()
+	{
+		when(mockCacheManager.getCache(UserAnonymizedService.CACHE_NAME)).thenReturn(cache);
+
+		john = createUserAnonymized();
+		bob = createUserAnonymized();
+	}
+
+	@Test
+	public void testGetUsersAnonymizedAllCached()
+	{
+		UserAnonymizedDto johnDto = cache(john);
+		UserAnonymizedDto bobDto = cache(bob);
+
+		Map<UUID, UserAnonymizedDto> usersAnonymized = service.getUsersAnonymized(ids(john, bob));
+
+		assertThat(usersAnonymized.get(john.getId()), sameInstance(johnDto));
+		assertThat(usersAnonymized.get(bob.getId()), sameInstance(bobDto));
+		verify(mockUserAnonymizedRepository, never()).findAll(any(Iterable.class));
+	}
+
+	@Test
+	public void testGetUsersAnonymizedMixedCachedAndLoaded()
+	{
+		UserAnonymizedDto johnDto = cache(john);
+		when(mockUserAnonymizedRepository.findAll(ids(bob))).thenReturn(Collections.singletonList(bob));
+
+		Map<UUID, UserAnonymizedDto> usersAnonymized = service.getUsersAnonymized(ids(john, bob));
+
+		assertThat(usersAnonymized.keySet(), containsInAnyOrder(john.getId(), bob.getId()));
+		assertThat(usersAnonymized.get(john.getId()), sameInstance(johnDto));
+		assertThat(usersAnonymized.get(bob.getId()).getId(), equalTo(bob.getId()));
+		// Only the missing one is loaded, and it is cached for the next time
+		verify(mockUserAnonymizedRepository).findAll(ids(bob));
+		assertThat(cache.get(bob.getId(), UserAnonymizedDto.class), sameInstance(usersAnonymized.get(bob.getId())));
+	}
+
+	@Test
+	public void testGetUsersAnonymizedNoneCached()
+	{
+		when(mockUserAnonymizedRepository.findAll(ids(john, bob))).thenReturn(Arrays.asList(john, bob));
+
+		Map<UUID, UserAnonymizedDto> usersAnonymized = service.getUsersAnonymized(ids(john, bob));
+
+		assertThat(usersAnonymized.keySet(), containsInAnyOrder(john.getId(), bob.getId()));
+		assertThat(cache.get(john.getId(), UserAnonymizedDto.class), notNullValue());
+		assertThat(cache.get(bob.getId(), UserAnonymizedDto.class), notNullValue());
+	}
+
+	@Test
+	public void testGetUsersAnonymizedUnknownId()
+	{
+		UUID unknownId = UUID.randomUUID();
+		cache(john);
+		when(mockUserAnonymizedRepository.findAll(Collections.singleton(unknownId))).thenReturn(Collections.emptyList());
+
+		try
+		{
+			service.getUsersAnonymized(new HashSet<>(Arrays.asList(john.getId(), unknownId)));
+			fail("Expected an exception for the unknown ID");
+		}
+		catch (InvalidDataException e)
+		{
+			assertThat(e.getMessageId(), equalTo("error.useranonymizedid.not.found"));
+			assertThat(e.getParameters(), arrayContaining((Object) unknownId));
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testGetUsersAnonymizedHazelcastMapReadAtOnce()
+	{
+		IMap<UUID, UserAnonymizedDto> mockMap = mock(IMap.class);
+		Cache mockCache = mock(Cache.class);
+		when(mockCache.getNativeCache()).thenReturn(mockMap);
+		when(mockCacheManager.getCache(UserAnonymizedService.CACHE_NAME)).thenReturn(mockCache);
+		UserAnonymizedDto johnDto = UserAnonymizedDto.createInstance(john);
+		Map<UUID, UserAnonymizedDto> cached = new HashMap<>();
+		cached.put(john.getId(), johnDto);
+		when(mockMap.getAll(ids(john, bob))).thenReturn(cached);
+		when(mockUserAnonymizedRepository.findAll(ids(bob))).thenReturn(Collections.singletonList(bob));
+
+		Map<UUID, UserAnonymizedDto> usersAnonymized = service.getUsersAnonymized(ids(john, bob));
+
+		assertThat(usersAnonymized.get(john.getId()), sameInstance(johnDto));
+		assertThat(usersAnonymized.get(bob.getId()).getId(), equalTo(bob.getId()));
+		verify(mockCache, never()).get(anyObject(), any(Class.class));
+		verify(mockCache).put(bob.getId(), usersAnonymized.get(bob.getId()));
+	}
+
+	private UserAnonymizedDto cache(UserAnonymized userAnonymized)
+	{
+		UserAnonymizedDto userAnonymizedDto = UserAnonymizedDto.createInstance(userAnonymized);
+		cache.put(userAnonymized.getId(), userAnonymizedDto);
+		return userAnonymizedDto;
+	}
+
+	private static Set<UUID> ids(UserAnonymized... usersAnonymized)
+	{
+		Set<UUID> ids = new HashSet<>();
+		Arrays.stream(usersAnonymized).forEach(u -> ids.add(u.getId()));
+		return ids;
+	}
+
+	private static UserAnonymized createUserAnonymized()
+	{
+		return UserAnonymized.createInstance(MessageDestination.createInstance(PublicKeyUtil.generateKeyPair().getPublic()),
+				new HashSet<>());
+	}
+}
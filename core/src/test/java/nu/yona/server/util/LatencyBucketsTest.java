@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LatencyBucketsTest
+{
+	@Test
+	public void testUpperBoundIsInclusive()
+	{
+		assertThat(LatencyBuckets.getBucketName(0), equalTo("upTo10ms"));
+		assertThat(LatencyBuckets.getBucketName(10), equalTo("upTo10ms"));
+		assertThat(LatencyBuckets.getBucketName(11), equalTo("upTo25ms"));
+		assertThat(LatencyBuckets.getBucketName(100), equalTo("upTo100ms"));
+		assertThat(LatencyBuckets.getBucketName(101), equalTo("upTo250ms"));
+		assertThat(LatencyBuckets.getBucketName(5000), equalTo("upTo5000ms"));
+	}
+
+	@Test
+	public void testLatencyBeyondLastBoundInOverflowBucket()
+	{
+		assertThat(LatencyBuckets.getBucketName(5001), equalTo("over5000ms"));
+		assertThat(LatencyBuckets.getBucketName(Long.MAX_VALUE), equalTo("over5000ms"));
+	}
+
+	@Test
+	public void testBucketIndexConsistentWithName()
+	{
+		assertThat(LatencyBuckets.getBucketIndex(0), equalTo(0));
+		assertThat(LatencyBuckets.getBucketIndex(5001), equalTo(LatencyBuckets.BUCKET_COUNT - 1));
+		for (long latencyMillis : new long[] { 7, 42, 999, 2501, 10000 })
+		{
+			assertThat(LatencyBuckets.getBucketNameOfIndex(LatencyBuckets.getBucketIndex(latencyMillis)),
+					equalTo(LatencyBuckets.getBucketName(latencyMillis)));
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nu.yona.server.util.RequestTimings.Counter;
+import nu.yona.server.util.RequestTimings.Phase;
+
+public class RequestTimingsTest
+{
+	@After
+	public void tearDown()
+	{
+		RequestTimings timings = RequestTimings.getCurrent();
+		if (timings != null)
+		{
+			timings.stop();
+		}
+	}
+
+	@Test
+	public void testRecordingOutsideRequestIgnored()
+	{
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+		RequestTimings.addPhaseTime(Phase.DATABASE, 1000);
+		RequestTimings.markSerializationStart();
+
+		assertThat(RequestTimings.isActive(), equalTo(false));
+		assertThat(RequestTimings.getCurrent(), nullValue());
+	}
+
+	@Test
+	public void testCountsAndPhaseTimesRecordedForCurrentRequest()
+	{
+		RequestTimings timings = RequestTimings.start();
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+		RequestTimings.increment(Counter.ENTITY_LOADS);
+		RequestTimings.addPhaseTime(Phase.DATABASE, TimeUnit.MILLISECONDS.toNanos(3));
+		RequestTimings.addPhaseTime(Phase.DATABASE, TimeUnit.MILLISECONDS.toNanos(4));
+		timings.stop();
+
+		assertThat(timings.getCount(Counter.JDBC_STATEMENTS), equalTo(2));
+		assertThat(timings.getCount(Counter.ENTITY_LOADS), equalTo(1));
+		assertThat(timings.getCount(Counter.COLLECTION_FETCHES), equalTo(0));
+		assertThat(timings.getPhaseNanos(Phase.DATABASE), equalTo(TimeUnit.MILLISECONDS.toNanos(7)));
+		assertThat(timings.getBreakdown(), containsString("database=7ms"));
+		assertThat(timings.getBreakdown(), containsString("jdbcStatements=2"));
+	}
+
+	@Test
+	public void testStopEndsRecording()
+	{
+		RequestTimings timings = RequestTimings.start();
+		assertThat(RequestTimings.isActive(), equalTo(true));
+
+		timings.stop();
+		RequestTimings.increment(Counter.JDBC_STATEMENTS);
+
+		assertThat(RequestTimings.isActive(), equalTo(false));
+		assertThat(timings.getCount(Counter.JDBC_STATEMENTS), equalTo(0));
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The activity categories as configured in the admin service, with the Smoothwall categories and applications that the
+ * generated events are based on, and the Smoothwall categories that the analysis engine considers relevant.
+ */
+class ActivityCategoryCatalog
+{
+	static class Category
+	{
+		private final String id;
+		private final boolean mandatoryNoGo;
+		private final List<String> smoothwallCategories;
+		private final List<String> applications;
+
+		Category(String id, boolean mandatoryNoGo, List<String> smoothwallCategories, List<String> applications)
+		{
+			this.id = id;
+			this.mandatoryNoGo = mandatoryNoGo;
+			this.smoothwallCategories = smoothwallCategories;
+			this.applications = applications;
+		}
+
+		String getId()
+		{
+			return id;
+		}
+
+		boolean isMandatoryNoGo()
+		{
+			return mandatoryNoGo;
+		}
+
+		List<String> getSmoothwallCategories()
+		{
+			return smoothwallCategories;
+		}
+
+		List<String> getApplications()
+		{
+			return applications;
+		}
+	}
+
+	private static final String ACTIVITY_CATEGORIES_PATH = "/activityCategories/";
+	private static final String RELEVANT_SMOOTHWALL_CATEGORIES_PATH = "/relevantSmoothwallCategories/";
+
+	private final List<Category> categories;
+	private final Set<String> relevantSmoothwallCategories;
+
+	private ActivityCategoryCatalog(List<Category> categories, Set<String> relevantSmoothwallCategories)
+	{
+		this.categories = categories;
+		this.relevantSmoothwallCategories = relevantSmoothwallCategories;
+	}
+
+	List<Category> getCategories()
+	{
+		return Collections.unmodifiableList(categories);
+	}
+
+	Set<String> getRelevantSmoothwallCategories()
+	{
+		return Collections.unmodifiableSet(relevantSmoothwallCategories);
+	}
+
+	static ActivityCategoryCatalog load(JsonHttpClient client, LoadGeneratorOptions options) throws IOException
+	{
+		Optional<String> activityCategoriesFile = options.getActivityCategoriesFile();
+		if (activityCategoriesFile.isPresent())
+		{
+			uploadActivityCategories(client, options.getAdminServiceUrl(), activityCategoriesFile.get());
+		}
+		List<Category> categories = fetchCategories(client, options.getAdminServiceUrl());
+		if (categories.isEmpty())
+		{
+			throw new IllegalStateException(
+					"No activity categories defined. Load them with --activityCategoriesFile=dbinit/data/activityCategories.json");
+		}
+		return new ActivityCategoryCatalog(categories,
+				fetchRelevantSmoothwallCategories(client, options.getAnalysisServiceUrl()));
+	}
+
+	private static void uploadActivityCategories(JsonHttpClient client, String adminServiceUrl, String fileName)
+			throws IOException
+	{
+		String json = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+		JsonHttpClient.Response response = client.put(adminServiceUrl + ACTIVITY_CATEGORIES_PATH, json, Optional.empty());
+		assertSuccess(response, "Uploading activity categories");
+	}
+
+	private static List<Category> fetchCategories(JsonHttpClient client, String adminServiceUrl) throws IOException
+	{
+		JsonHttpClient.Response response = client.get(adminServiceUrl + ACTIVITY_CATEGORIES_PATH, Optional.empty());
+		assertSuccess(response, "Fetching activity categories");
+		JsonNode embedded = client.parse(response).path("_embedded");
+		List<Category> categories = new ArrayList<>();
+		// The embedded collection has a single entry, but its name depends on the configured curie
+		embedded.forEach(categoryArray -> categoryArray.forEach(c -> categories.add(createCategory(c))));
+		return categories;
+	}
+
+	private static Category createCategory(JsonNode categoryNode)
+	{
+		String selfHref = categoryNode.path("_links").path("self").path("href").asText();
+		String id = selfHref.substring(selfHref.lastIndexOf('/') + 1);
+		return new Category(id, categoryNode.path("mandatoryNoGo").asBoolean(),
+				toStringList(categoryNode.path("smoothwallCategories")), toStringList(categoryNode.path("applications")));
+	}
+
+	private static Set<String> fetchRelevantSmoothwallCategories(JsonHttpClient client, String analysisServiceUrl)
+			throws IOException
+	{
+		JsonHttpClient.Response response = client.get(analysisServiceUrl + RELEVANT_SMOOTHWALL_CATEGORIES_PATH,
+				Optional.empty());
+		assertSuccess(response, "Fetching relevant Smoothwall categories");
+		return new HashSet<>(toStringList(client.parse(response).path("categories")));
+	}
+
+	private static List<String> toStringList(JsonNode arrayNode)
+	{
+		List<String> strings = new ArrayList<>();
+		arrayNode.forEach(n -> strings.add(n.asText()));
+		return strings;
+	}
+
+	static void assertSuccess(JsonHttpClient.Response response, String action)
+	{
+		if (!response.isSuccess())
+		{
+			throw new IllegalStateException(action + " failed with status " + response.getStatus() + ": " + response.getBody());
+		}
+	}
+}
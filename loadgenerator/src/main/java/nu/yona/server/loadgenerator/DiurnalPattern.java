@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/**
+ * Maps the time elapsed in the load test to simulated time and determines the load at that simulated time. The simulated days
+ * are compressed into the duration of the run and end at the start of the run, so all generated activity lies in the past.
+ */
+class DiurnalPattern
+{
+	static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+
+	/**
+	 * Relative activity per hour of the day: quiet at night, a dip during school hours and a peak in the evening.
+	 */
+	private static final double[] HOURLY_WEIGHTS = { 0.15, 0.08, 0.04, 0.03, 0.03, 0.06, 0.25, 0.6, 0.7, 0.55, 0.5, 0.6, 0.9,
+			0.75, 0.7, 0.95, 1.3, 1.45, 1.4, 1.6, 1.85, 1.8, 1.25, 0.6 };
+	private static final double MEAN_WEIGHT = Arrays.stream(HOURLY_WEIGHTS).average().getAsDouble();
+
+	private final ZonedDateTime simulatedStart;
+	private final double timeCompression;
+
+	DiurnalPattern(ZonedDateTime runStart, int simulatedDays, Duration runDuration)
+	{
+		ZonedDateTime simulatedEnd = runStart.withZoneSameInstant(ZONE);
+		this.simulatedStart = simulatedEnd.minusDays(simulatedDays);
+		this.timeCompression = (double) Duration.between(simulatedStart, simulatedEnd).toNanos() / runDuration.toNanos();
+	}
+
+	ZonedDateTime toSimulatedTime(long elapsedNanos)
+	{
+		return simulatedStart.plusNanos((long) (elapsedNanos * timeCompression));
+	}
+
+	/**
+	 * Returns the factor to apply to the average rate at the given simulated time. Averaged over a day, the factor is 1.
+	 */
+	double getRateFactor(ZonedDateTime simulatedTime)
+	{
+		int hour = simulatedTime.getHour();
+		double fractionOfHour = simulatedTime.getMinute() / 60.0;
+		// Interpolate between the hours, to avoid steps in the load
+		double weight = HOURLY_WEIGHTS[hour] * (1 - fractionOfHour) + HOURLY_WEIGHTS[(hour + 1) % 24] * fractionOfHour;
+		return weight / MEAN_WEIGHT;
+	}
+}
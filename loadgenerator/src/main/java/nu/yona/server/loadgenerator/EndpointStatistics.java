@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts, errors and latencies of one endpoint. All latencies are retained, so the percentiles are exact. At the rates a
+ * single load generator produces, that takes a few megabytes at most.
+ */
+class EndpointStatistics
+{
+	/**
+	 * Status used for requests that did not get a response at all
+	 */
+	static final int NO_RESPONSE = 0;
+
+	private final String name;
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final Map<Integer, LongAdder> errorCountByStatus = new ConcurrentHashMap<>();
+	private long[] latenciesMicros = new long[1024];
+	private int latencyCount;
+
+	EndpointStatistics(String name)
+	{
+		this.name = name;
+	}
+
+	String getName()
+	{
+		return name;
+	}
+
+	void record(int status, long latencyNanos)
+	{
+		requestCount.increment();
+		if (status < 200 || status >= 300)
+		{
+			errorCount.increment();
+			errorCountByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+		}
+		addLatency(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+	}
+
+	long getRequestCount()
+	{
+		return requestCount.sum();
+	}
+
+	long getErrorCount()
+	{
+		return errorCount.sum();
+	}
+
+	double getErrorRate()
+	{
+		long requests = getRequestCount();
+		return (requests == 0) ? 0 : (double) getErrorCount() / requests;
+	}
+
+	/**
+	 * Returns the error counts by HTTP status, with status {@value #NO_RESPONSE} for I/O errors.
+	 */
+	Map<Integer, Long> getErrorCountByStatus()
+	{
+		Map<Integer, Long> result = new TreeMap<>();
+		errorCountByStatus.forEach((s, c) -> result.put(s, c.sum()));
+		return result;
+	}
+
+	/**
+	 * Returns the latency at the given percentile (0-100) in milliseconds, using the nearest-rank method.
+	 */
+	double getLatencyPercentileMillis(double percentile)
+	{
+		long[] sorted = getSortedLatencies();
+		if (sorted.length == 0)
+		{
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(rank - 1, 0)] / 1000.0;
+	}
+
+	Map<String, Object> toReport(double elapsedSeconds)
+	{
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("requests", getRequestCount());
+		report.put("throughputPerSecond", round(getRequestCount() / elapsedSeconds));
+		report.put("latencyP50Millis", round(getLatencyPercentileMillis(50)));
+		report.put("latencyP99Millis", round(getLatencyPercentileMillis(99)));
+		report.put("latencyMaxMillis", round(getLatencyPercentileMillis(100)));
+		report.put("errorRate", getErrorRate());
+		report.put("errorsByStatus", getErrorCountByStatus());
+		return report;
+	}
+
+	private synchronized void addLatency(long latencyMicros)
+	{
+		if (latencyCount == latenciesMicros.length)
+		{
+			latenciesMicros = Arrays.copyOf(latenciesMicros, latencyCount * 2);
+		}
+		latenciesMicros[latencyCount++] = latencyMicros;
+	}
+
+	private synchronized long[] getSortedLatencies()
+	{
+		long[] sorted = Arrays.copyOf(latenciesMicros, latencyCount);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	private static double round(double value)
+	{
+		return Math.round(value * 10) / 10.0;
+	}
+}
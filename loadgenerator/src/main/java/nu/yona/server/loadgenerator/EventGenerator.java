@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import nu.yona.server.analysis.service.AppActivityDto;
+import nu.yona.server.loadgenerator.ActivityCategoryCatalog.Category;
+
+/**
+ * Synthesizes Smoothwall access log records and app activity batches. The sites and apps are derived from the Smoothwall
+ * categories and applications of the activity categories. A few users produce most of the traffic, like in reality.
+ */
+class EventGenerator
+{
+	private static class Site
+	{
+		private final String domain;
+		private final List<String> urlCategories;
+
+		Site(String domain, List<String> urlCategories)
+		{
+			this.domain = domain;
+			this.urlCategories = urlCategories;
+		}
+	}
+
+	private static final int SITES_PER_SMOOTHWALL_CATEGORY = 3;
+	/**
+	 * Categories that Smoothwall adds to many records, but that are not relevant to Yona (see sample_access.log)
+	 */
+	private static final List<String> UNCLASSIFIED_CATEGORIES = Arrays.asList("KS-Plus", "SSL / CRL", "Adverts", "KS-Ads");
+	private static final List<String> UNKNOWN_APPLICATIONS = Arrays.asList("com.android.calculator2", "com.android.camera",
+			"com.google.android.calendar");
+	private static final int MAX_APP_ACTIVITY_MINUTES = 15;
+
+	private final List<SimulatedUser> users;
+	private final List<Site> classifiedSites = new ArrayList<>();
+	private final List<Site> unclassifiedSites = new ArrayList<>();
+	private final List<String> applications = new ArrayList<>(UNKNOWN_APPLICATIONS);
+	private final double unclassifiedTrafficShare;
+	private final int appActivitiesPerBatch;
+	private final Random random;
+
+	EventGenerator(List<SimulatedUser> users, ActivityCategoryCatalog catalog, LoadGeneratorOptions options, Random random)
+	{
+		this.users = users;
+		this.unclassifiedTrafficShare = options.getUnclassifiedTrafficShare();
+		this.appActivitiesPerBatch = options.getAppActivitiesPerBatch();
+		this.random = random;
+		for (Category category : catalog.getCategories())
+		{
+			category.getSmoothwallCategories().forEach(this::addSites);
+			applications.addAll(category.getApplications());
+		}
+		if (classifiedSites.isEmpty())
+		{
+			throw new IllegalStateException("None of the activity categories has Smoothwall categories");
+		}
+		UNCLASSIFIED_CATEGORIES.forEach(c -> unclassifiedSites.add(new Site(toDomain(c, 0), Collections.singletonList(c))));
+	}
+
+	SimulatedUser pickUser()
+	{
+		// Skewed towards the first users, so a few heavy users generate a large part of the traffic
+		double r = random.nextDouble();
+		return users.get((int) (r * r * users.size()));
+	}
+
+	Map<String, Object> createSmoothwallLogRecord(SimulatedUser user, ZonedDateTime time)
+	{
+		boolean unclassified = random.nextDouble() < unclassifiedTrafficShare;
+		Site site = pick(unclassified ? unclassifiedSites : classifiedSites);
+		Map<String, Object> urlCategories = new LinkedHashMap<>();
+		site.urlCategories.forEach(c -> urlCategories.put(c, Collections.singletonList("." + site.domain)));
+		if (!unclassified && random.nextBoolean())
+		{
+			urlCategories.put(pick(UNCLASSIFIED_CATEGORIES), Collections.singletonList("." + site.domain));
+		}
+
+		Map<String, Object> record = new LinkedHashMap<>();
+		record.put("blocked", false);
+		record.put("destdomain", site.domain);
+		record.put("httpcode", 200);
+		record.put("https", false);
+		record.put("method", "GET");
+		record.put("requesttags", Collections.singletonMap("urlcategory", urlCategories));
+		record.put("successful", true);
+		record.put("tagset", Collections.singletonMap("username",
+				Collections.singletonMap("cn=" + user.getVpnLoginId() + ",ou=SSL,dc=yona,dc=nu", Collections.emptyList())));
+		record.put("time", String.format(Locale.ROOT, "%d.%06d", time.toEpochSecond(), time.getNano() / 1000));
+		record.put("url", "http://" + site.domain + "/page/" + random.nextInt(1000));
+		record.put("v", 2);
+		return record;
+	}
+
+	/**
+	 * Creates a batch of consecutive app activities, ending at the given time, like the app sends them after having been offline.
+	 */
+	AppActivityDto createAppActivityBatch(ZonedDateTime endTime)
+	{
+		AppActivityDto.Activity[] activities = new AppActivityDto.Activity[appActivitiesPerBatch];
+		ZonedDateTime activityEndTime = endTime;
+		for (int i = activities.length - 1; i >= 0; i--)
+		{
+			ZonedDateTime activityStartTime = activityEndTime.minusMinutes(1 + random.nextInt(MAX_APP_ACTIVITY_MINUTES))
+					.minusSeconds(random.nextInt(60));
+			activities[i] = new AppActivityDto.Activity(pick(applications), activityStartTime, activityEndTime);
+			activityEndTime = activityStartTime.minusSeconds(random.nextInt(120));
+		}
+		return new AppActivityDto(ZonedDateTime.now(DiurnalPattern.ZONE), activities);
+	}
+
+	private void addSites(String smoothwallCategory)
+	{
+		for (int i = 0; i < SITES_PER_SMOOTHWALL_CATEGORY; i++)
+		{
+			classifiedSites.add(new Site(toDomain(smoothwallCategory, i), Collections.singletonList(smoothwallCategory)));
+		}
+	}
+
+	private static String toDomain(String category, int index)
+	{
+		return category.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + "-" + index + ".example.com";
+	}
+
+	private <T> T pick(List<T> list)
+	{
+		return list.get(random.nextInt(list.size()));
+	}
+}
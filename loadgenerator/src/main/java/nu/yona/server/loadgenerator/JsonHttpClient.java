@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import nu.yona.server.crypto.seckey.Constants;
+
+/**
+ * Thin JSON client for the Yona services, on pooled connections so the load is not dominated by connection setup.
+ */
+class JsonHttpClient implements AutoCloseable
+{
+	static class Response
+	{
+		private final int status;
+		private final String body;
+
+		private Response(int status, String body)
+		{
+			this.status = status;
+			this.body = body;
+		}
+
+		int getStatus()
+		{
+			return status;
+		}
+
+		boolean isSuccess()
+		{
+			return status >= 200 && status < 300;
+		}
+
+		String getBody()
+		{
+			return body;
+		}
+	}
+
+	private final CloseableHttpClient httpClient;
+	private final ObjectMapper objectMapper;
+
+	JsonHttpClient(int maxConnections)
+	{
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+		httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager).build();
+		objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	}
+
+	ObjectMapper getObjectMapper()
+	{
+		return objectMapper;
+	}
+
+	Response get(String url, Optional<String> password) throws IOException
+	{
+		return execute(new HttpGet(url), password);
+	}
+
+	Response post(String url, Object body, Optional<String> password) throws IOException
+	{
+		return execute(withBody(new HttpPost(url), body), password);
+	}
+
+	Response put(String url, Object body, Optional<String> password) throws IOException
+	{
+		return execute(withBody(new HttpPut(url), body), password);
+	}
+
+	Response delete(String url, Optional<String> password) throws IOException
+	{
+		return execute(new HttpDelete(url), password);
+	}
+
+	JsonNode parse(Response response) throws IOException
+	{
+		return objectMapper.readTree(response.getBody());
+	}
+
+	private HttpRequestBase withBody(HttpEntityEnclosingRequestBase request, Object body) throws IOException
+	{
+		String json = (body instanceof String) ? (String) body : objectMapper.writeValueAsString(body);
+		request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+		return request;
+	}
+
+	private Response execute(HttpRequestBase request, Optional<String> password) throws IOException
+	{
+		password.ifPresent(p -> request.setHeader(Constants.PASSWORD_HEADER, p));
+		try (CloseableHttpResponse response = httpClient.execute(request))
+		{
+			HttpEntity entity = response.getEntity();
+			String body = (entity == null) ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+			return new Response(response.getStatusLine().getStatusCode(), body);
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		httpClient.close();
+	}
+}
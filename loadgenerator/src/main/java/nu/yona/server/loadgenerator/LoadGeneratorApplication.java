@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Replays production-like load against a local stack: it creates simulated users through the app service, then posts
+ * synthesized Smoothwall network activity to the analysis engine and app activity to the app service at the target rate, and
+ * finally reports throughput, latency percentiles and error rates per endpoint.<br/>
+ * The services can run on MariaDB (see scripts/servers_start.sh) or on an in-memory HSQLDB database, see
+ * scripts/load_test.sh. The options are listed in {@link LoadGeneratorOptions}.
+ */
+public class LoadGeneratorApplication
+{
+	private static final Logger logger = LoggerFactory.getLogger(LoadGeneratorApplication.class);
+
+	private final LoadGeneratorOptions options;
+	private final Random random;
+
+	private LoadGeneratorApplication(LoadGeneratorOptions options)
+	{
+		this.options = options;
+		this.random = new Random(options.getSeed());
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		new LoadGeneratorApplication(LoadGeneratorOptions.parse(args)).run();
+	}
+
+	private void run() throws IOException, InterruptedException
+	{
+		try (JsonHttpClient client = new JsonHttpClient(options.getThreadCount()))
+		{
+			ActivityCategoryCatalog catalog = ActivityCategoryCatalog.load(client, options);
+			List<SimulatedUser> users = createUsers(client, catalog);
+			try (Writer smoothwallLogWriter = createSmoothwallLogWriter())
+			{
+				LoadRunner loadRunner = new LoadRunner(client, options, new EventGenerator(users, catalog, options, random),
+						new SmoothwallLogTransformer(catalog.getRelevantSmoothwallCategories()),
+						Optional.ofNullable(smoothwallLogWriter), random);
+				logger.info("Generating load for {}", options.getDuration());
+				loadRunner.run();
+				report(client, loadRunner);
+			}
+			finally
+			{
+				if (options.isDeleteUsers())
+				{
+					deleteUsers(client, users);
+				}
+			}
+		}
+	}
+
+	private List<SimulatedUser> createUsers(JsonHttpClient client, ActivityCategoryCatalog catalog)
+	{
+		logger.info("Creating {} users", options.getUserCount());
+		ExecutorService executor = Executors.newFixedThreadPool(options.getThreadCount());
+		try
+		{
+			List<CompletableFuture<SimulatedUser>> futures = new ArrayList<>();
+			for (int i = 0; i < options.getUserCount(); i++)
+			{
+				int index = i;
+				Random userRandom = new Random(random.nextLong());
+				futures.add(CompletableFuture.supplyAsync(() -> createUser(client, catalog, index, userRandom), executor));
+			}
+			return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private SimulatedUser createUser(JsonHttpClient client, ActivityCategoryCatalog catalog, int index, Random userRandom)
+	{
+		try
+		{
+			return SimulatedUser.create(client, options.getAppServiceUrl(), catalog, index, options.getGoalsPerUser(),
+					userRandom);
+		}
+		catch (IOException e)
+		{
+			throw new CompletionException(e);
+		}
+	}
+
+	private void deleteUsers(JsonHttpClient client, List<SimulatedUser> users)
+	{
+		logger.info("Deleting {} users", users.size());
+		for (SimulatedUser user : users)
+		{
+			try
+			{
+				user.delete(client);
+			}
+			catch (IOException | IllegalStateException e)
+			{
+				logger.warn("Deleting user failed", e);
+			}
+		}
+	}
+
+	private Writer createSmoothwallLogWriter() throws IOException
+	{
+		Optional<String> fileName = options.getSmoothwallLogFile();
+		return fileName.isPresent() ? Files.newBufferedWriter(Paths.get(fileName.get()), StandardCharsets.UTF_8) : null;
+	}
+
+	private void report(JsonHttpClient client, LoadRunner loadRunner) throws IOException
+	{
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("elapsedSeconds", loadRunner.getElapsedSeconds());
+		report.put("filteredSmoothwallRecords", loadRunner.getFilteredRecordCount());
+		for (EndpointStatistics statistics : loadRunner.getStatistics())
+		{
+			report.put(statistics.getName(), statistics.toReport(loadRunner.getElapsedSeconds()));
+		}
+		String json = client.getObjectMapper().writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report);
+		logger.info("Load test results:\n{}", json);
+		Optional<String> reportFile = options.getReportFile();
+		if (reportFile.isPresent())
+		{
+			Files.write(new File(reportFile.get()).toPath(), json.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The options of the load generator, passed as <code>--name=value</code> arguments. Options that are not passed get the default
+ * value listed here.
+ */
+class LoadGeneratorOptions
+{
+	private static final Map<String, String> DEFAULTS = new HashMap<>();
+	static
+	{
+		DEFAULTS.put("adminServiceUrl", "http://localhost:8080");
+		DEFAULTS.put("analysisServiceUrl", "http://localhost:8081");
+		DEFAULTS.put("appServiceUrl", "http://localhost:8082");
+		DEFAULTS.put("activityCategoriesFile", "");
+		DEFAULTS.put("userCount", "50");
+		DEFAULTS.put("goalsPerUser", "3");
+		DEFAULTS.put("ratePerSecond", "50");
+		DEFAULTS.put("duration", "PT5M");
+		DEFAULTS.put("simulatedDays", "1");
+		DEFAULTS.put("appActivityShare", "0.2");
+		DEFAULTS.put("appActivitiesPerBatch", "5");
+		DEFAULTS.put("unclassifiedTrafficShare", "0.3");
+		DEFAULTS.put("threadCount", "32");
+		DEFAULTS.put("seed", "42");
+		DEFAULTS.put("reportInterval", "PT10S");
+		DEFAULTS.put("smoothwallLogFile", "");
+		DEFAULTS.put("reportFile", "");
+		DEFAULTS.put("deleteUsers", "true");
+	}
+
+	private final Map<String, String> values;
+
+	private LoadGeneratorOptions(Map<String, String> values)
+	{
+		this.values = values;
+	}
+
+	static LoadGeneratorOptions parse(String[] args)
+	{
+		Map<String, String> values = new HashMap<>(DEFAULTS);
+		for (String arg : args)
+		{
+			int separatorIndex = arg.indexOf('=');
+			if (!arg.startsWith("--") || separatorIndex < 0)
+			{
+				throw new IllegalArgumentException("Argument '" + arg + "' is not of the form --name=value");
+			}
+			String name = arg.substring(2, separatorIndex);
+			if (!DEFAULTS.containsKey(name))
+			{
+				throw new IllegalArgumentException("Unknown option '" + name + "'. Known options: " + DEFAULTS.keySet());
+			}
+			values.put(name, arg.substring(separatorIndex + 1));
+		}
+		return new LoadGeneratorOptions(values);
+	}
+
+	String getAdminServiceUrl()
+	{
+		return values.get("adminServiceUrl");
+	}
+
+	String getAnalysisServiceUrl()
+	{
+		return values.get("analysisServiceUrl");
+	}
+
+	String getAppServiceUrl()
+	{
+		return values.get("appServiceUrl");
+	}
+
+	/**
+	 * Activity categories to load into the admin service before starting, e.g. dbinit/data/activityCategories.json. Needed when
+	 * running against an empty database.
+	 */
+	Optional<String> getActivityCategoriesFile()
+	{
+		return getOptionalString("activityCategoriesFile");
+	}
+
+	int getUserCount()
+	{
+		return Integer.parseInt(values.get("userCount"));
+	}
+
+	int getGoalsPerUser()
+	{
+		return Integer.parseInt(values.get("goalsPerUser"));
+	}
+
+	/**
+	 * The average number of events (Smoothwall log records and app activity batches) generated per second. The actual rate
+	 * follows the diurnal pattern of the simulated time. Log records that are filtered out do not result in a request.
+	 */
+	double getRatePerSecond()
+	{
+		return Double.parseDouble(values.get("ratePerSecond"));
+	}
+
+	Duration getDuration()
+	{
+		return Duration.parse(values.get("duration"));
+	}
+
+	/**
+	 * The number of days of activity that is simulated during the run. The simulated days end at the start of the run, as the
+	 * analysis engine rejects activity in the future.
+	 */
+	int getSimulatedDays()
+	{
+		return Integer.parseInt(values.get("simulatedDays"));
+	}
+
+	/**
+	 * The fraction of the events that are app activity batches, posted through the app service. The others are Smoothwall log
+	 * records, posted as network activity to the analysis engine.
+	 */
+	double getAppActivityShare()
+	{
+		return Double.parseDouble(values.get("appActivityShare"));
+	}
+
+	int getAppActivitiesPerBatch()
+	{
+		return Integer.parseInt(values.get("appActivitiesPerBatch"));
+	}
+
+	/**
+	 * The fraction of the Smoothwall log records that only have categories that are not relevant to Yona. These are filtered out
+	 * like HandleDansGuardianLog.pl does, so they do not result in a request.
+	 */
+	double getUnclassifiedTrafficShare()
+	{
+		return Double.parseDouble(values.get("unclassifiedTrafficShare"));
+	}
+
+	int getThreadCount()
+	{
+		return Integer.parseInt(values.get("threadCount"));
+	}
+
+	/**
+	 * The seed of the random generator. With the same seed and options, the same sequence of events is generated.
+	 */
+	long getSeed()
+	{
+		return Long.parseLong(values.get("seed"));
+	}
+
+	Duration getReportInterval()
+	{
+		return Duration.parse(values.get("reportInterval"));
+	}
+
+	/**
+	 * File to write the synthesized Smoothwall log records to, so they can be replayed through HandleDansGuardianLog.pl.
+	 */
+	Optional<String> getSmoothwallLogFile()
+	{
+		return getOptionalString("smoothwallLogFile");
+	}
+
+	/**
+	 * File to write the final report to, in JSON format.
+	 */
+	Optional<String> getReportFile()
+	{
+		return getOptionalString("reportFile");
+	}
+
+	boolean isDeleteUsers()
+	{
+		return Boolean.parseBoolean(values.get("deleteUsers"));
+	}
+
+	private Optional<String> getOptionalString(String name)
+	{
+		String value = values.get(name);
+		return value.isEmpty() ? Optional.empty() : Optional.of(value);
+	}
+}
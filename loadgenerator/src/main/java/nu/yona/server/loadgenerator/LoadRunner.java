@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nu.yona.server.analysis.service.AppActivityDto;
+import nu.yona.server.loadgenerator.SmoothwallLogTransformer.NetworkActivityEvent;
+
+/**
+ * Generates events at the target rate and sends them from a pool of threads. This is an open model: the events are generated
+ * on schedule, independent of how fast the services respond. The latency is measured from the scheduled send time rather than
+ * from the actual send time, so a saturated stack shows up as increasing latency instead of as a silently lower request rate.
+ * All events are generated on a single thread, so a given seed always yields the same event sequence.
+ */
+class LoadRunner
+{
+	private static final Logger logger = LoggerFactory.getLogger(LoadRunner.class);
+
+	private final JsonHttpClient client;
+	private final LoadGeneratorOptions options;
+	private final EventGenerator eventGenerator;
+	private final SmoothwallLogTransformer transformer;
+	private final Optional<Writer> smoothwallLogWriter;
+	private final Random random;
+	private final EndpointStatistics networkActivityStatistics = new EndpointStatistics("networkActivity");
+	private final EndpointStatistics appActivityStatistics = new EndpointStatistics("appActivity");
+	private final LongAdder filteredRecordCount = new LongAdder();
+	private double elapsedSeconds;
+
+	LoadRunner(JsonHttpClient client, LoadGeneratorOptions options, EventGenerator eventGenerator,
+			SmoothwallLogTransformer transformer, Optional<Writer> smoothwallLogWriter, Random random)
+	{
+		this.client = client;
+		this.options = options;
+		this.eventGenerator = eventGenerator;
+		this.transformer = transformer;
+		this.smoothwallLogWriter = smoothwallLogWriter;
+		this.random = random;
+	}
+
+	List<EndpointStatistics> getStatistics()
+	{
+		return Arrays.asList(networkActivityStatistics, appActivityStatistics);
+	}
+
+	long getFilteredRecordCount()
+	{
+		return filteredRecordCount.sum();
+	}
+
+	double getElapsedSeconds()
+	{
+		return elapsedSeconds;
+	}
+
+	void run() throws IOException, InterruptedException
+	{
+		ExecutorService senders = Executors.newFixedThreadPool(options.getThreadCount());
+		DiurnalPattern diurnalPattern = new DiurnalPattern(ZonedDateTime.now(), options.getSimulatedDays(),
+				options.getDuration());
+		long startNanos = System.nanoTime();
+		long endNanos = startNanos + options.getDuration().toNanos();
+		long reportIntervalNanos = options.getReportInterval().toNanos();
+		long nextReportNanos = startNanos + reportIntervalNanos;
+		long scheduledNanos = startNanos;
+		while (scheduledNanos < endNanos)
+		{
+			waitUntil(scheduledNanos);
+			ZonedDateTime simulatedTime = diurnalPattern.toSimulatedTime(scheduledNanos - startNanos);
+			generateAndSubmit(senders, scheduledNanos, simulatedTime);
+
+			// Exponentially distributed gaps give Poisson arrivals, like independent users
+			double rate = options.getRatePerSecond() * diurnalPattern.getRateFactor(simulatedTime);
+			scheduledNanos += (long) (-Math.log(1 - random.nextDouble()) / rate * TimeUnit.SECONDS.toNanos(1));
+			if (scheduledNanos >= nextReportNanos)
+			{
+				logProgress(simulatedTime, rate, scheduledNanos - startNanos);
+				nextReportNanos += reportIntervalNanos;
+			}
+		}
+		senders.shutdown();
+		if (!senders.awaitTermination(1, TimeUnit.MINUTES))
+		{
+			logger.warn("Not all requests completed within a minute after the end of the run");
+			senders.shutdownNow();
+		}
+		elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+	}
+
+	private void generateAndSubmit(ExecutorService senders, long scheduledNanos, ZonedDateTime simulatedTime)
+			throws IOException
+	{
+		SimulatedUser user = eventGenerator.pickUser();
+		if (random.nextDouble() < options.getAppActivityShare())
+		{
+			AppActivityDto appActivities = eventGenerator.createAppActivityBatch(simulatedTime);
+			senders.execute(() -> send(appActivityStatistics, scheduledNanos,
+					() -> client.post(user.getAppActivityUrl(), appActivities, user.getPassword())));
+			return;
+		}
+
+		Map<String, Object> record = eventGenerator.createSmoothwallLogRecord(user, simulatedTime);
+		if (smoothwallLogWriter.isPresent())
+		{
+			smoothwallLogWriter.get().write(client.getObjectMapper().writeValueAsString(record) + "\n");
+		}
+		Optional<NetworkActivityEvent> event = transformer.transform(record);
+		if (!event.isPresent())
+		{
+			filteredRecordCount.increment();
+			return;
+		}
+		String url = options.getAnalysisServiceUrl() + "/userAnonymized/" + event.get().getVpnLoginId() + "/networkActivity/";
+		senders.execute(() -> send(networkActivityStatistics, scheduledNanos,
+				() -> client.post(url, event.get().getNetworkActivity(), Optional.empty())));
+	}
+
+	@FunctionalInterface
+	private interface Request
+	{
+		JsonHttpClient.Response execute() throws IOException;
+	}
+
+	private void send(EndpointStatistics statistics, long scheduledNanos, Request request)
+	{
+		int status;
+		try
+		{
+			JsonHttpClient.Response response = request.execute();
+			status = response.getStatus();
+			if (!response.isSuccess())
+			{
+				logger.debug("Request for {} failed with status {}: {}", statistics.getName(), status, response.getBody());
+			}
+		}
+		catch (IOException e)
+		{
+			logger.debug("Request for {} failed", statistics.getName(), e);
+			status = EndpointStatistics.NO_RESPONSE;
+		}
+		statistics.record(status, System.nanoTime() - scheduledNanos);
+	}
+
+	private void logProgress(ZonedDateTime simulatedTime, double rate, long elapsedNanos)
+	{
+		logger.info("{}s elapsed, simulated time {}, target rate {}/s, network activity: {} requests, {} errors, "
+				+ "app activity: {} requests, {} errors", TimeUnit.NANOSECONDS.toSeconds(elapsedNanos),
+				simulatedTime.toLocalDateTime(), Math.round(rate), networkActivityStatistics.getRequestCount(),
+				networkActivityStatistics.getErrorCount(), appActivityStatistics.getRequestCount(),
+				appActivityStatistics.getErrorCount());
+	}
+
+	private static void waitUntil(long nanoTime)
+	{
+		long remaining;
+		while ((remaining = nanoTime - System.nanoTime()) > 0)
+		{
+			LockSupport.parkNanos(remaining);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import nu.yona.server.loadgenerator.ActivityCategoryCatalog.Category;
+
+/**
+ * A user created in the app service for the load test, with the links and credentials needed to post activity on their behalf.
+ */
+class SimulatedUser
+{
+	private static final String USERS_PATH = "/users/";
+	private static final String CONFIRMATION_CODE = "1234"; // Generated by the app service when SMS is disabled
+	private static final int BUDGET_MINUTES = 60;
+
+	private final String password;
+	private final String vpnLoginId;
+	private final String appActivityUrl;
+	private final String editUrl;
+
+	private SimulatedUser(String password, String vpnLoginId, String appActivityUrl, String editUrl)
+	{
+		this.password = password;
+		this.vpnLoginId = vpnLoginId;
+		this.appActivityUrl = appActivityUrl;
+		this.editUrl = editUrl;
+	}
+
+	Optional<String> getPassword()
+	{
+		return Optional.of(password);
+	}
+
+	String getVpnLoginId()
+	{
+		return vpnLoginId;
+	}
+
+	String getAppActivityUrl()
+	{
+		return appActivityUrl;
+	}
+
+	/**
+	 * Creates a user, confirms their mobile number and adds budget goals for a number of the (non-mandatory) activity categories.
+	 * The mandatory goals are added by the app service itself.
+	 */
+	static SimulatedUser create(JsonHttpClient client, String appServiceUrl, ActivityCategoryCatalog catalog, int index,
+			int goalCount, Random random) throws IOException
+	{
+		String password = UUID.randomUUID().toString();
+		Map<String, Object> user = new HashMap<>();
+		user.put("firstName", "Load");
+		user.put("lastName", "Tester " + index);
+		user.put("nickname", "lt" + index);
+		user.put("mobileNumber", String.format("+316%08d", random.nextInt(100_000_000)));
+		JsonHttpClient.Response response = client.post(appServiceUrl + USERS_PATH, user, Optional.of(password));
+		ActivityCategoryCatalog.assertSuccess(response, "Creating user " + index);
+		JsonNode userNode = client.parse(response);
+
+		String confirmationUrl = userNode.path("_links").path("yona:confirmMobileNumber").path("href").asText();
+		response = client.post(confirmationUrl, Collections.singletonMap("code", CONFIRMATION_CODE), Optional.of(password));
+		ActivityCategoryCatalog.assertSuccess(response, "Confirming mobile number of user " + index);
+		JsonNode confirmedUserNode = client.parse(response);
+
+		String goalsUrl = confirmedUserNode.path("_embedded").path("yona:goals").path("_links").path("self").path("href")
+				.asText();
+		for (Category category : pickGoalCategories(catalog, goalCount, random))
+		{
+			response = client.post(goalsUrl, createBudgetGoal(appServiceUrl, category), Optional.of(password));
+			ActivityCategoryCatalog.assertSuccess(response, "Adding goal for user " + index);
+		}
+
+		return new SimulatedUser(password, confirmedUserNode.path("vpnProfile").path("vpnLoginID").asText(),
+				confirmedUserNode.path("_links").path("yona:appActivity").path("href").asText(),
+				confirmedUserNode.path("_links").path("edit").path("href").asText());
+	}
+
+	void delete(JsonHttpClient client) throws IOException
+	{
+		ActivityCategoryCatalog.assertSuccess(client.delete(editUrl, getPassword()), "Deleting user");
+	}
+
+	private static List<Category> pickGoalCategories(ActivityCategoryCatalog catalog, int goalCount, Random random)
+	{
+		List<Category> candidates = catalog.getCategories().stream().filter(c -> !c.isMandatoryNoGo())
+				.collect(Collectors.toList());
+		Collections.shuffle(candidates, random);
+		return candidates.subList(0, Math.min(goalCount, candidates.size()));
+	}
+
+	private static Map<String, Object> createBudgetGoal(String appServiceUrl, Category category)
+	{
+		Map<String, Object> goal = new HashMap<>();
+		goal.put("@type", "BudgetGoal");
+		goal.put("maxDurationMinutes", BUDGET_MINUTES);
+		goal.put("_links", Collections.singletonMap("yona:activityCategory",
+				Collections.singletonMap("href", appServiceUrl + "/activityCategories/" + category.getId())));
+		return goal;
+	}
+}
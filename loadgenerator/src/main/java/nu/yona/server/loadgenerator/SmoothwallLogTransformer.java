@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import nu.yona.server.analysis.service.NetworkActivityDto;
+
+/**
+ * Transforms Smoothwall access log records to network activity for the analysis engine, the way
+ * scripts/smoothwall/HandleDansGuardianLog.pl does: records without user name or without relevant URL categories are skipped.
+ * Unlike the script, the record time is passed as event time, so the simulated time of the load test is retained.
+ */
+class SmoothwallLogTransformer
+{
+	static class NetworkActivityEvent
+	{
+		private final String vpnLoginId;
+		private final NetworkActivityDto networkActivity;
+
+		NetworkActivityEvent(String vpnLoginId, NetworkActivityDto networkActivity)
+		{
+			this.vpnLoginId = vpnLoginId;
+			this.networkActivity = networkActivity;
+		}
+
+		String getVpnLoginId()
+		{
+			return vpnLoginId;
+		}
+
+		NetworkActivityDto getNetworkActivity()
+		{
+			return networkActivity;
+		}
+	}
+
+	// The user name is a distinguished name like "cn=<VPN login ID>,ou=...". The script takes 36 characters from offset 3.
+	private static final int VPN_LOGIN_ID_OFFSET = 3;
+	private static final int VPN_LOGIN_ID_LENGTH = 36;
+
+	private final Set<String> relevantSmoothwallCategories;
+
+	SmoothwallLogTransformer(Set<String> relevantSmoothwallCategories)
+	{
+		this.relevantSmoothwallCategories = relevantSmoothwallCategories;
+	}
+
+	Optional<NetworkActivityEvent> transform(Map<String, Object> record)
+	{
+		Map<String, Object> userNames = getMap(getMap(record, "tagset"), "username");
+		if (userNames.isEmpty())
+		{
+			return Optional.empty();
+		}
+		Set<String> categories = getMap(getMap(record, "requesttags"), "urlcategory").keySet().stream()
+				.filter(relevantSmoothwallCategories::contains).collect(Collectors.toCollection(TreeSet::new));
+		if (categories.isEmpty())
+		{
+			return Optional.empty();
+		}
+
+		String userDn = userNames.keySet().iterator().next();
+		String vpnLoginId = userDn.substring(VPN_LOGIN_ID_OFFSET, VPN_LOGIN_ID_OFFSET + VPN_LOGIN_ID_LENGTH);
+		return Optional.of(new NetworkActivityEvent(vpnLoginId,
+				new NetworkActivityDto(categories, (String) record.get("url"), Optional.of(getTime(record)))));
+	}
+
+	private static ZonedDateTime getTime(Map<String, Object> record)
+	{
+		// The time is formatted as seconds since the epoch, with microseconds as fraction
+		BigDecimal time = new BigDecimal((String) record.get("time"));
+		long seconds = time.longValue();
+		long nanos = time.subtract(BigDecimal.valueOf(seconds)).movePointRight(9).longValue();
+		return Instant.ofEpochSecond(seconds, nanos).atZone(DiurnalPattern.ZONE);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getMap(Map<String, Object> map, String key)
+	{
+		Object value = map.get(key);
+		return (value instanceof Map) ? (Map<String, Object>) value : Collections.emptyMap();
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *******************************************************************************/
+package nu.yona.server.loadgenerator;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import nu.yona.server.loadgenerator.SmoothwallLogTransformer.NetworkActivityEvent;
+
+public class SmoothwallLogTransformerTest
+{
+	private static final String VPN_LOGIN_ID = "0f2c3a8e-6b3e-4f43-9d4c-1a2b3c4d5e6f";
+
+	private SmoothwallLogTransformer transformer;
+
+	@Before
+	public void setUp()
+	{
+		transformer = new SmoothwallLogTransformer(new HashSet<>(Arrays.asList("Gambling", "Social Networking")));
+	}
+
+	@Test
+	public void testOnlyRelevantCategoriesKept() throws Exception
+	{
+		Optional<NetworkActivityEvent> event = transformer.transform(parse("{\"requesttags\":{\"urlcategory\":"
+				+ "{\"Gambling\":[\".poker.com\"],\"KS-Plus\":[\".poker.com\"]}},\"tagset\":{\"username\":{\"cn=" + VPN_LOGIN_ID
+				+ ",ou=SSL\":[]}},\"time\":\"1445493632.400844\",\"url\":\"http://poker.com/\"}"));
+
+		assertThat(event.isPresent(), equalTo(true));
+		assertThat(event.get().getVpnLoginId(), equalTo(VPN_LOGIN_ID));
+		assertThat(event.get().getNetworkActivity().getCategories(), containsInAnyOrder("Gambling"));
+		assertThat(event.get().getNetworkActivity().getUrl(), equalTo("http://poker.com/"));
+		ZonedDateTime eventTime = event.get().getNetworkActivity().getEventTime().get();
+		assertThat(eventTime.toEpochSecond(), equalTo(1445493632L));
+		assertThat(eventTime.getNano(), equalTo(400844000));
+	}
+
+	@Test
+	public void testOnlyIrrelevantCategories() throws Exception
+	{
+		Optional<NetworkActivityEvent> event = transformer.transform(parse("{\"requesttags\":{\"urlcategory\":"
+				+ "{\"KS-Plus\":[\".godaddy.com\"]}},\"tagset\":{\"username\":{\"cn=" + VPN_LOGIN_ID + ",ou=SSL\":[]}},"
+				+ "\"time\":\"1445493631.982801\",\"url\":\"http://ocsp.godaddy.com/\"}"));
+
+		assertThat(event.isPresent(), equalTo(false));
+	}
+
+	@Test
+	public void testNoUserName() throws Exception
+	{
+		Optional<NetworkActivityEvent> event = transformer.transform(
+				parse("{\"requesttags\":{\"urlcategory\":{\"Gambling\":[\".poker.com\"]}},\"tagset\":{\"group\":{\"1\":[]}},"
+						+ "\"time\":\"1445493631.982801\",\"url\":\"http://poker.com/\"}"));
+
+		assertThat(event.isPresent(), equalTo(false));
+	}
+
+	private static Map<String, Object> parse(String json) throws Exception
+	{
+		return new ObjectMapper().readValue(json, new TypeReference<Map<String, Object>>() {
+		});
+	}
+}
@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+#*******************************************************************************
+# Copyright (c) 2017 Stichting Yona Foundation
+#
+# This Source Code Form is subject to the terms of the Mozilla Public
+# License, v. 2.0. If a copy of the MPL was not distributed with this
+# file, You can obtain one at https://mozilla.org/MPL/2.0/.
+#*******************************************************************************
+
+# Runs the load generator against a local stack on an in-memory HSQLDB database. Run from the root of the repository.
+# The arguments are passed to the load generator, e.g. scripts/load_test.sh --userCount=200 --ratePerSecond=100
+
+./scripts/servers_stop.sh
+
+function waitTillPortIsListenedTo() {
+    while ! nc -z localhost $1; do sleep 2; done
+}
+
+./gradlew build -x test
+
+./gradlew :loadgenerator:hsqldbServer > /dev/null 2>&1 &
+waitTillPortIsListenedTo 9001
+
+export SPRING_PROFILES_ACTIVE=hsqldb
+./gradlew :adminservice:bootRun > /dev/null 2>&1 &
+waitTillPortIsListenedTo 8080
+./gradlew :analysisservice:bootRun > /dev/null 2>&1 &
+./gradlew :appservice:bootRun > /dev/null 2>&1 &
+waitTillPortIsListenedTo 8081
+waitTillPortIsListenedTo 8082
+unset SPRING_PROFILES_ACTIVE
+
+./gradlew :loadgenerator:run -PloadGeneratorArgs="--activityCategoriesFile=$(pwd)/dbinit/data/activityCategories.json $*"
+
+./scripts/servers_stop.sh
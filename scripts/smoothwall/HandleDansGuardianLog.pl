@@ -11,9 +11,14 @@ use Data::Dumper;
 use LWP::UserAgent;
 use HTTP::Request::Common;
 use Getopt::Long;
+use POSIX qw(strftime);
 
 my $analysis_engine_url = 'http://localhost:8081/';
 my $categories_refresh_interval = 300;
+my $batch_interval = 0;
+my $max_batch_size = 1000;
+my @pending_events;
+my $last_flush_time = time();
 my $relevant_url_categories_load_time = 0;
 my %relevant_url_categories;
 my $ua = LWP::UserAgent->new;
@@ -73,7 +78,61 @@ sub transform_log_record ($) {
 		'categories' => [@relevant_url_categories_logged],
 		'url' => $url
 	};
-	return encode_json $analysis_event;
+	return $analysis_event;
+}
+
+sub format_event_time {
+	# The log time is in seconds since the epoch, with microseconds as fraction
+	my ($log_time) = @_;
+	my $seconds = int($log_time);
+	my $millis = int(($log_time - $seconds) * 1000);
+	return strftime("%Y-%m-%dT%H:%M:%S", gmtime($seconds)) . sprintf(".%03d+0000", $millis);
+}
+
+sub post_analysis_event {
+	my ($vpn_login_id, $analysis_event) = @_;
+	my $user_anonymized_url = "${analysis_engine_url}userAnonymized/${vpn_login_id}/networkActivity/";
+	my $post_result = $ua->request(POST $user_anonymized_url, Content_Type => 'application/json', Content => encode_json $analysis_event);
+	my $status_code = $post_result->{'_rc'};
+	if ($status_code != 200) {
+		log_error "POST to '$user_anonymized_url' returned status $status_code";
+	}
+}
+
+sub flush_pending_events {
+	$last_flush_time = time();
+	if (!@pending_events) {
+		return;
+	}
+	my $network_activities_url = "${analysis_engine_url}networkActivities/";
+	my $content = join("\n", @pending_events) . "\n";
+	my $event_count = @pending_events;
+	@pending_events = ();
+	my $post_result = $ua->request(POST $network_activities_url, Content_Type => 'application/x-ndjson', Content => $content);
+	my $status_code = $post_result->{'_rc'};
+	if ($status_code != 200) {
+		log_error "POST of $event_count events to '$network_activities_url' returned status $status_code";
+		return;
+	}
+	my $result = decode_json $post_result->content;
+	foreach $line (@{$result->{'lines'}}) {
+		if ($line->{'status'} ne 'OK') {
+			log_error "Event $line->{'lineNumber'} of $event_count rejected: $line->{'message'}";
+		}
+	}
+}
+
+sub queue_analysis_event {
+	my ($vpn_login_id, $analysis_event, $log_time) = @_;
+	# Events are delayed until the next flush, so pass the log time as event time
+	$analysis_event->{'userAnonymizedId'} = $vpn_login_id;
+	if ($log_time) {
+		$analysis_event->{'eventTime'} = format_event_time $log_time;
+	}
+	push @pending_events, encode_json $analysis_event;
+	if (@pending_events >= $max_batch_size || $last_flush_time + $batch_interval <= time()) {
+		flush_pending_events;
+	}
 }
 
 sub fetch_relevant_url_categories {
@@ -116,20 +175,20 @@ sub handle_records_from_stream {
 		}
 		else
 		{
-			my $analysis_event_json = transform_log_record $log_message;
+			my $analysis_event = transform_log_record $log_message;
 
-			if ($analysis_event_json) {
+			if ($analysis_event) {
 				my $user_dn = (keys $log_message->{'tagset'}->{'username'}) [0];
 				my $vpn_login_id = substr $user_dn, 3, 36;
-				my $user_anonymized_url = "${analysis_engine_url}userAnonymized/${vpn_login_id}/networkActivity/";
-				my $post_result = $ua->request(POST $user_anonymized_url, Content_Type => 'application/json', Content => $analysis_event_json);
-				my $status_code = $post_result->{'_rc'};
-				if ($status_code != 200) {
-					log_error "POST to '$user_anonymized_url' returned status $status_code";
+				if ($batch_interval > 0) {
+					queue_analysis_event($vpn_login_id, $analysis_event, $log_message->{'time'});
+				} else {
+					post_analysis_event($vpn_login_id, $analysis_event);
 				}
 			}
 		}
 	}
+	flush_pending_events;
 }
 
 sub handle_records_from_file {
@@ -142,8 +201,10 @@ sub handle_records_from_file {
 
 $| = 1; # Make STDOUT unbuffered
 GetOptions ('analysisEngineURL=s' => \$analysis_engine_url,
-	'categoriesRefreshInterval=i' => \$categories_refresh_interval)
-or die "Usage: $0 [--analysisEngineURL <URL>] [--categoriesRefreshInterval <interval in seconds>] [<input file>]";
+	'categoriesRefreshInterval=i' => \$categories_refresh_interval,
+	'batchInterval=i' => \$batch_interval,
+	'maxBatchSize=i' => \$max_batch_size)
+or die "Usage: $0 [--analysisEngineURL <URL>] [--categoriesRefreshInterval <interval in seconds>] [--batchInterval <interval in seconds>] [--maxBatchSize <number of events>] [<input file>]";
 
 my $input_file = $ARGV[0];
 if ($input_file) {